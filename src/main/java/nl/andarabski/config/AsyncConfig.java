@@ -0,0 +1,33 @@
+package nl.andarabski.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
+    public static final String THUMBNAIL_EXECUTOR = "thumbnailExecutor";
+
+    // Begrensd: vaste pool + begrensde queue. Bij een volle queue wordt de taak verworpen (geen CallerRuns),
+    // zodat een upload nooit op het schalen wacht; de originele foto blijft gewoon bruikbaar.
+    @Bean(name = THUMBNAIL_EXECUTOR)
+    public ThreadPoolTaskExecutor thumbnailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("Thumbnail queue is vol ({} taken), thumbnail wordt overgeslagen", pool.getQueue().size()));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+}
@@ -0,0 +1,45 @@
+package nl.andarabski.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.system.JsonResponseCache;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String VACANCY_DTOS = "vacancyDtos";
+    public static final String VACANCY_LIST_RESPONSES = "vacancyListResponses";
+
+    // Begrensd op gewicht i.p.v. aantal: een vacancy met 1.000 applications telt 1.001, een lege telt 1.
+    // recordStats: hit ratio en evictions via /actuator/metrics (cache.gets, cache.evictions, cache.size)
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> vacancyDtoCacheCustomizer() {
+        return cacheManager -> cacheManager.registerCustomCache(VACANCY_DTOS, Caffeine.newBuilder()
+                .maximumWeight(100_000)
+                .weigher((Object id, Object dto) -> dto instanceof VacancyDto v && v.getApplications() != null
+                        ? 1 + v.getApplications().size() : 1)
+                .expireAfterWrite(Duration.ofMinutes(5))
+                .recordStats()
+                .build());
+    }
+
+    // Geserialiseerde pagina's van GET /vacancies (JsonResponseCache), begrensd op bytes. Elke write op een
+    // vacancy of application leegt de hele cache; de TTL is alleen een vangnet.
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> vacancyListResponseCacheCustomizer() {
+        return cacheManager -> cacheManager.registerCustomCache(VACANCY_LIST_RESPONSES, Caffeine.newBuilder()
+                .maximumWeight(16 * 1024 * 1024)
+                .weigher((Object key, Object entry) -> entry instanceof JsonResponseCache.Entry e ? e.body().length : 1)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .recordStats()
+                .build());
+    }
+}
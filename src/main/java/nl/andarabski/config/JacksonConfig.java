@@ -0,0 +1,22 @@
+package nl.andarabski.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import nl.andarabski.dto.ApplicationDto;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class JacksonConfig {
+
+    // Eén gedeelde reader op de door Spring geconfigureerde ObjectMapper (zelfde instellingen als @RequestBody).
+    // ObjectReader is immutable en thread-safe; de root-deserializer voor List<ApplicationDto> wordt bij het
+    // aanmaken al opgehaald, dus geen opbouw van caches per request.
+    @Bean
+    public ObjectReader applicationsReader(ObjectMapper objectMapper) {
+        return objectMapper.readerFor(new TypeReference<List<ApplicationDto>>() {});
+    }
+}
@@ -1,13 +1,17 @@
 package nl.andarabski.config;
 
 import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class MapperConfig {
 
+    // De converters mappen via MapStruct (gegenereerde code); ModelMapper (reflectie) is niet meer nodig
+    // op de runtime-paden en wordt alleen nog aangemaakt met mapping.model-mapper.enabled=true.
     @Bean
+    @ConditionalOnProperty(name = "mapping.model-mapper.enabled", havingValue = "true")
     public ModelMapper modelMapper(){
         return new ModelMapper();
     }
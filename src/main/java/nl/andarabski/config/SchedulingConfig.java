@@ -0,0 +1,10 @@
+package nl.andarabski.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// periodieke onderhoudstaken, o.a. FileStorageService.sweepUnreferenced
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,19 +1,26 @@
 package nl.andarabski.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import nl.andarabski.dto.ApplicationDto;
 import nl.andarabski.dto.ApplyRequestDto;
+import nl.andarabski.dto.ApplyResultDto;
+import nl.andarabski.dto.CursorPageDto;
 import nl.andarabski.dto.MotivationRequestDto;
 import nl.andarabski.mapper.ApplicationMapper;
 import nl.andarabski.model.Application;
 import nl.andarabski.service.ApplicationService;
+import nl.andarabski.system.MergePatchReader;
 import nl.andarabski.system.Result;
 import nl.andarabski.system.StatusCode;
 import nl.andarabski.system.exception.ObjectNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -26,9 +33,14 @@ public class ApplicationController {
 
     private final ApplicationService applicationService;
     private final ApplicationMapper applicationMapper;
+    private final MergePatchReader mergePatchReader;
 
     @GetMapping("/{applicationId}")
-    public Result findById(@PathVariable Long applicationId) {
+    public Result findById(@PathVariable Long applicationId, WebRequest request) {
+        // eerst de ETag (alleen de versiekolom), dan pas de body
+        if (request.checkNotModified(applicationService.findETag(applicationId))) {
+            return null; // 304 zonder body
+        }
         ApplicationDto dto = this.applicationService.findById(applicationId);
         if (dto == null) {
             throw new ObjectNotFoundException("Application not found", applicationId );
@@ -37,9 +49,18 @@ public class ApplicationController {
     }
 
     @GetMapping()
-    public Result findAllVacancies() {
-        List<ApplicationDto> applications = this.applicationService.findAll();
-       return new Result(true, StatusCode.SUCCESS, "Find All Success", applications);
+    public Result findAllVacancies(@RequestParam(required = false) String cursor,
+                                   @RequestParam(required = false) Integer size) {
+        CursorPageDto<ApplicationDto> page = this.applicationService.findPage(cursor, size);
+       return new Result(true, StatusCode.SUCCESS, "Find All Success", page);
+    }
+
+    // bijv. /latest?status=PENDING&size=20
+    @GetMapping("/latest")
+    public Result findLatestByStatus(@RequestParam String status,
+                                     @RequestParam(required = false) Integer size) {
+        List<ApplicationDto> latest = this.applicationService.findLatestByStatus(status, size);
+        return new Result(true, StatusCode.SUCCESS, "Find All Success", latest);
     }
 
     @ResponseStatus(HttpStatus.CREATED)
@@ -51,12 +72,22 @@ public class ApplicationController {
 
 
    @PutMapping("/{applicationId}")
-    public Result updateApplication(@PathVariable Long applicationId, @RequestBody ApplicationDto applicationDto) {
-        // Converter DTO naar entity
-        ApplicationDto updated = applicationService.update(applicationId, applicationDto);
+    public Result updateApplication(@PathVariable Long applicationId, @RequestBody ApplicationDto applicationDto,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        // Converter DTO naar entity; verouderde If-Match -> 412
+        ApplicationDto updated = applicationService.update(applicationId, applicationDto, ifMatch);
        return new Result(true, StatusCode.SUCCESS, "Application updated successfully", updated);
     }
 
+    // JSON Merge Patch, bijv. {"status": "REJECTED"}; een andere user/vacancy is een nieuwe application (apply)
+    @PatchMapping(value = "/{applicationId}", consumes = MergePatchReader.MEDIA_TYPE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Result patchApplication(@PathVariable Long applicationId, @RequestBody JsonNode patch,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ApplicationDto dto = mergePatchReader.read(patch, ApplicationDto.class, "userId", "vacancyId");
+        ApplicationDto updated = applicationService.patch(applicationId, dto, ifMatch);
+        return new Result(true, StatusCode.SUCCESS, "Application updated successfully", updated);
+    }
+
     @DeleteMapping("/{applicationId}")
     public Result deleteApplication(@PathVariable Long applicationId) {
         this.applicationService.delete(applicationId);
@@ -84,6 +115,13 @@ public class ApplicationController {
     }
 
 
+    // Batch: per item CREATED/CONFLICT/NOT_FOUND/INVALID_ARGUMENT in data; de request zelf slaagt
+    @PostMapping("/apply/batch")
+    public Result applyToVacancies(@RequestBody List<ApplyRequestDto> requests) {
+        List<ApplyResultDto> results = applicationService.applyToVacancies(requests);
+        return new Result(true, StatusCode.SUCCESS, "Batch processed", results);
+    }
+
     @PostMapping("/apply")
     public Result applyToVacancy(@RequestBody ApplyRequestDto request) {
         try {
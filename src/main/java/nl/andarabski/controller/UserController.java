@@ -1,24 +1,36 @@
 package nl.andarabski.controller;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.RequiredArgsConstructor;
 import nl.andarabski.converter.UserDtoToUserConverter;
 import nl.andarabski.converter.UserToUserDtoConverter;
 import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.CursorPageDto;
 import nl.andarabski.dto.UserDto;
+import nl.andarabski.dto.UserSummaryDto;
 import nl.andarabski.mapper.UserMapper;
 import nl.andarabski.model.User;
+import nl.andarabski.service.FileStorageService;
 import nl.andarabski.service.UserService;
+import nl.andarabski.system.MergePatchReader;
 import nl.andarabski.system.Result;
 import nl.andarabski.system.StatusCode;
+import nl.andarabski.system.exception.InvalidRequestException;
 import nl.andarabski.system.exception.ObjectNotFoundException;
-import nl.andarabski.util.FileUploadUtil;
+import nl.andarabski.util.ExpandUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -33,9 +45,15 @@ public class UserController {
 
     private final UserService userService;
     private final UserMapper userMapper;
+    private final ObjectReader applicationsReader;
+    private final MergePatchReader mergePatchReader;
 
     @GetMapping("/{id}")
-    public Result findUserById(@PathVariable Long id) {
+    public Result findUserById(@PathVariable Long id, WebRequest request) {
+        // eerst de ETag (alleen versiekolommen), dan pas de body
+        if (request.checkNotModified(userService.findETag(id))) {
+            return null; // 304 zonder body
+        }
         UserDto dto = userService.findById(id);
         if (dto == null) {
             throw new ObjectNotFoundException("User with id " + id + " not found");
@@ -43,12 +61,40 @@ public class UserController {
         return new Result(true, StatusCode.SUCCESS, "Find One Success", dto);
     }
 
+    // Bestanden streamen: Spring schrijft de Resource in blokken (geen volledige kopie in de heap),
+    // zet Accept-Ranges/Content-Length en beantwoordt Range-requests zelf met 206 + ResourceRegion
+    @GetMapping("/{id}/photo")
+    public ResponseEntity<Resource> downloadPhoto(@PathVariable Long id, WebRequest request) {
+        return serve(userService.findPhoto(id), request, ContentDisposition.inline());
+    }
+
+    // asynchroon gegenereerd na de upload; 404 zolang ze er (nog) niet zijn
+    @GetMapping("/{id}/photo/thumbnail/{size}")
+    public ResponseEntity<Resource> downloadPhotoThumbnail(@PathVariable Long id, @PathVariable int size, WebRequest request) {
+        return serve(userService.findPhotoThumbnail(id, size), request, ContentDisposition.inline());
+    }
+
+    @GetMapping("/{id}/cv")
+    public ResponseEntity<Resource> downloadCv(@PathVariable Long id, WebRequest request) {
+        return serve(userService.findCv(id), request, ContentDisposition.attachment());
+    }
+
     @GetMapping
-    public Result findAllUsers() {
-        List<UserDto> foundUsers = this.userService.findAll();
+    public Result findAllUsers(@RequestParam(required = false) String cursor,
+                               @RequestParam(required = false) Integer size,
+                               @RequestParam(required = false) String expand) {
+        CursorPageDto<UserSummaryDto> foundUsers = this.userService.findPage(cursor, size, ExpandUtil.applications(expand));
         return new Result(true, StatusCode.SUCCESS, "Find All Success", foundUsers);
     }
 
+    @GetMapping("/{id}/applications")
+    public Result findApplications(@PathVariable Long id,
+                                   @RequestParam(required = false) String cursor,
+                                   @RequestParam(required = false) Integer size) {
+        CursorPageDto<ApplicationDto> applications = this.userService.findApplications(id, cursor, size);
+        return new Result(true, StatusCode.SUCCESS, "Find Applications Success", applications);
+    }
+
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping(value="/add", consumes=MediaType.MULTIPART_FORM_DATA_VALUE, produces=MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Result> createUser(
@@ -78,7 +124,7 @@ public class UserController {
         dto.setRole(role);
         dto.setEnabled(enabled);
 
-        dto.setApplications(parseApplicationsSafe(applicationsJson)); // zie helper onderaan
+        dto.setApplications(parseApplications(applicationsJson)); // zie helper onderaan
 
         UserDto saved = userService.create(dto, photo, cv);
         return ResponseEntity.status(HttpStatus.CREATED)
@@ -101,7 +147,8 @@ public class UserController {
             @RequestParam boolean enabled,
             @RequestParam(value="photo", required=false) MultipartFile photo,
             @RequestParam(value="cv", required=false) MultipartFile cv,
-            @RequestParam(value="applications", required=false) String applicationsJson
+            @RequestParam(value="applications", required=false) String applicationsJson,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch
     ) throws IOException {
 
         UserDto patch = new UserDto();
@@ -113,28 +160,54 @@ public class UserController {
         patch.setAge(age);
         patch.setRole(role);
         patch.setEnabled(enabled);
-        patch.setApplications(parseApplicationsSafe(applicationsJson));
+        patch.setApplications(parseApplications(applicationsJson));
 
-        UserDto updated = userService.update(id, patch, photo, cv);
+        UserDto updated = userService.update(id, patch, photo, cv, ifMatch); // verouderde If-Match -> 412
         return new Result(true, StatusCode.SUCCESS, "Update success", updated);
     }
 
+    // één veld wijzigen zonder multipart: alleen de meegestuurde velden; photo/cv blijven een upload via PUT
+    @PatchMapping(value = "/{id}", consumes = MergePatchReader.MEDIA_TYPE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Result patchUser(@PathVariable Long id, @RequestBody JsonNode patch,
+                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UserDto dto = mergePatchReader.read(patch, UserDto.class, "photo", "cv");
+        return new Result(true, StatusCode.SUCCESS, "Update success", userService.patch(id, dto, ifMatch));
+    }
+
 
     @DeleteMapping("/{id}")
     public Result deleteUser(@PathVariable("id") Long id) {
         // Laat service een ObjectNotFoundException gooien wanneer het ID niet bestaat;
         // de advice map't dat naar 404 wat de test verwacht.
-        userService.delete(id);
-        return new Result(true, StatusCode.SUCCESS, "Delete success", null);
+        // data: aantal mee verwijderde applications
+        return new Result(true, StatusCode.SUCCESS, "Delete success", userService.delete(id));
+    }
+
+    private ResponseEntity<Resource> serve(FileStorageService.Blob blob, WebRequest request,
+                                           ContentDisposition.Builder disposition) {
+        // sleutel = SHA-256 van de inhoud: sterke ETag zonder het bestand te lezen
+        String etag = "\"" + blob.key() + "\"";
+        // private: cv's en foto's zijn persoonsgegevens; no-cache: altijd revalideren, ongewijzigd -> 304
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.parseMediaType(blob.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.filename(blob.filename()).build().toString())
+                .body(new FileSystemResource(blob.path()));
     }
 
-    private List<ApplicationDto> parseApplicationsSafe(String json) {
+    private List<ApplicationDto> parseApplications(String json) {
         if (json == null || json.isBlank()) return java.util.Collections.emptyList();
         try {
-            return new com.fasterxml.jackson.databind.ObjectMapper()
-                    .readValue(json, new com.fasterxml.jackson.core.type.TypeReference<List<ApplicationDto>>() {});
-        } catch (Exception e) {
-            return java.util.Collections.emptyList();
+            return applicationsReader.readValue(json);
+        } catch (JsonProcessingException e) {
+            // ongeldige JSON is een fout van de client, niet stilletjes een lege lijst
+            throw new InvalidRequestException("Field 'applications' is not a valid JSON array of applications: "
+                    + e.getOriginalMessage());
         }
     }
 
@@ -1,19 +1,29 @@
 package nl.andarabski.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import nl.andarabski.config.CacheConfig;
 import nl.andarabski.converter.VacancyDtoToVacancyConverter;
 import nl.andarabski.converter.VacancyToVacancyDtoConverter;
+import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.CursorPageDto;
 import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.dto.VacancySummaryDto;
 import nl.andarabski.model.Vacancy;
 import nl.andarabski.repository.VacancyRepository;
 import nl.andarabski.service.VacancyService;
+import nl.andarabski.system.JsonResponseCache;
+import nl.andarabski.system.MergePatchReader;
 import nl.andarabski.system.Result;
 import nl.andarabski.system.StatusCode;
+import nl.andarabski.util.ExpandUtil;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -23,17 +33,40 @@ import java.util.List;
 public class VacancyController {
 
     private final VacancyService vacancyService;
+    private final JsonResponseCache jsonResponseCache;
+    private final MergePatchReader mergePatchReader;
 
     @GetMapping("/{vacancyId}")
-    public Result findById(@PathVariable("vacancyId") Long vacancyId){
+    public Result findById(@PathVariable("vacancyId") Long vacancyId, WebRequest request){
+        // eerst de ETag (alleen versiekolommen), dan pas de body: bij een gelijktijdige write is de body
+        // hooguit nieuwer dan de ETag, nooit ouder
+        if (request.checkNotModified(vacancyService.findETag(vacancyId))) {
+            return null; // 304 zonder body
+        }
         VacancyDto vacancyFound = this.vacancyService.findById(vacancyId);
         return new Result(true, StatusCode.SUCCESS, "Find One Success", vacancyFound);
     }
 
+    // Veel gepolld, zelden gewijzigd: de complete response als bytes gecachet, met ETag/304
     @GetMapping
-    public Result findAllVacancies(){
-        List<VacancyDto> listVacancies = this.vacancyService.findAll();
-        return new Result(true, StatusCode.SUCCESS, "Find All Success", listVacancies);
+    public ResponseEntity<byte[]> findAllVacancies(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer size,
+                                                   @RequestParam(required = false) String expand,
+                                                   WebRequest request){
+        boolean expandApplications = ExpandUtil.applications(expand);
+        String key = (cursor == null ? "" : cursor) + "|" + (size == null ? "" : size) + "|" + expandApplications;
+        return jsonResponseCache.serve(CacheConfig.VACANCY_LIST_RESPONSES, key, request, () -> {
+            CursorPageDto<VacancySummaryDto> listVacancies = this.vacancyService.findPage(cursor, size, expandApplications);
+            return new Result(true, StatusCode.SUCCESS, "Find All Success", listVacancies);
+        });
+    }
+
+    @GetMapping("/{vacancyId}/applications")
+    public Result findApplications(@PathVariable("vacancyId") Long vacancyId,
+                                   @RequestParam(required = false) String cursor,
+                                   @RequestParam(required = false) Integer size) {
+        CursorPageDto<ApplicationDto> applications = this.vacancyService.findApplications(vacancyId, cursor, size);
+        return new Result(true, StatusCode.SUCCESS, "Find Applications Success", applications);
     }
 
     @PostMapping(value="/add",
@@ -51,11 +84,20 @@ public class VacancyController {
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public Result update(@PathVariable Long id, @Valid @RequestBody VacancyDto dto) {
-        VacancyDto updated = vacancyService.update(id, dto); // DTO in/uit
+    public Result update(@PathVariable Long id, @Valid @RequestBody VacancyDto dto,
+                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VacancyDto updated = vacancyService.update(id, dto, ifMatch); // DTO in/uit; verouderde If-Match -> 412
         return new Result(true, StatusCode.SUCCESS, "Update Success", updated);
     }
 
+    // JSON Merge Patch: alleen de meegestuurde velden, bijv. {"title": "..."}
+    @PatchMapping(value = "/{id}", consumes = MergePatchReader.MEDIA_TYPE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Result patch(@PathVariable Long id, @RequestBody JsonNode patch,
+                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VacancyDto dto = mergePatchReader.read(patch, VacancyDto.class);
+        return new Result(true, StatusCode.SUCCESS, "Update Success", vacancyService.patch(id, dto, ifMatch));
+    }
+
 
  /*   @PutMapping("/{vacancyId}")
     public Result updateVacancy(@PathVariable Long vacancyId, @RequestBody VacancyDto vacancyDto){
@@ -67,7 +109,7 @@ public class VacancyController {
 
     @DeleteMapping("/{vacancyId}")
     public Result deleteVacancy(@PathVariable Long vacancyId){
-        this.vacancyService.delete(vacancyId);
-        return new Result(true, StatusCode.SUCCESS, "Delete Success");
+        // data: aantal mee verwijderde applications
+        return new Result(true, StatusCode.SUCCESS, "Delete Success", this.vacancyService.delete(vacancyId));
     }
 }
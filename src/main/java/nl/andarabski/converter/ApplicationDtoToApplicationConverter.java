@@ -6,7 +6,6 @@ import nl.andarabski.model.Application;
 import nl.andarabski.model.ApplicationStatus;
 import nl.andarabski.repository.UserRepository;
 import nl.andarabski.repository.VacancyRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
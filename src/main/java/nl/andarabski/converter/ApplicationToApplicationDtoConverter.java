@@ -1,9 +1,8 @@
 package nl.andarabski.converter;
 
 import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.mapper.ApplicationMapper;
 import nl.andarabski.model.Application;
-import nl.andarabski.model.ApplicationStatus;
-import org.modelmapper.ModelMapper;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
 
@@ -11,19 +10,16 @@ import org.springframework.stereotype.Component;
 @Component
 public class ApplicationToApplicationDtoConverter implements Converter<Application, ApplicationDto> {
 
-    @Override
-    public ApplicationDto convert(Application app) {
-        ApplicationDto dto = new ApplicationDto();
+    private final ApplicationMapper applicationMapper;
 
-        dto.setId(app.getId());
-        dto.setUserId(app.getUser() != null ? app.getUser().getId() : null);
-        dto.setVacancyId(app.getVacancy() != null ? app.getVacancy().getId() : null);
-        dto.setMotivation(app.getMotivation());
-        //dto.setStatus(String.valueOf(ApplicationStatus.PENDING));
-        dto.setStatus(app.getStatus() == null ? null : app.getStatus().name()); // <-- belangrijk
-        dto.setAppliedAt(app.getAppliedAt());
+    public ApplicationToApplicationDtoConverter(ApplicationMapper applicationMapper) {
+        this.applicationMapper = applicationMapper;
+    }
 
-        return dto;
+    @Override
+    public ApplicationDto convert(Application app) {
+        // user.id / vacancy.id en status.name() zitten in de gegenereerde mapping
+        return applicationMapper.toDto(app);
     }
 }
 /*@Component
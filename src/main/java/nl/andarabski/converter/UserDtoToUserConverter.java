@@ -2,10 +2,9 @@ package nl.andarabski.converter;
 
 import nl.andarabski.dto.ApplicationDto;
 import nl.andarabski.dto.UserDto;
+import nl.andarabski.mapper.UserMapper;
 import nl.andarabski.model.Application;
 import nl.andarabski.model.User;
-import org.modelmapper.ModelMapper;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
 
@@ -14,11 +13,11 @@ import java.util.List;
 @Component
 public class UserDtoToUserConverter implements Converter<UserDto, User> {
 
-    private final ModelMapper modelMapper;
+    private final UserMapper userMapper;
     private final ApplicationDtoToApplicationConverter appConverter;
 
-    public UserDtoToUserConverter(ModelMapper modelMapper, ApplicationDtoToApplicationConverter appConverter) {
-        this.modelMapper = modelMapper;
+    public UserDtoToUserConverter(UserMapper userMapper, ApplicationDtoToApplicationConverter appConverter) {
+        this.userMapper = userMapper;
         this.appConverter = appConverter;
     }
 
@@ -26,8 +25,8 @@ public class UserDtoToUserConverter implements Converter<UserDto, User> {
     public User convert(UserDto source) {
         if (source == null) return null;
 
-        // Basisvelden mappen
-        User user = modelMapper.map(source, User.class);
+        // Basisvelden mappen (MapStruct; applications worden daar genegeerd)
+        User user = userMapper.toEntity(source);
 
         // Applications expliciet mappen (null-safe)
         List<ApplicationDto> appDtos = source.getApplications();
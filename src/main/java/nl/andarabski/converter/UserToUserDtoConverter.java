@@ -2,10 +2,8 @@ package nl.andarabski.converter;
 
 import nl.andarabski.dto.ApplicationDto;
 import nl.andarabski.dto.UserDto;
-import nl.andarabski.model.Application;
+import nl.andarabski.mapper.UserMapper;
 import nl.andarabski.model.User;
-import org.modelmapper.ModelMapper;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
 
@@ -15,33 +13,27 @@ import java.util.List;
 @Component
 public class UserToUserDtoConverter implements Converter<User, UserDto> {
 
-    private final ModelMapper modelMapper;
-    private final ApplicationToApplicationDtoConverter appConverter;
+    private final UserMapper userMapper;
 
-    public UserToUserDtoConverter(ModelMapper modelMapper,
-                                  @Lazy ApplicationToApplicationDtoConverter appConverter) {
-        this.modelMapper = modelMapper;
-        this.appConverter = appConverter;
+    public UserToUserDtoConverter(UserMapper userMapper) {
+        this.userMapper = userMapper;
     }
 
     @Override
     public UserDto convert(User source) {
         if (source == null) return null;
 
-        // Basisvelden mappen
-        UserDto dto = modelMapper.map(source, UserDto.class);
+        // Basisvelden + applications via de gegenereerde MapStruct-code (geen reflectie)
+        UserDto dto = userMapper.toDto(source);
 
-        // Applications expliciet mappen (null-safe + deterministische volgorde)
-        List<Application> apps = source.getApplications();
+        // null-safe + deterministische volgorde
+        List<ApplicationDto> apps = dto.getApplications();
         if (apps != null && !apps.isEmpty()) {
-            List<ApplicationDto> appDtos = apps.stream()
+            dto.setApplications(apps.stream()
                     .sorted(Comparator
-                            .comparing(Application::getAppliedAt, Comparator.nullsLast(java.util.Date::compareTo))
-                            .thenComparing(Application::getId, Comparator.nullsLast(Long::compareTo)))
-                    .map(appConverter::convert)
-                    .toList();
-
-            dto.setApplications(appDtos);
+                            .comparing(ApplicationDto::getAppliedAt, Comparator.nullsLast(java.util.Date::compareTo))
+                            .thenComparing(ApplicationDto::getId, Comparator.nullsLast(Long::compareTo)))
+                    .toList());
         } else {
             dto.setApplications(List.of());
         }
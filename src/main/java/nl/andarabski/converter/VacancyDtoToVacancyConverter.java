@@ -2,10 +2,10 @@ package nl.andarabski.converter;
 
 import nl.andarabski.dto.ApplicationDto;
 import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.mapper.VacancyMapper;
 import nl.andarabski.model.Application;
 import nl.andarabski.model.Vacancy;
 import nl.andarabski.repository.ApplicationRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.convert.converter.Converter;
@@ -17,11 +17,11 @@ import java.util.stream.Collectors;
 @Component
 public class VacancyDtoToVacancyConverter implements Converter<VacancyDto, Vacancy> {
 
-    private final ModelMapper modelMapper;
+    private final VacancyMapper vacancyMapper;
     private final ApplicationDtoToApplicationConverter appConverter;
 
-    public VacancyDtoToVacancyConverter(ModelMapper modelMapper, @Lazy ApplicationDtoToApplicationConverter appConverter) {
-        this.modelMapper = modelMapper;
+    public VacancyDtoToVacancyConverter(VacancyMapper vacancyMapper, @Lazy ApplicationDtoToApplicationConverter appConverter) {
+        this.vacancyMapper = vacancyMapper;
         this.appConverter = appConverter;
     }
 
@@ -30,8 +30,8 @@ public class VacancyDtoToVacancyConverter implements Converter<VacancyDto, Vacan
     public Vacancy convert(VacancyDto source) {
         if (source == null) return null;
 
-        // Baisvelden mappem
-        Vacancy vacancy = modelMapper.map(source, Vacancy.class);
+        // Basisvelden mappen (MapStruct; applications worden daar genegeerd)
+        Vacancy vacancy = vacancyMapper.toEntity(source);
 
         // Applications expliciet mappen (null-safe)
         List<ApplicationDto> appsDto = source.getApplications();
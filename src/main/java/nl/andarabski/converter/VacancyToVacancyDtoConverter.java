@@ -1,52 +1,33 @@
 package nl.andarabski.converter;
 
-import nl.andarabski.dto.ApplicationDto;
 import nl.andarabski.dto.VacancyDto;
-import nl.andarabski.model.Application;
+import nl.andarabski.mapper.VacancyMapper;
 import nl.andarabski.model.Vacancy;
 
-import nl.andarabski.repository.VacancyRepository;
-import org.modelmapper.ModelMapper;
-
-import org.springframework.context.annotation.Lazy;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
 
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 
 @Component
 public class VacancyToVacancyDtoConverter implements Converter<Vacancy, VacancyDto> {
 
-    private final ModelMapper modelMapper;
-    private final ApplicationToApplicationDtoConverter applicationConverter;
+    private final VacancyMapper vacancyMapper;
 
-    public VacancyToVacancyDtoConverter(ModelMapper modelMapper,
-                                        ApplicationToApplicationDtoConverter applicationConverter) {
-        this.modelMapper = modelMapper;
-        this.applicationConverter = applicationConverter;
+    public VacancyToVacancyDtoConverter(VacancyMapper vacancyMapper) {
+        this.vacancyMapper = vacancyMapper;
     }
 
     @Override
     public VacancyDto convert(Vacancy source) {
         if (source == null) return null;
 
-        // Basisvelden (id, title, description, etc.)
-        VacancyDto dto = modelMapper.map(source, VacancyDto.class);
-
-        // Applications mappen met de JUISTE converter
-        List<ApplicationDto> apps = (source.getApplications() == null)
-                ? Collections.emptyList()
-                : source.getApplications()
-                .stream()
-                .map(applicationConverter::convert)   // <-- geen Vacancy-converter!
-                .collect(Collectors.toList());
-
-        dto.setApplications(apps);
+        // Basisvelden + applications via de gegenereerde MapStruct-code (geen reflectie)
+        VacancyDto dto = vacancyMapper.toDto(source);
+        if (dto.getApplications() == null) {
+            dto.setApplications(Collections.emptyList());
+        }
         return dto;
     }
 }
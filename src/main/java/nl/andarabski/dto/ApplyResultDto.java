@@ -0,0 +1,88 @@
+package nl.andarabski.dto;
+
+/**
+ * Uitkomst van één item uit een batch-apply. {@code index} verwijst naar de positie in de request,
+ * {@code code} volgt {@link nl.andarabski.system.StatusCode} (CREATED, CONFLICT, NOT_FOUND, INVALID_ARGUMENT).
+ */
+public class ApplyResultDto {
+
+    private int index;
+    private Long userId;
+    private Long vacancyId;
+    private Long applicationId;
+    private int code;
+    private String message;
+
+    // Constructors
+    public ApplyResultDto() {
+    }
+
+    public ApplyResultDto(int index, Long userId, Long vacancyId, int code, String message) {
+        this.index = index;
+        this.userId = userId;
+        this.vacancyId = vacancyId;
+        this.code = code;
+        this.message = message;
+    }
+
+    // Getters & Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getVacancyId() {
+        return vacancyId;
+    }
+
+    public void setVacancyId(Long vacancyId) {
+        this.vacancyId = vacancyId;
+    }
+
+    public Long getApplicationId() {
+        return applicationId;
+    }
+
+    public void setApplicationId(Long applicationId) {
+        this.applicationId = applicationId;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public void setCode(int code) {
+        this.code = code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "ApplyResultDto{" +
+                "index=" + index +
+                ", userId=" + userId +
+                ", vacancyId=" + vacancyId +
+                ", applicationId=" + applicationId +
+                ", code=" + code +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,56 @@
+package nl.andarabski.dto;
+
+import java.util.List;
+
+/**
+ * Eén pagina uit een keyset-gepagineerde lijst. {@code nextCursor} is een opaque token dat de client
+ * ongewijzigd terugstuurt om de volgende pagina op te halen; {@code null} betekent: dit was de laatste pagina.
+ */
+public class CursorPageDto<T> {
+
+    List<T> items;
+    String nextCursor;
+    boolean hasMore;
+    int size;
+
+    public CursorPageDto() {}
+
+    public CursorPageDto(List<T> items, String nextCursor, int size) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+        this.size = size;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
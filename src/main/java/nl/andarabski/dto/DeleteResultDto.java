@@ -0,0 +1,45 @@
+package nl.andarabski.dto;
+
+/**
+ * Uitkomst van het verwijderen van een user of vacancy: {@code id} van de parent en het aantal applications
+ * dat mee verwijderd is.
+ */
+public class DeleteResultDto {
+
+    private Long id;
+    private int deletedApplications;
+
+    // Constructors
+    public DeleteResultDto() {
+    }
+
+    public DeleteResultDto(Long id, int deletedApplications) {
+        this.id = id;
+        this.deletedApplications = deletedApplications;
+    }
+
+    // Getters & Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public int getDeletedApplications() {
+        return deletedApplications;
+    }
+
+    public void setDeletedApplications(int deletedApplications) {
+        this.deletedApplications = deletedApplications;
+    }
+
+    @Override
+    public String toString() {
+        return "DeleteResultDto{" +
+                "id=" + id +
+                ", deletedApplications=" + deletedApplications +
+                '}';
+    }
+}
@@ -22,6 +22,9 @@ public class UserDto {
     String role;
     boolean enabled;
     List<ApplicationDto> applications;
+    // primitives zijn nooit null: zo ziet de IGNORE-null mapper-update (merge patch) of ze gezet zijn
+    boolean ageSet;
+    boolean enabledSet;
 
     public UserDto() {}
 
@@ -71,6 +74,12 @@ public class UserDto {
 
     public void setAge(int age) {
         this.age = age;
+        this.ageSet = true;
+    }
+
+    // presence check voor MapStruct: alleen een gezette leeftijd overschrijft die van de entity
+    public boolean hasAge() {
+        return ageSet;
     }
 
     public String getPhoto() {
@@ -103,6 +112,11 @@ public class UserDto {
 
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
+        this.enabledSet = true;
+    }
+
+    public boolean hasEnabled() {
+        return enabledSet;
     }
 
     public List<ApplicationDto> getApplications() {
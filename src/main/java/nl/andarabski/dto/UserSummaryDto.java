@@ -0,0 +1,111 @@
+package nl.andarabski.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * User in de lijst: zonder wachtwoord, bestanden en applications, wel {@code applicationCount}. De applications
+ * gepagineerd via GET /users/{id}/applications.
+ */
+public class UserSummaryDto {
+
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private int age;
+    private String role;
+    private boolean enabled;
+    private long applicationCount;
+    // ?expand=applications, zie VacancySummaryDto
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ApplicationDto> applications;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String applicationsNextCursor;
+
+    // Constructors
+    public UserSummaryDto() {
+    }
+
+    // Getters & Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getApplicationCount() {
+        return applicationCount;
+    }
+
+    public void setApplicationCount(long applicationCount) {
+        this.applicationCount = applicationCount;
+    }
+
+    public List<ApplicationDto> getApplications() {
+        return applications;
+    }
+
+    public void setApplications(List<ApplicationDto> applications) {
+        this.applications = applications;
+    }
+
+    public String getApplicationsNextCursor() {
+        return applicationsNextCursor;
+    }
+
+    public void setApplicationsNextCursor(String applicationsNextCursor) {
+        this.applicationsNextCursor = applicationsNextCursor;
+    }
+}
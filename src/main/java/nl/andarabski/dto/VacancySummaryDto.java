@@ -0,0 +1,94 @@
+package nl.andarabski.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Vacancy in de lijst: zonder description en zonder applications, wel {@code applicationCount}. Details via
+ * GET /vacancies/{id}, alle applications gepagineerd via GET /vacancies/{id}/applications.
+ */
+public class VacancySummaryDto {
+
+    private Long id;
+    private String title;
+    private String companyName;
+    private String location;
+    private Date postedAt;
+    private long applicationCount;
+    // alleen bij ?expand=applications: de eerste applications en de cursor voor de rest (null = compleet)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ApplicationDto> applications;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String applicationsNextCursor;
+
+    // Constructors
+    public VacancySummaryDto() {
+    }
+
+    // Getters & Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getCompanyName() {
+        return companyName;
+    }
+
+    public void setCompanyName(String companyName) {
+        this.companyName = companyName;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public Date getPostedAt() {
+        return postedAt;
+    }
+
+    public void setPostedAt(Date postedAt) {
+        this.postedAt = postedAt;
+    }
+
+    public long getApplicationCount() {
+        return applicationCount;
+    }
+
+    public void setApplicationCount(long applicationCount) {
+        this.applicationCount = applicationCount;
+    }
+
+    public List<ApplicationDto> getApplications() {
+        return applications;
+    }
+
+    public void setApplications(List<ApplicationDto> applications) {
+        this.applications = applications;
+    }
+
+    public String getApplicationsNextCursor() {
+        return applicationsNextCursor;
+    }
+
+    public void setApplicationsNextCursor(String applicationsNextCursor) {
+        this.applicationsNextCursor = applicationsNextCursor;
+    }
+}
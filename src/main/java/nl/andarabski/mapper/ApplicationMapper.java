@@ -3,6 +3,7 @@ package nl.andarabski.mapper;
 import nl.andarabski.dto.ApplicationDto;
 import nl.andarabski.model.Application;
 import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.repository.projection.ApplicationView;
 import org.mapstruct.*;
 import static org.mapstruct.ReportingPolicy.ERROR;
 
@@ -21,10 +22,14 @@ public interface ApplicationMapper {
             "java(application.getStatus() != null ? application.getStatus().name() : null)")
     ApplicationDto toDto(Application application);
 
+    // projectie -> dto (read-paden zonder entity-hydratatie)
+    ApplicationDto toDto(ApplicationView view);
+
     // dto -> entity (relaties in service zetten)
     @Mapping(target = "user",    ignore = true)
     @Mapping(target = "vacancy", ignore = true)
     @Mapping(source = "status", target = "status")
+    @Mapping(target = "version", ignore = true)
     Application toEntity(ApplicationDto dto);
 
     // patch: alleen niet-null velden kopiëren
@@ -32,6 +37,8 @@ public interface ApplicationMapper {
     @Mapping(target = "user",    ignore = true)
     @Mapping(target = "vacancy", ignore = true)
     @Mapping(target = "status", ignore = true) // status apart doen, zie @AfterMapping
+    @Mapping(target = "id", ignore = true) // de id komt uit het pad, niet uit de patch
+    @Mapping(target = "version", ignore = true) // alleen Hibernate beheert de versie
     void update(@MappingTarget Application target, ApplicationDto patch);
 
     @AfterMapping
@@ -1,9 +1,16 @@
 package nl.andarabski.mapper;
 
+import nl.andarabski.dto.ApplicationDto;
 import nl.andarabski.dto.UserDto;
+import nl.andarabski.dto.UserSummaryDto;
 import nl.andarabski.model.User;
+import nl.andarabski.repository.projection.ApplicationView;
+import nl.andarabski.repository.projection.UserSummaryView;
+import nl.andarabski.repository.projection.UserView;
 import org.mapstruct.*;
 
+import java.util.List;
+
 
 @Mapper(
         componentModel = "spring",
@@ -14,12 +21,30 @@ import org.mapstruct.*;
 public interface UserMapper {
     UserDto toDto(User user);
 
+    // projectie + apart geladen applications -> dto (read-paden zonder entity-hydratatie)
+    UserDto toDto(UserView user, List<ApplicationView> applications);
+
+    @Mapping(target = "applications", ignore = true)
+    @Mapping(target = "applicationsNextCursor", ignore = true)
+    UserSummaryDto toSummary(UserSummaryView user);
+
+    List<ApplicationDto> toApplicationDtos(List<ApplicationView> applications);
+
     @Mapping(target = "applications", ignore = true)
+    @Mapping(target = "photoThumbnail64", ignore = true)
+    @Mapping(target = "photoThumbnail256", ignore = true)
+    @Mapping(target = "version", ignore = true)
     User toEntity(UserDto dto);
 
     // patch: kopieer alleen niet-null velden uit dta naar entity
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     @Mapping(target = "applications", ignore = true)
+    @Mapping(target = "photoThumbnail64", ignore = true)
+    @Mapping(target = "photoThumbnail256", ignore = true)
+    @Mapping(target = "id", ignore = true) // de id komt uit het pad, niet uit de patch
+    @Mapping(target = "photo", ignore = true) // bestanden via de upload, die ook de oude blob vrijgeeft
+    @Mapping(target = "cv", ignore = true)
+    @Mapping(target = "version", ignore = true)
     void update(@MappingTarget User target, UserDto patch);
 
 }
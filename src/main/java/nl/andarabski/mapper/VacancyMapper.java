@@ -2,9 +2,15 @@ package nl.andarabski.mapper;
 
 import nl.andarabski.dto.ApplicationDto;
 import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.dto.VacancySummaryDto;
 import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.projection.ApplicationView;
+import nl.andarabski.repository.projection.VacancySummaryView;
+import nl.andarabski.repository.projection.VacancyView;
 import org.mapstruct.*;
 
+import java.util.List;
+
 import static java.util.Comparator.naturalOrder;
 
 @Mapper(
@@ -16,11 +22,26 @@ import static java.util.Comparator.naturalOrder;
 public interface VacancyMapper {
     VacancyDto toDto(Vacancy vacancy);
 
+    // projectie + apart geladen applications -> dto (read-paden zonder entity-hydratatie)
+    VacancyDto toDto(VacancyView vacancy, List<ApplicationView> applications);
+
+    // lijst: applications vult de service alleen bij ?expand=applications
+    @Mapping(target = "applications", ignore = true)
+    @Mapping(target = "applicationsNextCursor", ignore = true)
+    VacancySummaryDto toSummary(VacancySummaryView vacancy);
+
+    // ingebedde applications en de pagina's van /vacancies/{id}/applications
+    List<ApplicationDto> toApplicationDtos(List<ApplicationView> applications);
+
     @Mapping(target = "applications", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Vacancy toEntity(VacancyDto dto);
 
     // patch: kopieer alleen niet-null velden uit dto naar entity
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "id", ignore = true) // de id komt uit het pad, niet uit de patch
+    @Mapping(target = "version", ignore = true) // alleen Hibernate beheert de versie
+    @Mapping(target = "applications", ignore = true) // diff in VacancyService, niet vervangen
     void update(@MappingTarget Vacancy target, VacancyDto patch);
 
 }
\ No newline at end of file
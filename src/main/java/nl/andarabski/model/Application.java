@@ -2,25 +2,46 @@ package nl.andarabski.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serializable;
 import java.util.Date;
 import java.util.Objects;
 
 @Entity
+// een status-patch schrijft alleen status en version
+@DynamicUpdate
 @Table(name = "application",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "vacancy_id"}))  // geen conflict, maar maakt het consistent
+        uniqueConstraints = @UniqueConstraint(name = Application.UK_USER_VACANCY, columnNames = {"user_id", "vacancy_id"}),  // één application per user per vacancy; apply leunt hierop
+        // het schema zelf komt uit de Flyway-migraties; de namen hier moeten daarmee overeenkomen
+        indexes = {
+                @Index(name = "idx_application_vacancy_id", columnList = "vacancy_id"),
+                // ETag van een vacancy of user: alleen uit de index
+                @Index(name = "idx_application_vacancy_version", columnList = "vacancy_id, id, version"),
+                @Index(name = "idx_application_user_version", columnList = "user_id, id, version"),
+                @Index(name = "idx_application_status_applied_at", columnList = "status, applied_at")
+        })
 public class Application implements Serializable {
 
+    public static final String UK_USER_VACANCY = "uk_application_user_vacancy";
+    // apply zet alleen de FK-waarden; een onbekende user/vacancy komt als schending van deze constraints terug
+    public static final String FK_USER = "fk_application_user";
+    public static final String FK_VACANCY = "fk_application_vacancy";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    // eigen sequence met allocationSize = jdbc.batch_size: één id-fetch per 50 inserts (pooled-lo optimizer)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "application_id_gen")
+    @SequenceGenerator(name = "application_id_gen", sequenceName = "application_seq", allocationSize = 50)
     private Long id;
+    // optimistic locking + ETag van GET /applications/{id}
+    @Version
+    private long version;
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id", nullable = false)
+    @JoinColumn(name = "user_id", nullable = false, foreignKey = @ForeignKey(name = Application.FK_USER))
     @JsonBackReference(value = "user-applications")
     private User user;
     @ManyToOne(fetch = FetchType.LAZY)
-    //@JoinColumn(name = "vacancy_id")
+    @JoinColumn(name = "vacancy_id", foreignKey = @ForeignKey(name = Application.FK_VACANCY))
     @JsonBackReference(value = "vacancy-applications")
     private Vacancy vacancy;
     private String motivation;
@@ -48,6 +69,14 @@ public class Application implements Serializable {
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public User getUser() {
         return user;
     }
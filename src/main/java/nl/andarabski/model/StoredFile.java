@@ -0,0 +1,108 @@
+package nl.andarabski.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Metadata van een geüploade blob. De sleutel is de SHA-256 van de inhoud, zodat dezelfde foto of cv
+ * maar één keer op schijf staat; {@code refCount} telt hoeveel users ernaar verwijzen.
+ */
+@Entity
+@Table(name = "stored_file")
+public class StoredFile implements Serializable {
+
+    @Id
+    @Column(length = 64)
+    private String digest;
+    private long size;
+    private String contentType;
+    private String originalFilename;
+    private int refCount;
+    private Date createdAt;
+
+    public StoredFile() {}
+
+    public StoredFile(String digest, long size, String contentType, String originalFilename) {
+        this.digest = digest;
+        this.size = size;
+        this.contentType = contentType;
+        this.originalFilename = originalFilename;
+        this.refCount = 1;
+        this.createdAt = new Date();
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "StoredFile{" +
+                "digest='" + digest + '\'' +
+                ", size=" + size +
+                ", contentType='" + contentType + '\'' +
+                ", originalFilename='" + originalFilename + '\'' +
+                ", refCount=" + refCount +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        StoredFile that = (StoredFile) o;
+        return Objects.equals(digest, that.digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(digest);
+    }
+}
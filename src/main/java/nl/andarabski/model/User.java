@@ -3,17 +3,27 @@ package nl.andarabski.model;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotEmpty;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "app_user")  // voorkomt conflict met reserved keyword "user"
+// UPDATE met alleen de gewijzigde kolommen (merge patch), niet de hele rij
+@DynamicUpdate
+@Table(name = "app_user",  // voorkomt conflict met reserved keyword "user"
+        indexes = @Index(name = "idx_app_user_email", columnList = "email"))
 public class User implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    // eigen sequence met allocationSize = jdbc.batch_size: één id-fetch per 50 inserts (pooled-lo optimizer)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_user_id_gen")
+    @SequenceGenerator(name = "app_user_id_gen", sequenceName = "app_user_seq", allocationSize = 50)
     private Long id;
+    // optimistic locking; samen met de versies van de applications de ETag van de user
+    @Version
+    private long version;
     @NotEmpty(message = "firstname is required.")
     private String firstName;
     @NotEmpty(message = "lastname is required.")
@@ -25,11 +35,15 @@ public class User implements Serializable {
     private int age;
     private String photo;
     private String cv;
+    // storage-sleutels van de thumbnails; asynchroon gezet door ThumbnailService na een photo-upload
+    private String photoThumbnail64;
+    private String photoThumbnail256;
     @NotEmpty(message = "role is required.")
     private String role;
     private boolean enabled;
 
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @BatchSize(size = 100) // lijst van users: collecties per 100 parents in één IN-query i.p.v. 1+N
     @JsonManagedReference(value = "user-applications")
     //@JsonManagedReference
     private List<Application> applications;
@@ -60,6 +74,14 @@ public class User implements Serializable {
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getFirstName() {
         return firstName;
     }
@@ -116,6 +138,22 @@ public class User implements Serializable {
         this.cv = cv;
     }
 
+    public String getPhotoThumbnail64() {
+        return photoThumbnail64;
+    }
+
+    public void setPhotoThumbnail64(String photoThumbnail64) {
+        this.photoThumbnail64 = photoThumbnail64;
+    }
+
+    public String getPhotoThumbnail256() {
+        return photoThumbnail256;
+    }
+
+    public void setPhotoThumbnail256(String photoThumbnail256) {
+        this.photoThumbnail256 = photoThumbnail256;
+    }
+
     public String getRole() {
         return role;
     }
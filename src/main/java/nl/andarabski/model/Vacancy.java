@@ -2,6 +2,10 @@ package nl.andarabski.model;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.io.Serializable;
 import java.util.Date;
@@ -9,18 +13,29 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
+// alleen gewijzigde kolommen: een nieuwe titel stuurt de (lange) description niet opnieuw mee
+@DynamicUpdate
 @Table(name = "vacancy")  // geen conflict, maar goed om expliciet te maken
+// veel vaker gelezen dan geschreven: in de second-level cache; READ_WRITE houdt de cache consistent bij updates
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Vacancy implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    // eigen sequence met allocationSize = jdbc.batch_size: één id-fetch per 50 inserts (pooled-lo optimizer)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vacancy_id_gen")
+    @SequenceGenerator(name = "vacancy_id_gen", sequenceName = "vacancy_seq", allocationSize = 50)
     private Long id;
+    // optimistic locking: een write met een verouderde versie faalt i.p.v. een andere write te overschrijven;
+    // ook de basis van de ETag (ETagUtil)
+    @Version
+    private long version;
     private String title;
     private String companyName;
     private String description;
     private String location;
     private Date postedAt;
     @OneToMany(mappedBy = "vacancy", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 100) // lijst van vacancies: collecties per 100 parents in één IN-query i.p.v. 1+N
     @JsonManagedReference(value = "vacancy-applications")
     private List<Application> applications;
 
@@ -42,6 +57,14 @@ public class Vacancy implements Serializable {
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
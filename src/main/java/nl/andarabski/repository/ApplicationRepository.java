@@ -1,15 +1,24 @@
 package nl.andarabski.repository;
 
+import jakarta.persistence.QueryHint;
 import nl.andarabski.model.Application;
-import nl.andarabski.model.User;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.repository.projection.ApplicationKey;
+import nl.andarabski.repository.projection.ApplicationView;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 @Repository
 public interface ApplicationRepository extends JpaRepository<Application, Long> {
 
@@ -19,4 +28,83 @@ public interface ApplicationRepository extends JpaRepository<Application, Long>
     // (optioneel) ook handig:
     Optional<Application> findByUserIdAndVacancyId(Long userId, Long vacancyId);
 
+    // batch-apply: alle bestaande (user, vacancy)-paren binnen de opgegeven ids in één query
+    @Query("select new nl.andarabski.repository.projection.ApplicationKey(a.user.id, a.vacancy.id) "
+            + "from Application a where a.user.id in :userIds and a.vacancy.id in :vacancyIds")
+    List<ApplicationKey> findKeysByUserIdInAndVacancyIdIn(@Param("userIds") Collection<Long> userIds,
+                                                          @Param("vacancyIds") Collection<Long> vacancyIds);
+
+    // cache-invalidatie bij delete: alleen de FK-kolom, geen entity
+    @Query("select a.vacancy.id from Application a where a.id = :id")
+    Optional<Long> findVacancyIdById(@Param("id") Long id);
+
+    // delete van een user: de vacancies waarvan de gecachte dto deze applications toont
+    @Query("select distinct a.vacancy.id from Application a where a.user.id = :userId and a.vacancy is not null")
+    List<Long> findVacancyIdsByUserId(@Param("userId") Long userId);
+
+    // delete van een user/vacancy: één DELETE via de FK-index i.p.v. de collectie laden en per rij verwijderen.
+    // flushAutomatically: openstaande wijzigingen eerst naar de database, anders overleven ze de bulk-delete
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Application a where a.user.id = :userId")
+    int bulkDeleteByUserId(@Param("userId") Long userId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from Application a where a.vacancy.id = :vacancyId")
+    int bulkDeleteByVacancyId(@Param("vacancyId") Long vacancyId);
+
+    // ETag van GET /applications/{id}: alleen de versiekolom
+    @Query("select a.version from Application a where a.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // keyset-paginatie: range-scan op de primary key i.p.v. de hele tabel laden
+    List<Application> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    // --- projecties voor de read-paden: geen managed entities, geen dirty-checking snapshots ---
+
+    String VIEW = "select new nl.andarabski.repository.projection.ApplicationView("
+            + "a.id, a.user.id, a.vacancy.id, a.motivation, a.status, a.appliedAt) from Application a ";
+
+    @Query(VIEW + "where a.id = :id")
+    Optional<ApplicationView> findViewById(@Param("id") Long id);
+
+    @Query(VIEW + "where a.id > :afterId order by a.id")
+    List<ApplicationView> findViewsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    // nieuwste applications met een status (bijv. de PENDING-inbox): idx_application_status_applied_at
+    @Query(VIEW + "where a.status = :status order by a.appliedAt desc, a.id desc")
+    List<ApplicationView> findViewsByStatus(@Param("status") ApplicationStatus status, Limit limit);
+
+    @Query(VIEW + "where a.user.id in :userIds order by a.id")
+    List<ApplicationView> findViewsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    // sub-resources /users/{id}/applications en /vacancies/{id}/applications: keyset binnen één parent
+    @Query(VIEW + "where a.user.id = :userId and a.id > :afterId order by a.id")
+    List<ApplicationView> findViewsByUserIdAfter(@Param("userId") Long userId, @Param("afterId") Long afterId, Limit limit);
+
+    @Query(VIEW + "where a.vacancy.id = :vacancyId and a.id > :afterId order by a.id")
+    List<ApplicationView> findViewsByVacancyIdAfter(@Param("vacancyId") Long vacancyId, @Param("afterId") Long afterId,
+                                                    Limit limit);
+
+    // ?expand=applications op een lijst: per parent alleen de eerste :perParent rijen, voor de hele pagina in
+    // één query (row_number per FK), zodat de payload niet meegroeit met het aantal applications
+    String FIRST_PER_PARENT = "select new nl.andarabski.repository.projection.ApplicationView("
+            + "t.id, t.userId, t.vacancyId, t.motivation, t.status, t.appliedAt) from ("
+            + "select a.id as id, a.user.id as userId, a.vacancy.id as vacancyId, a.motivation as motivation, "
+            + "a.status as status, a.appliedAt as appliedAt, ";
+
+    @Query(FIRST_PER_PARENT + "row_number() over (partition by a.user.id order by a.id) as rn "
+            + "from Application a where a.user.id in :userIds) t where t.rn <= :perParent order by t.id")
+    List<ApplicationView> findFirstViewsByUserIdIn(@Param("userIds") Collection<Long> userIds,
+                                                   @Param("perParent") int perParent);
+
+    @Query(FIRST_PER_PARENT + "row_number() over (partition by a.vacancy.id order by a.id) as rn "
+            + "from Application a where a.vacancy.id in :vacancyIds) t where t.rn <= :perParent order by t.id")
+    List<ApplicationView> findFirstViewsByVacancyIdIn(@Param("vacancyIds") Collection<Long> vacancyIds,
+                                                      @Param("perParent") int perParent);
+
+    // hoort bij de vacancy-read-paden (query cache); elke write op application invalideert hem
+    @Query(VIEW + "where a.vacancy.id in :vacancyIds order by a.id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<ApplicationView> findViewsByVacancyIdIn(@Param("vacancyIds") Collection<Long> vacancyIds);
+
 }
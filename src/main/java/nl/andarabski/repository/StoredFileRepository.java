@@ -0,0 +1,41 @@
+package nl.andarabski.repository;
+
+import nl.andarabski.model.StoredFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+
+    // refCount atomair in de database bijwerken (geen read-modify-write race); 0 = onbekende digest
+    @Modifying
+    @Query("update StoredFile f set f.refCount = f.refCount + 1 where f.digest = :digest")
+    int incrementRefCount(@Param("digest") String digest);
+
+    // eerste upload van een digest: de rij zonder referenties; de aanroeper telt daarna met incrementRefCount.
+    // Native i.p.v. save(): merge() zou een intussen gecommitte rij overschrijven en de telling resetten
+    @Modifying
+    @Query(value = "insert into stored_file (digest, size, content_type, original_filename, ref_count, created_at) "
+            + "values (:digest, :size, :contentType, :filename, 0, current_timestamp)", nativeQuery = true)
+    void insertUnreferenced(@Param("digest") String digest, @Param("size") long size,
+                            @Param("contentType") String contentType, @Param("filename") String filename);
+
+    @Modifying
+    @Query("update StoredFile f set f.refCount = f.refCount - 1 where f.digest = :digest and f.refCount > 0")
+    int decrementRefCount(@Param("digest") String digest);
+
+    // 1 = metadata verwijderd. De delete wacht op de rijlock van een lopende upload en toetst refCount daarna
+    // opnieuw, dus een net opgehoogde (nog niet gecommitte) rij blijft staan
+    @Modifying
+    @Query("delete from StoredFile f where f.digest = :digest and f.refCount <= 0")
+    int deleteIfUnreferenced(@Param("digest") String digest);
+
+    @Query("select f.digest from StoredFile f where f.refCount <= 0 and f.createdAt < :before")
+    List<String> findUnreferencedDigests(@Param("before") Date before);
+}
@@ -1,28 +1,79 @@
 package nl.andarabski.repository;
 
 import nl.andarabski.model.User;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import nl.andarabski.repository.projection.PhotoThumbnails;
+import nl.andarabski.repository.projection.UserSummaryView;
+import nl.andarabski.repository.projection.UserView;
+import nl.andarabski.repository.projection.VersionStamp;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
-//    @EntityGraph(attributePaths = {"applications", "applications.vacancy"})
-//    Optional<User> findById(Long id);
-//
-//    // Voor findAll (alleen oké bij kleine datasets; liever Page<>):
-//    @EntityGraph(attributePaths = {"applications", "applications.vacancy"})
-//    List<User> findAll();
-//
-//    // Beter: pagineren
-//    @EntityGraph(attributePaths = {"applications", "applications.vacancy"})
-//    Page<User> findAll(Pageable pageable);
-}
 
+    // batch-apply: welke van de opgegeven ids bestaan, zonder de entities te laden
+    @Query("select u.id from User u where u.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // via idx_app_user_email; basis voor een regel "e-mailadres al in gebruik"
+    boolean existsByEmail(String email);
+
+    // keyset-paginatie: range-scan op de primary key i.p.v. de hele tabel laden
+    List<User> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    // detail: user + applications in één query (vacancy.id komt uit de FK-kolom, geen join nodig)
+    @EntityGraph(attributePaths = {"applications"})
+    Optional<User> findWithApplicationsById(Long id);
+
+    // Voor findAll (alleen oké bij kleine datasets; liever findByIdGreaterThanOrderByIdAsc):
+    @EntityGraph(attributePaths = {"applications"})
+    List<User> findAll();
+
+    // --- projecties voor de read-paden: geen managed entities, geen dirty-checking snapshots ---
+
+    String VIEW = "select new nl.andarabski.repository.projection.UserView("
+            + "u.id, u.firstName, u.lastName, u.email, u.password, u.age, u.photo, u.cv, u.role, u.enabled) from User u ";
 
-// extra safeguard
\ No newline at end of file
+    @Query(VIEW + "where u.id = :id")
+    Optional<UserView> findViewById(@Param("id") Long id);
+
+    // lijst: samenvatting met het aantal applications uit SQL (uk_application_user_vacancy begint met user_id)
+    @Query("select new nl.andarabski.repository.projection.UserSummaryView("
+            + "u.id, u.firstName, u.lastName, u.email, u.age, u.role, u.enabled, "
+            + "(select count(a) from Application a where a.user = u)) "
+            + "from User u where u.id > :afterId order by u.id")
+    List<UserSummaryView> findSummariesAfter(@Param("afterId") Long afterId, Limit limit);
+
+    // ETag: versie van de user plus een aggregaat over idx_application_user_version, zonder applications-rijen te lezen
+    @Query("select new nl.andarabski.repository.projection.VersionStamp(u.version, count(a), "
+            + "coalesce(sum(a.id), 0L), coalesce(sum(a.version), 0L)) "
+            + "from User u left join u.applications a where u.id = :id group by u.id, u.version")
+    Optional<VersionStamp> findVersionStampById(@Param("id") Long id);
+
+    // thumbnails: alleen de sleutels, voor de download-endpoint
+    @Query("select new nl.andarabski.repository.projection.PhotoThumbnails(u.photo, u.photoThumbnail64, u.photoThumbnail256) "
+            + "from User u where u.id = :id")
+    Optional<PhotoThumbnails> findThumbnailsById(@Param("id") Long id);
+
+    // na bulkDeleteByUserId: de persistence context legen, zodat er geen verwijderde entities in achterblijven
+    @Modifying(clearAutomatically = true)
+    @Query("delete from User u where u.id = :id")
+    int bulkDeleteById(@Param("id") Long id);
+
+    // alleen zetten als de photo intussen niet vervangen is; 0 = verouderd resultaat. De version gaat mee omhoog:
+    // de thumbnail-links horen bij de dto, dus een ETag van voor de thumbnails mag geen 304 meer geven
+    @Modifying
+    @Query("update User u set u.photoThumbnail64 = :t64, u.photoThumbnail256 = :t256, u.version = u.version + 1 "
+            + "where u.id = :id and u.photo = :photo")
+    int setThumbnailsIfPhotoUnchanged(@Param("id") Long id, @Param("photo") String photo,
+                                      @Param("t64") String thumbnail64, @Param("t256") String thumbnail256);
+}
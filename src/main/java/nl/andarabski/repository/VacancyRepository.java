@@ -1,9 +1,68 @@
 package nl.andarabski.repository;
 
+import jakarta.persistence.QueryHint;
 import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.projection.VacancySummaryView;
+import nl.andarabski.repository.projection.VacancyView;
+import nl.andarabski.repository.projection.VersionStamp;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 @Repository
 public interface VacancyRepository extends JpaRepository<Vacancy, Long> {
+
+    // batch-apply: welke van de opgegeven ids bestaan, zonder de entities te laden
+    @Query("select v.id from Vacancy v where v.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // keyset-paginatie: range-scan op de primary key i.p.v. de hele tabel laden
+    List<Vacancy> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    // detail: vacancy + applications in één query (user.id komt uit de FK-kolom, geen join nodig)
+    @EntityGraph(attributePaths = {"applications"})
+    Optional<Vacancy> findWithApplicationsById(Long id);
+
+    @EntityGraph(attributePaths = {"applications"})
+    List<Vacancy> findAll();
+
+    // --- projecties voor de read-paden: geen managed entities, geen dirty-checking snapshots ---
+
+    String VIEW = "select new nl.andarabski.repository.projection.VacancyView("
+            + "v.id, v.title, v.companyName, v.description, v.location, v.postedAt) from Vacancy v ";
+
+    // query cache: het job-board leest deze telkens opnieuw; invalidatie via de timestamps van de vacancy-tabel
+    @Query(VIEW + "where v.id = :id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Optional<VacancyView> findViewById(@Param("id") Long id);
+
+    // lijst: samenvatting met het aantal applications uit SQL, de collectie zelf blijft weg
+    @Query("select new nl.andarabski.repository.projection.VacancySummaryView("
+            + "v.id, v.title, v.companyName, v.location, v.postedAt, "
+            + "(select count(a) from Application a where a.vacancy = v)) "
+            + "from Vacancy v where v.id > :afterId order by v.id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<VacancySummaryView> findSummariesAfter(@Param("afterId") Long afterId, Limit limit);
+
+    // ETag: versie van de vacancy plus een aggregaat over idx_application_vacancy_version, zonder applications-rijen te lezen
+    @Query("select new nl.andarabski.repository.projection.VersionStamp(v.version, count(a), "
+            + "coalesce(sum(a.id), 0L), coalesce(sum(a.version), 0L)) "
+            + "from Vacancy v left join v.applications a where v.id = :id group by v.id, v.version")
+    Optional<VersionStamp> findVersionStampById(@Param("id") Long id);
+
+    // na bulkDeleteByVacancyId: de persistence context legen, zodat er geen verwijderde entities in achterblijven
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Vacancy v where v.id = :id")
+    int bulkDeleteById(@Param("id") Long id);
 }
@@ -0,0 +1,7 @@
+package nl.andarabski.repository.projection;
+
+/**
+ * Natuurlijke sleutel van een application (uniek per user en vacancy), rechtstreeks uit de FK-kolommen.
+ */
+public record ApplicationKey(Long userId, Long vacancyId) {
+}
@@ -0,0 +1,13 @@
+package nl.andarabski.repository.projection;
+
+import nl.andarabski.model.ApplicationStatus;
+
+import java.util.Date;
+
+/**
+ * Read-only projectie van een application: alleen de kolommen die ApplicationDto nodig heeft.
+ * userId en vacancyId komen rechtstreeks uit de FK-kolommen, er worden geen proxies aangemaakt.
+ */
+public record ApplicationView(Long id, Long userId, Long vacancyId, String motivation,
+                              ApplicationStatus status, Date appliedAt) {
+}
@@ -0,0 +1,15 @@
+package nl.andarabski.repository.projection;
+
+/**
+ * Storage-sleutels van de photo van een user en zijn thumbnails (null zolang ze nog niet gegenereerd zijn).
+ */
+public record PhotoThumbnails(String photo, String thumbnail64, String thumbnail256) {
+
+    public String forSize(int size) {
+        return switch (size) {
+            case 64 -> thumbnail64;
+            case 256 -> thumbnail256;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,8 @@
+package nl.andarabski.repository.projection;
+
+/**
+ * Read-only projectie voor de user-lijst: geen wachtwoord of bestandssleutels, wel het aantal applications.
+ */
+public record UserSummaryView(Long id, String firstName, String lastName, String email, int age, String role,
+                              boolean enabled, long applicationCount) {
+}
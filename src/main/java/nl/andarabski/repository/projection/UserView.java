@@ -0,0 +1,8 @@
+package nl.andarabski.repository.projection;
+
+/**
+ * Read-only projectie van de scalaire user-kolommen; de applications worden apart als {@link ApplicationView} geladen.
+ */
+public record UserView(Long id, String firstName, String lastName, String email, String password,
+                       int age, String photo, String cv, String role, boolean enabled) {
+}
@@ -0,0 +1,11 @@
+package nl.andarabski.repository.projection;
+
+import java.util.Date;
+
+/**
+ * Read-only projectie voor de vacancy-lijst: de scalaire kolommen zonder description, plus het aantal
+ * applications als subquery in dezelfde select (via idx_application_vacancy_id) i.p.v. de collectie.
+ */
+public record VacancySummaryView(Long id, String title, String companyName, String location, Date postedAt,
+                                 long applicationCount) {
+}
@@ -0,0 +1,10 @@
+package nl.andarabski.repository.projection;
+
+import java.util.Date;
+
+/**
+ * Read-only projectie van de scalaire vacancy-kolommen; de applications worden apart als {@link ApplicationView} geladen.
+ */
+public record VacancyView(Long id, String title, String companyName, String description,
+                          String location, Date postedAt) {
+}
@@ -0,0 +1,9 @@
+package nl.andarabski.repository.projection;
+
+/**
+ * Versie van een parent (user of vacancy) met aantal, som van de ids en som van de versies van zijn applications.
+ * Ids komen uit een sequence en versies gaan alleen omhoog, dus elke nieuwe, gewijzigde, verplaatste of
+ * verwijderde application verandert minstens één van de drie. Basis van de ETag, zonder de dto op te bouwen.
+ */
+public record VersionStamp(long version, long applications, long applicationIdSum, long applicationVersionSum) {
+}
@@ -2,11 +2,14 @@ package nl.andarabski.service;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
 import nl.andarabski.converter.ApplicationDtoToApplicationConverter;
 import nl.andarabski.converter.ApplicationToApplicationDtoConverter;
 import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.ApplyRequestDto;
+import nl.andarabski.dto.ApplyResultDto;
+import nl.andarabski.dto.CursorPageDto;
 import nl.andarabski.mapper.ApplicationMapper;
 import nl.andarabski.model.Application;
 import nl.andarabski.model.ApplicationStatus;
@@ -15,13 +18,31 @@ import nl.andarabski.model.Vacancy;
 import nl.andarabski.repository.ApplicationRepository;
 import nl.andarabski.repository.UserRepository;
 import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.repository.projection.ApplicationKey;
+import nl.andarabski.repository.projection.ApplicationView;
+import nl.andarabski.system.StatusCode;
+import nl.andarabski.system.exception.InvalidRequestException;
 import nl.andarabski.system.exception.ObjectNotFoundException;
+import nl.andarabski.util.ApplicationUtil;
+import nl.andarabski.util.CursorUtil;
+import nl.andarabski.util.ETagUtil;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,10 +54,16 @@ public class ApplicationService {
     private final VacancyRepository vacancyRepository;
     private final UserRepository userRepository;
     private final ApplicationMapper applicationMapper;
+    private final VacancyDtoCache vacancyDtoCache;
+    private final PlatformTransactionManager transactionManager;
 
+    public static final int MAX_BATCH_SIZE = 1_000;
+    // pogingen van een batch-apply die gelijktijdige writes verliest; daarna een 409
+    private static final int BATCH_ATTEMPTS = 3;
 
 
-    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+
+    @Transactional(readOnly = true)
     public List<ApplicationDto> findAll() {
         return applicationRepository.findAll()
                 .stream()
@@ -44,13 +71,40 @@ public class ApplicationService {
                 .collect(Collectors.toList());
     }
 
-    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    // Keyset-paginatie: per pagina een begrensde range-scan op id, constant geheugen ongeacht tabelgrootte
+    @Transactional(readOnly = true)
+    public CursorPageDto<ApplicationDto> findPage(String cursor, Integer size) {
+        long afterId = CursorUtil.decode(cursor);
+        int pageSize = CursorUtil.clampSize(size);
+        List<ApplicationView> rows = applicationRepository.findViewsAfter(afterId, CursorUtil.probeLimit(pageSize));
+        return CursorUtil.toPage(rows, pageSize, ApplicationView::id, applicationMapper::toDto);
+    }
+
+    // werkvoorraad per status (bijv. alle PENDING), nieuwste eerst; één range-scan op (status, applied_at)
+    @Transactional(readOnly = true)
+    public List<ApplicationDto> findLatestByStatus(String status, Integer size) {
+        return applicationRepository.findViewsByStatus(ApplicationUtil.parseStatus(status), Limit.of(CursorUtil.clampSize(size)))
+                .stream()
+                .map(applicationMapper::toDto)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
     public ApplicationDto findById(Long applicationId) {
-       Application appl = this.applicationRepository.findById(applicationId)
+       // projectie: user/vacancy id uit de FK-kolommen, geen entity of proxies
+       ApplicationView appl = this.applicationRepository.findViewById(applicationId)
                 .orElseThrow(() -> new ObjectNotFoundException("Application", applicationId));
        return applicationMapper.toDto(appl);
     }
 
+    // conditional GET/PUT: alleen de versiekolom
+    @Transactional(readOnly = true)
+    public String findETag(Long applicationId) {
+        return applicationRepository.findVersionById(applicationId)
+                .map(ETagUtil::of)
+                .orElseThrow(() -> new ObjectNotFoundException("Application", applicationId));
+    }
+
     public ApplicationDto create(ApplicationDto in) {
 
         // 1) Sanity checks
@@ -79,18 +133,28 @@ public class ApplicationService {
 
         // 3) Defaults/validatie
         if(app.getStatus() == null){
-            app.setStatus(ApplicationStatus.valueOf(in.getStatus()));
+            app.setStatus(ApplicationUtil.parseStatus(in.getStatus()));
         }
         if(app.getStatus() == null){
             app.setAppliedAt(Date.from(java.time.Instant.now()));
         }
         Application saved = applicationRepository.save(app);
+        vacancyDtoCache.evict(in.getVacancyId());
         return applicationMapper.toDto(saved);
     }
 
     public ApplicationDto update(Long applicationId, ApplicationDto patch) {
+        return update(applicationId, patch, null);
+    }
+
+    // ifMatch: ETag waarop de client zijn wijziging baseert (null = onvoorwaardelijk)
+    public ApplicationDto update(Long applicationId, ApplicationDto patch, @Nullable String ifMatch) {
         Application existing = this.applicationRepository.findById(applicationId)
                 .orElseThrow(() -> new ObjectNotFoundException("Application is with Id: ", applicationId));
+        // de geladen versie: een write die hierna nog commit, faalt bij onze flush op de versie-check (409)
+        ETagUtil.requireMatch(ifMatch, ETagUtil.of(existing.getVersion()), "Application", applicationId);
+        // zowel de oude als (bij een verhuizing) de nieuwe vacancy tonen deze application
+        Long previousVacancyId = existing.getVacancy() != null ? existing.getVacancy().getId() : null;
         // 3) Applications expliciet omzetten + back-reference zetten
         if (patch.getUserId() != null) {
             User userRef = new User();
@@ -108,13 +172,9 @@ public class ApplicationService {
             existing.setMotivation(patch.getMotivation());
         }
 
-        // 3) Defaults/validatie
-        if(patch.getStatus() == null){
-            try {
-                existing.setStatus(ApplicationStatus.valueOf(patch.getStatus()));
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("Invalid status: " + patch.getStatus());
-            }
+        // 3) Defaults/validatie; een onbekende status is een 400
+        if(patch.getStatus() != null){
+            existing.setStatus(ApplicationUtil.parseStatus(patch.getStatus()));
         }
 
         if(patch.getAppliedAt() == null){
@@ -124,14 +184,34 @@ public class ApplicationService {
         }
 
         Application saved = applicationRepository.save(existing);
+        vacancyDtoCache.evictAll(Arrays.asList(previousVacancyId, patch.getVacancyId()));
         return applicationMapper.toDto(saved);
 
     }
 
+    // JSON Merge Patch: motivation, status en appliedAt via de IGNORE-null mapper; met @DynamicUpdate schrijft
+    // een status-wijziging alleen de status-kolom (en version). User en vacancy liggen vast (zie controller)
+    public ApplicationDto patch(Long applicationId, ApplicationDto patch, @Nullable String ifMatch) {
+        Application existing = this.applicationRepository.findById(applicationId)
+                .orElseThrow(() -> new ObjectNotFoundException("Application", applicationId));
+        ETagUtil.requireMatch(ifMatch, ETagUtil.of(existing.getVersion()), "Application", applicationId);
+        if (patch.getStatus() != null) {
+            // de mapper doet valueOf: hier al normaliseren, een onbekende status is een 400
+            patch.setStatus(ApplicationUtil.parseStatus(patch.getStatus()).name());
+        }
+        applicationMapper.update(existing, patch);
+        Application saved = applicationRepository.save(existing);
+        if (saved.getVacancy() != null) {
+            vacancyDtoCache.evict(saved.getVacancy().getId());
+        }
+        return applicationMapper.toDto(saved);
+    }
+
     public void delete(Long applicationId) {
        if(applicationId == null) {
            throw new IllegalArgumentException("ApplicationId is required");
        }
+       applicationRepository.findVacancyIdById(applicationId).ifPresent(vacancyDtoCache::evict);
        try {
            applicationRepository.deleteById(applicationId);
        } catch (EmptyResultDataAccessException e) {
@@ -140,37 +220,118 @@ public class ApplicationService {
     }
 
     public Application applyToVacancy(Long userId, Long vacancyId, String motivation) {
-        // Check of user and vacancy exist
-        // Check of user already has applied
-        // Bouw nieuwe Application en sla op
-        User user = this.userRepository.findById(userId)
-                .orElseThrow(() -> new ObjectNotFoundException("User", userId));
-        Vacancy vacancy = this.vacancyRepository.findById(vacancyId)
-                .orElseThrow(() -> new ObjectNotFoundException("Vacancy", vacancyId));
+        // Geen SELECT op user/vacancy en hun applications-collecties niet aanraken: alleen references voor de
+        // FK-kolommen, zodat een apply even duur blijft hoeveel applicants een vacancy ook heeft.
+        // Bestaan ze niet, dan faalt de insert op de foreign key (404); dubbele apply: unique constraint (409)
+        Application application = new Application(null, userRepository.getReferenceById(userId),
+                vacancyRepository.getReferenceById(vacancyId), motivation, ApplicationStatus.PENDING, new Date());
 
-        // Bestaat al?
-        if (applicationRepository.existsByUserIdAndVacancyId(userId, vacancyId)) {
-            throw new IllegalArgumentException("User already applied to this vacancy");
+        try {
+            Application saved = applicationRepository.saveAndFlush(application);
+            vacancyDtoCache.evict(vacancyId);
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw ApplicationUtil.translate(e, List.of(userId), List.of(vacancyId));
         }
+    }
 
-        // Nieuwe application
-        Application application = new Application();
-        application.setUser(user);
-        application.setVacancy(vacancy);
-        application.setMotivation(motivation);
-        application.setAppliedAt(java.sql.Date.from(java.time.Instant.now()));
-        application.setStatus(ApplicationStatus.PENDING);
+    // Batch-variant van applyToVacancy: een vast aantal round trips, onafhankelijk van het aantal items.
+    // SUPPORTS: zonder transactie van de aanroeper is elke poging een eigen transactie. Wint een gelijktijdige
+    // apply (of delete) een paar tussen onze checks en de insert, dan rolt alleen die poging terug en beslist de
+    // volgende opnieuw: dat item wordt CONFLICT/NOT_FOUND, de rest wordt alsnog aangemaakt.
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ApplyResultDto> applyToVacancies(List<ApplyRequestDto> requests) {
+        // 1) Sanity checks
+        if (requests == null || requests.isEmpty()) {
+            throw new InvalidRequestException("At least one application is required");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new InvalidRequestException("At most " + MAX_BATCH_SIZE + " applications per batch");
+        }
 
-        // (optioneel) backrefs bijhouden in-memory
-        if (user.getApplications() != null) {
-            user.getApplications().add(application);
+        // binnen de transactie van een aanroeper kan een poging niet los terugrollen: dan is de batch
+        // alles-of-niets en geeft een gelijktijdig gewonnen paar een 409 voor de hele batch
+        boolean retryable = !TransactionSynchronizationManager.isActualTransactionActive();
+        TransactionTemplate attempt = new TransactionTemplate(transactionManager);
+        for (int i = 1; ; i++) {
+            try {
+                return attempt.execute(status -> insertBatch(requests));
+            } catch (DataIntegrityViolationException e) {
+                boolean lostRace = ApplicationUtil.violates(e, Application.UK_USER_VACANCY)
+                        || ApplicationUtil.violates(e, Application.FK_USER)
+                        || ApplicationUtil.violates(e, Application.FK_VACANCY);
+                if (!lostRace || !retryable || i == BATCH_ATTEMPTS) {
+                    throw ApplicationUtil.translate(e, List.of(), List.of());
+                }
+            }
         }
-        if (vacancy.getApplications() != null) {
-            vacancy.getApplications().add(application);
+    }
+
+    private List<ApplyResultDto> insertBatch(List<ApplyRequestDto> requests) {
+        // 2) Bestaan de users/vacancies? Eén IN-query per entity-type
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> vacancyIds = new HashSet<>();
+        for (ApplyRequestDto r : requests) {
+            if (r != null && r.getUserId() != null) userIds.add(r.getUserId());
+            if (r != null && r.getVacancyId() != null) vacancyIds.add(r.getVacancyId());
         }
+        Set<Long> existingUsers = userIds.isEmpty()
+                ? Set.of() : new HashSet<>(userRepository.findExistingIds(userIds));
+        Set<Long> existingVacancies = vacancyIds.isEmpty()
+                ? Set.of() : new HashSet<>(vacancyRepository.findExistingIds(vacancyIds));
 
-        return applicationRepository.save(application);
+        // 3) Bestaande (user, vacancy)-paren in één set-based query
+        Set<ApplicationKey> taken = new HashSet<>();
+        if (!existingUsers.isEmpty() && !existingVacancies.isEmpty()) {
+            taken.addAll(applicationRepository.findKeysByUserIdInAndVacancyIdIn(existingUsers, existingVacancies));
+        }
 
+        // 4) Per item beslissen; dubbele paren binnen dezelfde batch zijn ook een conflict
+        List<ApplyResultDto> results = new ArrayList<>(requests.size());
+        List<Application> toInsert = new ArrayList<>();
+        List<ApplyResultDto> inserted = new ArrayList<>();
+        Date now = new Date();
+        for (int i = 0; i < requests.size(); i++) {
+            ApplyRequestDto r = requests.get(i);
+            if (r == null || r.getUserId() == null || r.getVacancyId() == null
+                    || r.getMotivation() == null || r.getMotivation().isBlank()) {
+                results.add(new ApplyResultDto(i, r == null ? null : r.getUserId(), r == null ? null : r.getVacancyId(),
+                        StatusCode.INVALID_ARGUMENT, "userId, vacancyId and motivation are required"));
+                continue;
+            }
+            Long userId = r.getUserId();
+            Long vacancyId = r.getVacancyId();
+            if (!existingUsers.contains(userId)) {
+                results.add(new ApplyResultDto(i, userId, vacancyId, StatusCode.NOT_FOUND,
+                        new ObjectNotFoundException("User", userId).getMessage()));
+            } else if (!existingVacancies.contains(vacancyId)) {
+                results.add(new ApplyResultDto(i, userId, vacancyId, StatusCode.NOT_FOUND,
+                        new ObjectNotFoundException("Vacancy", vacancyId).getMessage()));
+            } else if (!taken.add(new ApplicationKey(userId, vacancyId))) {
+                results.add(new ApplyResultDto(i, userId, vacancyId, StatusCode.CONFLICT,
+                        "User already applied to this vacancy"));
+            } else {
+                // references: geen SELECT op user/vacancy, alleen de FK-waarden
+                toInsert.add(new Application(null, userRepository.getReferenceById(userId),
+                        vacancyRepository.getReferenceById(vacancyId), r.getMotivation(), ApplicationStatus.PENDING, now));
+                ApplyResultDto created = new ApplyResultDto(i, userId, vacancyId, StatusCode.CREATED,
+                        "Application submitted successfully");
+                inserted.add(created);
+                results.add(created);
+            }
+        }
+
+        // 5) Inserts via JDBC batching (hibernate.jdbc.batch_size); ids komen uit de sequence. Nu flushen, zodat
+        // een constraint violation binnen deze poging optreedt en niet pas bij de commit van de aanroeper
+        if (!toInsert.isEmpty()) {
+            List<Application> saved = applicationRepository.saveAll(toInsert);
+            applicationRepository.flush();
+            for (int i = 0; i < saved.size(); i++) {
+                inserted.get(i).setApplicationId(saved.get(i).getId());
+            }
+            vacancyDtoCache.evictAll(inserted.stream().map(ApplyResultDto::getVacancyId).toList());
+        }
+        return results;
     }
 
 }
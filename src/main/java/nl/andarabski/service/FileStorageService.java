@@ -0,0 +1,356 @@
+package nl.andarabski.service;
+
+import nl.andarabski.model.StoredFile;
+import nl.andarabski.repository.StoredFileRepository;
+import nl.andarabski.system.exception.InvalidRequestException;
+import nl.andarabski.system.exception.ObjectNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed opslag voor foto's en cv's: elke blob staat één keer op schijf onder zijn SHA-256
+ * ({@code <upload-dir>/blobs/ab/abcdef...}). De digest is de stabiele sleutel voor User.photo/User.cv.
+ */
+@Service
+public class FileStorageService {
+
+    private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5 MB
+
+    private static final List<String> ALLOWED_IMAGE_TYPES = List.of("jpg", "jpeg", "png", "gif");
+    private static final List<String> ALLOWED_DOCUMENT_TYPES = List.of("pdf", "doc", "docx");
+
+    // Handtekening (magic bytes) aan het begin van het bestand per extensie; de extensie alleen is geen bewijs
+    private static final Map<String, List<byte[]>> SIGNATURES = Map.of(
+            "jpg", List.of(bytes(0xFF, 0xD8, 0xFF)),
+            "jpeg", List.of(bytes(0xFF, 0xD8, 0xFF)),
+            "png", List.of(bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)),
+            "gif", List.of(bytes('G', 'I', 'F', '8', '7', 'a'), bytes('G', 'I', 'F', '8', '9', 'a')),
+            "pdf", List.of(bytes('%', 'P', 'D', 'F', '-')),
+            "doc", List.of(bytes(0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)), // OLE2 compound file
+            "docx", List.of(bytes('P', 'K', 0x03, 0x04)));                         // zip-container
+    private static final int SIGNATURE_LENGTH = 8;
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+    private static final Duration SWEEP_GRACE = Duration.ofMinutes(10);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final StoredFileRepository storedFileRepository;
+    private final TransactionTemplate newTransaction;
+    private final Path blobDir;
+    private final Path tmpDir;
+
+    public FileStorageService(StoredFileRepository storedFileRepository, PlatformTransactionManager transactionManager,
+                              @Value("${file.upload-dir:uploads}") String uploadDir) {
+        this.storedFileRepository = storedFileRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.blobDir = root.resolve("blobs");
+        // tmp naast de blobs (zelfde filesystem), zodat de move atomair kan
+        this.tmpDir = root.resolve("tmp");
+    }
+
+    @Transactional
+    public String storePhoto(MultipartFile file) {
+        return store(file, ALLOWED_IMAGE_TYPES, "photo");
+    }
+
+    @Transactional
+    public String storeDocument(MultipartFile file) {
+        return store(file, ALLOWED_DOCUMENT_TYPES, "cv");
+    }
+
+    /** Pad van de blob bij een sleutel; null als het geen storage-sleutel is (bijv. oude seed-paden). */
+    public Path resolve(@Nullable String key) {
+        if (!isKey(key)) {
+            return null;
+        }
+        return blobDir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    /**
+     * Opgeslagen blob om te serveren: pad op schijf plus de metadata voor de response-headers.
+     * De inhoud wordt niet gelezen; streamen gebeurt pas bij het schrijven van de response.
+     */
+    public record Blob(String key, Path path, long size, String contentType, String filename) {}
+
+    @Transactional(readOnly = true)
+    public Blob open(String key, String objectName, Long ownerId) {
+        Path path = resolve(key);
+        if (path == null || !Files.isReadable(path)) {
+            throw new ObjectNotFoundException(objectName, ownerId);
+        }
+        StoredFile meta = storedFileRepository.findById(key).orElse(null);
+        String contentType = meta != null && meta.getContentType() != null
+                ? meta.getContentType() : "application/octet-stream";
+        String filename = meta != null && meta.getOriginalFilename() != null
+                ? meta.getOriginalFilename() : key;
+        try {
+            return new Blob(key, path, Files.size(path), contentType, filename);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static boolean isKey(@Nullable String value) {
+        return value != null && KEY.matcher(value).matches();
+    }
+
+    /**
+     * Eén verwijzing minder. Opruimen gebeurt pas na commit (een rollback houdt zo zijn verwijzing) en via
+     * {@link #purge}, dat onder de rijlock controleert of de blob intussen niet opnieuw gebruikt wordt.
+     */
+    @Transactional
+    public void release(@Nullable String key) {
+        if (!isKey(key) || storedFileRepository.decrementRefCount(key) == 0) {
+            return; // geen storage-sleutel of onbekend
+        }
+        afterCommit(() -> purge(key));
+    }
+
+    /**
+     * Vangnet voor rijen zonder referenties die niet direct na de release zijn opgeruimd: teruggedraaide
+     * uploads (rij en blob zonder geslaagde increment) en releases waarvan de afterCommit niet meer liep.
+     */
+    @Scheduled(fixedDelayString = "${file.sweep-interval:PT1H}", initialDelayString = "${file.sweep-interval:PT1H}")
+    public int sweepUnreferenced() {
+        // jonge rijen overslaan: een upload maakt de rij eerst met refCount 0 aan en telt daarna pas
+        Date before = new Date(System.currentTimeMillis() - SWEEP_GRACE.toMillis());
+        int purged = 0;
+        for (String key : storedFileRepository.findUnreferencedDigests(before)) {
+            if (purge(key)) {
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * Verwijdert rij en blob als refCount 0 is, in een eigen transactie. De delete neemt de rijlock, dus een
+     * upload die de rij net ophoogde laat ons wachten tot zijn commit en dan blijft alles staan. De blob gaat
+     * weg vóór de commit, terwijl de rij nog gelockt is: een upload die op de rij wacht, ziet daarna geen rij
+     * en geen blob meer en zet zijn eigen kopie neer (zie {@link #write}).
+     */
+    boolean purge(String key) {
+        return Boolean.TRUE.equals(newTransaction.execute(s -> {
+            if (storedFileRepository.deleteIfUnreferenced(key) == 0) {
+                return false;
+            }
+            deleteQuietly(resolve(key));
+            return true;
+        }));
+    }
+
+    private String store(MultipartFile file, List<String> allowedExtensions, String typeLabel) {
+        // 1) Sanity checks
+        if (file == null || file.isEmpty()) {
+            throw new InvalidRequestException(typeLabel + " bestand mag niet leeg zijn.");
+        }
+        if (file.getSize() > MAX_FILE_SIZE) {
+            throw new InvalidRequestException("Bestand " + file.getOriginalFilename() + " is groter dan 5 MB.");
+        }
+        String extension = getFileExtension(file.getOriginalFilename());
+        if (!allowedExtensions.contains(extension.toLowerCase(Locale.ROOT))) {
+            throw new InvalidRequestException(typeLabel + " bestandstype ." + extension + " is niet toegestaan.");
+        }
+
+        // Streamen: de part wordt nooit in zijn geheel in het geheugen gelezen, alleen de eerste bytes
+        // voor de handtekening en daarna een vaste kopieerbuffer
+        try (InputStream in = file.getInputStream()) {
+            byte[] header = in.readNBytes(SIGNATURE_LENGTH);
+            if (!hasSignature(header, extension)) {
+                throw new InvalidRequestException(typeLabel + " bestand " + file.getOriginalFilename()
+                        + " is geen geldig ." + extension + " bestand.");
+            }
+            InputStream content = new SizeLimitedInputStream(
+                    new SequenceInputStream(new ByteArrayInputStream(header), in), MAX_FILE_SIZE, file.getOriginalFilename());
+            return write(content, file.getSize(), file.getContentType(), file.getOriginalFilename());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Opslaan van " + file.getOriginalFilename() + " mislukt", e);
+        }
+    }
+
+    /** Voor door de applicatie gegenereerde bestanden (thumbnails): geen upload-validatie. */
+    @Transactional
+    public String storeGenerated(byte[] content, String contentType, String filename) {
+        return write(new ByteArrayInputStream(content), content.length, contentType, filename);
+    }
+
+    private String write(InputStream source, long size, String contentType, String filename) {
+        // 2) Hashen tijdens het schrijven naar een tijdelijk bestand: één keer lezen, één keer schrijven
+        String key;
+        Path tmp = null;
+        try {
+            Files.createDirectories(tmpDir);
+            tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+            try (DigestInputStream in = new DigestInputStream(source, sha256())) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                key = HEX.formatHex(in.getMessageDigest().digest());
+            }
+
+            // 3) Referentie tellen vóór de blob: de increment houdt de rijlock tot onze commit, dus purge kan de
+            // blob niet meer weghalen tussen de controle hieronder en het moment dat onze verwijzing zichtbaar is
+            acquire(key, size, contentType, filename);
+
+            // 4) Al aanwezig? Dan blijft het bij de tijdelijke kopie, anders atomair op zijn plek zetten
+            Path blob = resolve(key);
+            if (Files.exists(blob)) {
+                Files.deleteIfExists(tmp);
+            } else {
+                Files.createDirectories(blob.getParent());
+                // rename binnen hetzelfde filesystem; een gelijktijdige upload van dezelfde inhoud
+                // levert byte-voor-byte hetzelfde bestand op, overschrijven is dus onschuldig
+                Files.move(tmp, blob, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            throw new UncheckedIOException("Opslaan van " + filename + " mislukt", e);
+        } catch (RuntimeException e) {
+            // o.a. de groottegrens tijdens het kopiëren: geen halve bestanden achterlaten
+            deleteQuietly(tmp);
+            throw e;
+        }
+        return key;
+    }
+
+    /**
+     * Eén referentie erbij in de transactie van de aanroeper. Ontbreekt de rij, dan wordt hij in een eigen
+     * transactie aangemaakt: twee gelijktijdige eerste uploads van dezelfde inhoud botsen dan op de primary key
+     * zonder dat de transactie van de aanroeper faalt. De verliezer telt gewoon mee op de rij van de winnaar.
+     */
+    private void acquire(String key, long size, String contentType, String filename) {
+        while (storedFileRepository.incrementRefCount(key) == 0) {
+            try {
+                newTransaction.executeWithoutResult(s ->
+                        storedFileRepository.insertUnreferenced(key, size, contentType, filename));
+            } catch (DataIntegrityViolationException alreadyInserted) {
+                // gelijktijdig door een andere upload aangemaakt en gecommit; de increment slaagt nu
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static void deleteQuietly(@Nullable Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // opruimen is best effort; een achtergebleven blob wordt bij een volgende upload hergebruikt
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean hasSignature(byte[] header, String extension) {
+        return SIGNATURES.getOrDefault(extension.toLowerCase(Locale.ROOT), List.of()).stream()
+                .anyMatch(sig -> header.length >= sig.length
+                        && Arrays.equals(header, 0, sig.length, sig, 0, sig.length));
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] out = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            out[i] = (byte) values[i];
+        }
+        return out;
+    }
+
+    /**
+     * Telt mee tijdens het kopiëren en breekt af zodra de grens overschreden wordt; de opgegeven
+     * grootte van de part (Content-Length of client) wordt dus niet blind vertrouwd.
+     */
+    private static final class SizeLimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private final String filename;
+        private long count;
+
+        SizeLimitedInputStream(InputStream in, long limit, String filename) {
+            super(in);
+            this.limit = limit;
+            this.filename = filename;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(long n) {
+            count += n;
+            if (count > limit) {
+                throw new InvalidRequestException("Bestand " + filename + " is groter dan 5 MB.");
+            }
+        }
+    }
+
+    private static String getFileExtension(@Nullable String filename) {
+        if (filename == null) {
+            return "";
+        }
+        int dotIndex = filename.lastIndexOf('.');
+        return (dotIndex != -1) ? filename.substring(dotIndex + 1) : "";
+    }
+}
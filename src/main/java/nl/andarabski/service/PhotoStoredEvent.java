@@ -0,0 +1,7 @@
+package nl.andarabski.service;
+
+/**
+ * Gepubliceerd wanneer een user een nieuwe photo heeft gekregen; de thumbnails worden na de commit gemaakt.
+ */
+public record PhotoStoredEvent(Long userId, String photoKey) {
+}
@@ -0,0 +1,141 @@
+package nl.andarabski.service;
+
+import lombok.RequiredArgsConstructor;
+import nl.andarabski.config.AsyncConfig;
+import nl.andarabski.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Maakt de thumbnails (64 en 256 px, langste zijde) van een geüploade photo, buiten de request-thread.
+ */
+@Service
+@RequiredArgsConstructor
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    public static final List<Integer> SIZES = List.of(64, 256);
+
+    // een 5 MB png kan 30000x30000 pixels declareren (GB's als BufferedImage); daarboven geen thumbnails
+    static final long MAX_PIXELS = 50_000_000L;
+    // subsampled decoderen tot ~2x de grootste thumbnail: genoeg voor een nette bilineaire verkleining
+    private static final int DECODE_SIDE = 2 * SIZES.get(SIZES.size() - 1);
+
+    private final FileStorageService fileStorageService;
+    private final UserRepository userRepository;
+
+    // Pas na de commit: de user en de blob zijn dan zichtbaar, en een rollback levert geen werk op
+    @Async(AsyncConfig.THUMBNAIL_EXECUTOR)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onPhotoStored(PhotoStoredEvent event) {
+        try {
+            generate(event.userId(), event.photoKey());
+        } catch (RuntimeException | IOException e) {
+            // geen thumbnail is geen fout voor de client: de download valt terug op 404
+            log.warn("Thumbnails voor user {} konden niet gemaakt worden", event.userId(), e);
+        }
+    }
+
+    void generate(Long userId, String photoKey) throws IOException {
+        BufferedImage source;
+        try {
+            source = read(fileStorageService.open(photoKey, "Photo of user", userId).path());
+        } catch (IIOException e) {
+            return; // juiste handtekening, maar niet te decoderen
+        }
+        if (source == null) {
+            return; // geen door ImageIO leesbaar formaat, of te groot
+        }
+
+        List<String> keys = new ArrayList<>(SIZES.size());
+        for (int size : SIZES) {
+            keys.add(store(scale(source, size)));
+        }
+
+        // intussen een andere photo geüpload? dan horen deze thumbnails nergens meer bij
+        if (userRepository.setThumbnailsIfPhotoUnchanged(userId, photoKey, keys.get(0), keys.get(1)) == 0) {
+            keys.forEach(fileStorageService::release);
+        }
+    }
+
+    // eerst alleen de header (afmetingen), dan pas de raster: nooit groter dan ~DECODE_SIDE in het geheugen
+    @Nullable
+    static BufferedImage read(Path path) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    log.warn("Photo {} is {}x{} pixels, geen thumbnails", path.getFileName(), width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / DECODE_SIDE);
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    static BufferedImage scale(BufferedImage source, int maxSide) {
+        double factor = Math.min(1.0, (double) maxSide / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * factor));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private String store(BufferedImage image) throws IOException {
+        // jpeg kent geen alpha: transparante afbeeldingen blijven png
+        boolean alpha = image.getColorModel().hasAlpha();
+        String format = alpha ? "png" : "jpg";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("Geen ImageIO writer voor " + format);
+        }
+        String filename = "thumbnail-" + image.getWidth() + "x" + image.getHeight() + "." + format;
+        return fileStorageService.storeGenerated(out.toByteArray(), alpha ? "image/png" : "image/jpeg", filename);
+    }
+}
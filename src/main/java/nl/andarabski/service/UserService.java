@@ -1,7 +1,11 @@
 package nl.andarabski.service;
 
 import lombok.RequiredArgsConstructor;
+import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.CursorPageDto;
+import nl.andarabski.dto.DeleteResultDto;
 import nl.andarabski.dto.UserDto;
+import nl.andarabski.dto.UserSummaryDto;
 import nl.andarabski.mapper.UserMapper;
 import nl.andarabski.model.Application;
 import nl.andarabski.model.ApplicationStatus;
@@ -9,7 +13,18 @@ import nl.andarabski.model.User;
 import nl.andarabski.model.Vacancy;
 import nl.andarabski.repository.ApplicationRepository;
 import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.repository.projection.ApplicationView;
+import nl.andarabski.repository.projection.UserSummaryView;
+import nl.andarabski.repository.projection.UserView;
 import nl.andarabski.system.exception.ObjectNotFoundException;
+import nl.andarabski.util.ApplicationUtil;
+import nl.andarabski.util.CursorUtil;
+import nl.andarabski.util.ETagUtil;
+import nl.andarabski.repository.projection.PhotoThumbnails;
+import nl.andarabski.system.exception.InvalidRequestException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,16 +32,21 @@ import org.springframework.web.multipart.MultipartFile;
 
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-@jakarta.transaction.Transactional
+@Transactional
 public class UserService {
 
 
     private final UserRepository userRepository;
     private final ApplicationRepository applicationRepository;
     private final UserMapper userMapper;
+    private final FileStorageService fileStorageService;
+    private final ApplicationEventPublisher events;
+    private final VacancyDtoCache vacancyDtoCache;
+    private final VacancyRepository vacancyRepository;
 
     @Transactional
     public UserDto create(UserDto in, @Nullable MultipartFile photo, @Nullable MultipartFile cv) {
@@ -47,6 +67,14 @@ public class UserService {
         // 2) Scalars mappen via mapper (collecties/applications worden genegeerd in de mapper)
         User user = userMapper.toEntity(in);
 
+        // 2b) Bestanden in de content-addressed store; User bewaart alleen de sleutel
+        if (photo != null && !photo.isEmpty()) {
+            user.setPhoto(fileStorageService.storePhoto(photo));
+        }
+        if (cv != null && !cv.isEmpty()) {
+            user.setCv(fileStorageService.storeDocument(cv));
+        }
+
         // 3) Applications expliciet omzetten + back-reference zetten
         if (in.getApplications() != null && !in.getApplications().isEmpty()) {
             List<Application> apps = in.getApplications().stream()
@@ -59,7 +87,7 @@ public class UserService {
 
                         // defensief parsen van status
                         if (d.getStatus() != null) {
-                            a.setStatus(ApplicationStatus.valueOf(d.getStatus()));
+                            a.setStatus(ApplicationUtil.parseStatus(d.getStatus()));
                         }
 
                         // reference entity voor Vacancy (geen DB-call nodig)
@@ -83,80 +111,252 @@ public class UserService {
 
         // 4) Persist & terug naar DTO
         User saved = userRepository.save(user);
+        vacancyDtoCache.evictAll(vacancyIdsOf(saved.getApplications()));
+        // thumbnails worden na de commit asynchroon gemaakt; de upload wacht er niet op
+        if (saved.getPhoto() != null) {
+            events.publishEvent(new PhotoStoredEvent(saved.getId(), saved.getPhoto()));
+        }
         return userMapper.toDto(saved);
     }
 
 
     @Transactional
     public UserDto update(Long id, UserDto patch, @Nullable MultipartFile photo, @Nullable MultipartFile cv) {
-        User existing = userRepository.findById(id).orElseThrow(() -> new ObjectNotFoundException("User", id)); // scalars
+        return update(id, patch, photo, cv, null);
+    }
+
+    // ifMatch: ETag waarop de client zijn wijziging baseert (null = onvoorwaardelijk)
+    @Transactional
+    public UserDto update(Long id, UserDto patch, @Nullable MultipartFile photo, @Nullable MultipartFile cv,
+                          @Nullable String ifMatch) {
+        User existing = userRepository.findWithApplicationsById(id).orElseThrow(() -> new ObjectNotFoundException("User", id)); // scalars + applications
+        // vóór het opslaan van bestanden; een write die na het laden nog commit, faalt bij onze flush (409)
+        if (ifMatch != null) {
+            ETagUtil.requireMatch(ifMatch, findETag(id), "User", id);
+        }
         existing.setFirstName(patch.getFirstName());
         existing.setLastName(patch.getLastName());
         existing.setEmail(patch.getEmail());
         existing.setPassword(patch.getPassword());
         existing.setAge(patch.getAge());
-        existing.setPhoto(patch.getPhoto());
-        existing.setCv(patch.getCv());
+        // nieuw bestand -> nieuwe sleutel; de oude blob verliest een referentie. Zonder upload blijven de
+        // bestaande bestanden staan: de multipart-PUT stuurt geen sleutels mee, dus patch.getPhoto() is altijd null
+        String newPhoto = (photo != null && !photo.isEmpty()) ? fileStorageService.storePhoto(photo) : existing.getPhoto();
+        String newCv = (cv != null && !cv.isEmpty()) ? fileStorageService.storeDocument(cv) : existing.getCv();
+        boolean photoChanged = !Objects.equals(existing.getPhoto(), newPhoto);
+        if (photoChanged) {
+            // thumbnails horen bij de oude foto
+            fileStorageService.release(existing.getPhoto());
+            fileStorageService.release(existing.getPhotoThumbnail64());
+            fileStorageService.release(existing.getPhotoThumbnail256());
+            existing.setPhotoThumbnail64(null);
+            existing.setPhotoThumbnail256(null);
+        }
+        if (!Objects.equals(existing.getCv(), newCv)) {
+            fileStorageService.release(existing.getCv());
+        }
+        existing.setPhoto(newPhoto);
+        existing.setCv(newCv);
         existing.setRole(patch.getRole());
         existing.setEnabled(Boolean.TRUE.equals(patch.isEnabled()));
-        // applications uit patch -> entity + back-reference
-        if (patch.getApplications() != null) { List<Application> apps = patch.getApplications().stream()
-                .map(d -> {
-                    Application a = new Application();
-                    a.setId(d.getId());
-                    a.setMotivation(d.getMotivation());
-                    a.setStatus(ApplicationStatus.valueOf(d.getStatus()));
-
-                    Vacancy v = new Vacancy(); // geen DB call nodig voor de test
-                     v.setId(d.getVacancyId());
-                     a.setVacancy(v);
-                     a.setUser(existing); // BELANGRIJK: back-reference
-                     return a; })
-                .toList();
-            existing.setApplications(apps);
+        // applications uit patch: diff tegen de bestaande rijen i.p.v. de collectie vervangen
+        if (patch.getApplications() != null) {
+            mergeApplications(existing, patch.getApplications());
         }
         User saved = userRepository.save(existing);
+        if (photoChanged && newPhoto != null) {
+            events.publishEvent(new PhotoStoredEvent(saved.getId(), newPhoto));
+        }
         return userMapper.toDto(saved);
     }
 
+    // JSON Merge Patch: alleen de meegestuurde (niet-null) velden via de mapper; dankzij @DynamicUpdate bevat de
+    // UPDATE alleen de kolommen die echt veranderd zijn. Photo en cv gaan via update (multipart upload)
+    @Transactional
+    public UserDto patch(Long id, UserDto patch, @Nullable String ifMatch) {
+        User existing = userRepository.findById(id).orElseThrow(() -> new ObjectNotFoundException("User", id));
+        if (ifMatch != null) {
+            ETagUtil.requireMatch(ifMatch, findETag(id), "User", id);
+        }
+        userMapper.update(existing, patch);
+        // een array vervangt in een merge patch de hele lijst: zelfde diff als bij update
+        if (patch.getApplications() != null) {
+            mergeApplications(existing, patch.getApplications());
+        }
+        return userMapper.toDto(userRepository.save(existing));
+    }
+
 
     @Transactional(readOnly = true)
     public UserDto findById(Long id) {
-        // Tip: als je mapper LAZY-collecties (applications) aanraakt:
-        // overweeg een fetch-join repo-methode (zie verderop).
-        User user = userRepository.findById(id)
+        // projecties: alleen de dto-kolommen, geen managed entities/snapshots in de persistence context
+        UserView user = userRepository.findViewById(id)
+                .orElseThrow(() -> new ObjectNotFoundException("User", id));
+        return userMapper.toDto(user, applicationRepository.findViewsByUserIdIn(List.of(id)));
+    }
+
+    // conditional GET/PUT: één query op de versiekolommen, zonder de dto op te bouwen
+    @Transactional(readOnly = true)
+    public String findETag(Long id) {
+        return userRepository.findVersionStampById(id)
+                .map(ETagUtil::of)
                 .orElseThrow(() -> new ObjectNotFoundException("User", id));
-        return userMapper.toDto(user);
     }
 
     @Transactional(readOnly = true)
     public List<UserDto> findAll() {
-        // Prima voor kleine datasets. Voor productie: overweeg paginatie + fetch-join of projecties.
+        // Prima voor kleine datasets (entity graph: één query). Voor productie: findPage.
         return userRepository.findAll().stream()
                 .map(userMapper::toDto)
                 .toList();
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageDto<UserSummaryDto> findPage(String cursor, Integer size) {
+        return findPage(cursor, size, false);
+    }
+
+    // Keyset-paginatie: per pagina een begrensde range-scan op id, constant geheugen ongeacht tabelgrootte.
+    // Samenvattingen met applicationCount; applications alleen op verzoek en per user begrensd
+    @Transactional(readOnly = true)
+    public CursorPageDto<UserSummaryDto> findPage(String cursor, Integer size, boolean expandApplications) {
+        long afterId = CursorUtil.decode(cursor);
+        int pageSize = CursorUtil.clampSize(size);
+        List<UserSummaryView> rows = userRepository.findSummariesAfter(afterId, CursorUtil.probeLimit(pageSize));
+        return CursorUtil.toPageBatch(rows, pageSize, UserSummaryView::id, page -> {
+            List<UserSummaryDto> items = page.stream().map(userMapper::toSummary).toList();
+            if (expandApplications) {
+                Map<Long, List<ApplicationView>> byUser = applicationRepository
+                        .findFirstViewsByUserIdIn(page.stream().map(UserSummaryView::id).toList(),
+                                CursorUtil.EMBEDDED_PAGE_SIZE)
+                        .stream()
+                        .collect(Collectors.groupingBy(ApplicationView::userId));
+                for (UserSummaryDto u : items) {
+                    List<ApplicationView> first = byUser.getOrDefault(u.getId(), List.of());
+                    u.setApplications(userMapper.toApplicationDtos(first));
+                    u.setApplicationsNextCursor(CursorUtil.remainderCursor(first, u.getApplicationCount(), ApplicationView::id));
+                }
+            }
+            return items;
+        });
+    }
+
+    // GET /users/{id}/applications: keyset binnen de user
+    @Transactional(readOnly = true)
+    public CursorPageDto<ApplicationDto> findApplications(Long userId, String cursor, Integer size) {
+        long afterId = CursorUtil.decode(cursor);
+        int pageSize = CursorUtil.clampSize(size);
+        List<ApplicationView> rows = applicationRepository
+                .findViewsByUserIdAfter(userId, afterId, CursorUtil.probeLimit(pageSize));
+        if (rows.isEmpty() && !userRepository.existsById(userId)) {
+            throw new ObjectNotFoundException("User", userId);
+        }
+        return CursorUtil.toPageBatch(rows, pageSize, ApplicationView::id, userMapper::toApplicationDtos);
+    }
+
+    // Downloads: alleen de sleutel uit de user-projectie, het bestand zelf wordt door de controller gestreamd
+    @Transactional(readOnly = true)
+    public FileStorageService.Blob findPhoto(Long id) {
+        UserView user = userRepository.findViewById(id)
+                .orElseThrow(() -> new ObjectNotFoundException("User", id));
+        return fileStorageService.open(user.photo(), "Photo of user", id);
+    }
+
+    @Transactional(readOnly = true)
+    public FileStorageService.Blob findPhotoThumbnail(Long id, int size) {
+        if (!ThumbnailService.SIZES.contains(size)) {
+            throw new InvalidRequestException("Thumbnail size " + size + " is not supported, use one of " + ThumbnailService.SIZES);
+        }
+        PhotoThumbnails thumbnails = userRepository.findThumbnailsById(id)
+                .orElseThrow(() -> new ObjectNotFoundException("User", id));
+        // nog niet gegenereerd (of geen foto): 404, de client valt terug op de originele foto
+        return fileStorageService.open(thumbnails.forSize(size), "Thumbnail of user", id);
+    }
+
+    @Transactional(readOnly = true)
+    public FileStorageService.Blob findCv(Long id) {
+        UserView user = userRepository.findViewById(id)
+                .orElseThrow(() -> new ObjectNotFoundException("User", id));
+        return fileStorageService.open(user.cv(), "Cv of user", id);
+    }
+
     @Transactional
-    public void delete(Long userId) {
+    public DeleteResultDto delete(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ObjectNotFoundException("User", userId));
 
-        // 3 robuuste opties — kies er één:
-
-        // (A) Als je in User -> applications hebt: cascade = CascadeType.ALL en orphanRemoval = true:
-        // dan hoef je niets te doen, enkel delete(user).
-        // userRepository.delete(user);
+        // set-based: de applications in één DELETE, zonder de collectie te laden of per rij te verwijderen;
+        // de user-delete leegt daarna de persistence context (geen verwijderde entities meer managed)
+        vacancyDtoCache.evictAll(applicationRepository.findVacancyIdsByUserId(userId));
+        int applications = applicationRepository.bulkDeleteByUserId(userId);
+        userRepository.bulkDeleteById(userId);
 
-        // (B) Zonder orphanRemoval maar met helper:
-        user.removeAllApplications();     // zorgt ook voor back-references wegzetten
-        userRepository.delete(user);      // delete de geladen (managed) entity i.p.v. deleteById
-
-        // (C) Of expliciet via repo (als je FK-constraints wilt vermijden zonder entity-graph):
-        // applicationRepository.deleteAllByUserId(userId);
-        // userRepository.deleteById(userId);
+        // bestanden: referentie vrijgeven; de blob verdwijnt pas als niemand er meer naar verwijst
+        fileStorageService.release(user.getPhoto());
+        fileStorageService.release(user.getCv());
+        fileStorageService.release(user.getPhotoThumbnail64());
+        fileStorageService.release(user.getPhotoThumbnail256());
+        return new DeleteResultDto(userId, applications);
     }
 
+    // Diff op id: bestaande applications krijgen alleen hun gewijzigde velden (dirty checking -> UPDATE per
+    // gewijzigde rij), zonder id -> INSERT, niet meer in de lijst -> DELETE (orphanRemoval). Ongewijzigde
+    // rijen kosten geen statement en houden hun versie.
+    // Een onbekende vacancy of een tweede application op dezelfde vacancy faalt bij de flush hier (404/409).
+    private void mergeApplications(User user, List<ApplicationDto> incoming) {
+        // vacancies van de oude én de nieuwe applications tonen een andere lijst
+        vacancyDtoCache.evictAll(vacancyIdsOf(user.getApplications()));
+        Map<Long, Application> current = new HashMap<>();
+        for (Application a : user.getApplications()) {
+            current.put(a.getId(), a);
+        }
+        List<Application> added = new ArrayList<>();
+        // nieuw gekoppelde vacancies: alleen die kunnen de foreign key schenden
+        Set<Long> referenced = new HashSet<>();
+        for (ApplicationDto d : incoming) {
+            if (d.getId() == null) {
+                if (d.getVacancyId() == null) {
+                    throw new InvalidRequestException("vacancyId is required for a new application");
+                }
+                added.add(new Application(null, user, vacancyRepository.getReferenceById(d.getVacancyId()),
+                        d.getMotivation(), statusOf(d, ApplicationStatus.PENDING), new Date()));
+                referenced.add(d.getVacancyId());
+                continue;
+            }
+            Application a = current.remove(d.getId());
+            if (a == null) {
+                throw new InvalidRequestException("Application " + d.getId() + " does not belong to user " + user.getId());
+            }
+            a.setMotivation(d.getMotivation());
+            a.setStatus(statusOf(d, a.getStatus()));
+            Long vacancyId = a.getVacancy() != null ? a.getVacancy().getId() : null;
+            if (d.getVacancyId() != null && !d.getVacancyId().equals(vacancyId)) {
+                a.setVacancy(vacancyRepository.getReferenceById(d.getVacancyId()));
+                referenced.add(d.getVacancyId());
+            }
+        }
+        user.getApplications().removeIf(a -> current.containsKey(a.getId()));
+        added.forEach(user::addApplication);
+        vacancyDtoCache.evictAll(vacancyIdsOf(user.getApplications()));
+        try {
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw ApplicationUtil.translate(e, List.of(user.getId()), referenced);
+        }
+    }
 
+    private static ApplicationStatus statusOf(ApplicationDto d, ApplicationStatus fallback) {
+        return d.getStatus() != null ? ApplicationUtil.parseStatus(d.getStatus()) : fallback;
+    }
 
+    private static List<Long> vacancyIdsOf(@Nullable List<Application> applications) {
+        if (applications == null) {
+            return List.of();
+        }
+        return applications.stream()
+                .map(Application::getVacancy)
+                .filter(Objects::nonNull)
+                .map(Vacancy::getId)
+                .toList();
+    }
 }
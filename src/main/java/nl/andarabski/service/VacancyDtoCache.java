@@ -0,0 +1,59 @@
+package nl.andarabski.service;
+
+import lombok.RequiredArgsConstructor;
+import nl.andarabski.config.CacheConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Invalidatie van de gecachte VacancyDto's (VacancyService.findById) en van de geserialiseerde vacancy-lijst
+ * (VacancyController) bij writes op een vacancy of op zijn applications.
+ */
+@Component
+@RequiredArgsConstructor
+public class VacancyDtoCache {
+
+    // optioneel: zonder @EnableCaching (bijv. in slice-tests) is er geen cache en dus niets te evicten
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public void evict(Long vacancyId) {
+        evictAll(vacancyId == null ? List.of() : List.of(vacancyId));
+    }
+
+    public void evictAll(Collection<Long> vacancyIds) {
+        CacheManager manager = cacheManager.getIfAvailable();
+        List<Long> ids = vacancyIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (manager == null || ids.isEmpty()) {
+            return;
+        }
+        Cache dtos = manager.getCache(CacheConfig.VACANCY_DTOS);
+        // elke pagina kan de gewijzigde vacancy bevatten (of er door verschuiven): de hele lijst weg
+        Cache listResponses = manager.getCache(CacheConfig.VACANCY_LIST_RESPONSES);
+        Runnable evict = () -> {
+            if (dtos != null) {
+                ids.forEach(dtos::evict);
+            }
+            if (listResponses != null) {
+                listResponses.clear();
+            }
+        };
+        evict.run();
+        // nogmaals na de commit: een gelijktijdige read kan in de tussentijd de oude stand opnieuw gecachet hebben
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+    }
+}
@@ -1,20 +1,35 @@
 package nl.andarabski.service;
 
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
+import nl.andarabski.config.CacheConfig;
 import nl.andarabski.converter.ApplicationToApplicationDtoConverter;
 import nl.andarabski.converter.VacancyDtoToVacancyConverter;
 import nl.andarabski.converter.VacancyToVacancyDtoConverter;
 import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.CursorPageDto;
+import nl.andarabski.dto.DeleteResultDto;
 import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.dto.VacancySummaryDto;
 import nl.andarabski.mapper.VacancyMapper;
 import nl.andarabski.model.Application;
 import nl.andarabski.model.ApplicationStatus;
 import nl.andarabski.model.User;
 import nl.andarabski.model.Vacancy;
 import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
 import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.repository.projection.ApplicationView;
+import nl.andarabski.repository.projection.VacancySummaryView;
+import nl.andarabski.repository.projection.VacancyView;
+import nl.andarabski.system.exception.InvalidRequestException;
 import nl.andarabski.system.exception.ObjectNotFoundException;
+import nl.andarabski.util.ApplicationUtil;
+import nl.andarabski.util.CursorUtil;
+import nl.andarabski.util.ETagUtil;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.RequestMapping;
 
@@ -31,17 +46,76 @@ public class VacancyService {
     private final VacancyRepository vacancyRepository;
     private final ApplicationRepository applicationRepository;
     private final VacancyMapper vacancyMapper;
+    private final VacancyDtoCache vacancyDtoCache;
+    private final UserRepository userRepository;
 
 
-    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    @Transactional(readOnly = true)
     public List<VacancyDto> findAll(){
         return vacancyRepository.findAll().stream().map(vacancyMapper::toDto).toList();
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageDto<VacancySummaryDto> findPage(String cursor, Integer size) {
+        return findPage(cursor, size, false);
+    }
+
+    // Keyset-paginatie: per pagina een begrensde range-scan op id, constant geheugen ongeacht tabelgrootte.
+    // Samenvattingen met applicationCount uit SQL; payload en querykosten groeien niet mee met de applications
+    @Transactional(readOnly = true)
+    public CursorPageDto<VacancySummaryDto> findPage(String cursor, Integer size, boolean expandApplications) {
+        long afterId = CursorUtil.decode(cursor);
+        int pageSize = CursorUtil.clampSize(size);
+        List<VacancySummaryView> rows = vacancyRepository.findSummariesAfter(afterId, CursorUtil.probeLimit(pageSize));
+        return CursorUtil.toPageBatch(rows, pageSize, VacancySummaryView::id, page -> {
+            List<VacancySummaryDto> items = page.stream().map(vacancyMapper::toSummary).toList();
+            if (expandApplications) {
+                // 1 query voor de hele pagina, per vacancy begrensd; de rest via /vacancies/{id}/applications
+                Map<Long, List<ApplicationView>> byVacancy = applicationRepository
+                        .findFirstViewsByVacancyIdIn(page.stream().map(VacancySummaryView::id).toList(),
+                                CursorUtil.EMBEDDED_PAGE_SIZE)
+                        .stream()
+                        .collect(Collectors.groupingBy(ApplicationView::vacancyId));
+                for (VacancySummaryDto v : items) {
+                    List<ApplicationView> first = byVacancy.getOrDefault(v.getId(), List.of());
+                    v.setApplications(vacancyMapper.toApplicationDtos(first));
+                    v.setApplicationsNextCursor(CursorUtil.remainderCursor(first, v.getApplicationCount(), ApplicationView::id));
+                }
+            }
+            return items;
+        });
+    }
+
+    // GET /vacancies/{id}/applications: keyset binnen de vacancy (idx_application_vacancy_id)
+    @Transactional(readOnly = true)
+    public CursorPageDto<ApplicationDto> findApplications(Long vacancyId, String cursor, Integer size) {
+        long afterId = CursorUtil.decode(cursor);
+        int pageSize = CursorUtil.clampSize(size);
+        List<ApplicationView> rows = applicationRepository
+                .findViewsByVacancyIdAfter(vacancyId, afterId, CursorUtil.probeLimit(pageSize));
+        // alleen bij een lege pagina: bestaat de vacancy wel?
+        if (rows.isEmpty() && !vacancyRepository.existsById(vacancyId)) {
+            throw new ObjectNotFoundException("Vacancy", vacancyId);
+        }
+        return CursorUtil.toPageBatch(rows, pageSize, ApplicationView::id, vacancyMapper::toApplicationDtos);
+    }
+
+    // kant-en-klare dto per id; invalidatie via VacancyDtoCache bij writes op de vacancy of zijn applications
+    @Cacheable(cacheNames = CacheConfig.VACANCY_DTOS, key = "#vacancyId")
+    @Transactional(readOnly = true)
     public VacancyDto findById(Long vacancyId){
-        Vacancy vacancy = vacancyRepository.findById(vacancyId)
+        // projecties: alleen de dto-kolommen, geen managed entities/snapshots in de persistence context
+        VacancyView vacancy = vacancyRepository.findViewById(vacancyId)
+                .orElseThrow(() -> new ObjectNotFoundException("Vacancy", vacancyId));
+        return vacancyMapper.toDto(vacancy, applicationRepository.findViewsByVacancyIdIn(List.of(vacancyId)));
+    }
+
+    // conditional GET/PUT: één query op de versiekolommen, zonder de dto op te bouwen
+    @Transactional(readOnly = true)
+    public String findETag(Long vacancyId) {
+        return vacancyRepository.findVersionStampById(vacancyId)
+                .map(ETagUtil::of)
                 .orElseThrow(() -> new ObjectNotFoundException("Vacancy", vacancyId));
-        return vacancyMapper.toDto(vacancy);
     }
 
 //    // NIEUW: pure DTO -> DTO voor de controller
@@ -81,7 +155,7 @@ public class VacancyService {
 
                         // defensief parsen van status
                         if (d.getStatus() != null) {
-                            a.setStatus(ApplicationStatus.valueOf(d.getStatus()));
+                            a.setStatus(ApplicationUtil.parseStatus(d.getStatus()));
                         }
 
                         // reference entity voor Vacancy (geen DB-call nodig)
@@ -104,12 +178,23 @@ public class VacancyService {
         }
         // 4) Persist & terug naar DTO
         Vacancy saved = vacancyRepository.save(vacancy);
+        vacancyDtoCache.evict(saved.getId()); // nieuwe vacancy: de gecachte lijst-pagina's kloppen niet meer
         return vacancyMapper.toDto(saved);
     }
 
     @Transactional
     public VacancyDto update(Long id, VacancyDto patch) {
-        Vacancy existing = vacancyRepository.findById(id).orElseThrow(() -> new ObjectNotFoundException("Vacancy", id));
+        return update(id, patch, null);
+    }
+
+    // ifMatch: ETag waarop de client zijn wijziging baseert (null = onvoorwaardelijk)
+    @Transactional
+    public VacancyDto update(Long id, VacancyDto patch, @Nullable String ifMatch) {
+        Vacancy existing = vacancyRepository.findWithApplicationsById(id).orElseThrow(() -> new ObjectNotFoundException("Vacancy", id));
+        // na het laden: een write die hierna nog commit, faalt bij onze flush op de versie-check (409)
+        if (ifMatch != null) {
+            ETagUtil.requireMatch(ifMatch, findETag(id), "Vacancy", id);
+        }
         existing.setTitle(patch.getTitle());
         existing.setCompanyName(patch.getCompanyName());
         existing.setDescription(patch.getDescription());
@@ -118,35 +203,86 @@ public class VacancyService {
         // Gebruik de mapper voor partial update (IGNORE nulls)
         vacancyMapper.update(existing, patch);
 
-        // Optioneel: speciale handling voor applications (als je dat bewust buiten de mapper wilt doen)
+        // applications buiten de mapper: diff tegen de bestaande rijen i.p.v. de collectie vervangen
         if (patch.getApplications() != null) {
-            List<Application> apps = patch.getApplications().stream()
-                    .map(d -> {
-                        Application a = new Application();
-                        a.setId(d.getId());
-                        a.setMotivation(d.getMotivation());
-                        a.setStatus(ApplicationStatus.valueOf(d.getStatus()));
-
-                        User u = new User();
-                        u.setId(d.getUserId());
-                        a.setUser(u);
-                        a.setVacancy(existing);
-                        return a;
-                    })
-                    .collect(Collectors.toList());
-            existing.setApplications(apps);
+            mergeApplications(existing, patch.getApplications());
         }
         Vacancy saved = vacancyRepository.save(existing);
+        vacancyDtoCache.evict(id);
         return vacancyMapper.toDto(saved);
     }
 
-    public void delete(Long vacancyId){
-        Vacancy vacancyToBeDeleted = this.vacancyRepository.findById(vacancyId)
-                .orElseThrow(() -> new ObjectNotFoundException("Vacancy", vacancyId));
-        vacancyToBeDeleted.removeAllApplications();
-        this.vacancyRepository.delete(vacancyToBeDeleted);
+    // JSON Merge Patch: alleen de meegestuurde velden via de IGNORE-null mapper, UPDATE op de gewijzigde kolommen
+    @Transactional
+    public VacancyDto patch(Long id, VacancyDto patch, @Nullable String ifMatch) {
+        Vacancy existing = vacancyRepository.findById(id).orElseThrow(() -> new ObjectNotFoundException("Vacancy", id));
+        if (ifMatch != null) {
+            ETagUtil.requireMatch(ifMatch, findETag(id), "Vacancy", id);
+        }
+        vacancyMapper.update(existing, patch);
+        if (patch.getApplications() != null) {
+            mergeApplications(existing, patch.getApplications());
+        }
+        Vacancy saved = vacancyRepository.save(existing);
+        vacancyDtoCache.evict(id);
+        return vacancyMapper.toDto(saved);
     }
 
+    public DeleteResultDto delete(Long vacancyId){
+        // set-based: de applications in één DELETE (idx_application_vacancy_id), dan de vacancy zelf; er wordt
+        // niets geladen. Bij een onbekende vacancy kan de eerste DELETE door de FK niets geraakt hebben
+        int applications = this.applicationRepository.bulkDeleteByVacancyId(vacancyId);
+        if (this.vacancyRepository.bulkDeleteById(vacancyId) == 0) {
+            throw new ObjectNotFoundException("Vacancy", vacancyId);
+        }
+        vacancyDtoCache.evict(vacancyId);
+        return new DeleteResultDto(vacancyId, applications);
+    }
 
+    // Diff op id: bestaande applications krijgen alleen hun gewijzigde velden (dirty checking -> UPDATE per
+    // gewijzigde rij), zonder id -> INSERT (cascade), niet meer in de lijst -> DELETE. Vacancy.applications
+    // heeft geen orphanRemoval, dus dat laatste expliciet. Ongewijzigde rijen kosten geen statement. Een onbekende
+    // user of een tweede application van dezelfde user faalt bij de flush hier (404/409).
+    private void mergeApplications(Vacancy vacancy, List<ApplicationDto> incoming) {
+        Map<Long, Application> current = new HashMap<>();
+        for (Application a : vacancy.getApplications()) {
+            current.put(a.getId(), a);
+        }
+        List<Application> added = new ArrayList<>();
+        // nieuw gekoppelde users: alleen die kunnen de foreign key schenden
+        Set<Long> referenced = new HashSet<>();
+        for (ApplicationDto d : incoming) {
+            if (d.getId() == null) {
+                if (d.getUserId() == null) {
+                    throw new InvalidRequestException("userId is required for a new application");
+                }
+                added.add(new Application(null, userRepository.getReferenceById(d.getUserId()), vacancy,
+                        d.getMotivation(), statusOf(d, ApplicationStatus.PENDING), new Date()));
+                referenced.add(d.getUserId());
+                continue;
+            }
+            Application a = current.remove(d.getId());
+            if (a == null) {
+                throw new InvalidRequestException("Application " + d.getId() + " does not belong to vacancy " + vacancy.getId());
+            }
+            a.setMotivation(d.getMotivation());
+            a.setStatus(statusOf(d, a.getStatus()));
+            if (d.getUserId() != null && !d.getUserId().equals(a.getUser().getId())) {
+                a.setUser(userRepository.getReferenceById(d.getUserId()));
+                referenced.add(d.getUserId());
+            }
+        }
+        vacancy.getApplications().removeIf(a -> current.containsKey(a.getId()));
+        applicationRepository.deleteAll(current.values());
+        added.forEach(vacancy::addApplication);
+        try {
+            vacancyRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw ApplicationUtil.translate(e, referenced, List.of(vacancy.getId()));
+        }
+    }
 
+    private static ApplicationStatus statusOf(ApplicationDto d, ApplicationStatus fallback) {
+        return d.getStatus() != null ? ApplicationUtil.parseStatus(d.getStatus()) : fallback;
+    }
 }
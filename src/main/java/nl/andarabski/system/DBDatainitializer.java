@@ -8,6 +8,8 @@ import nl.andarabski.repository.ApplicationRepository;
 import nl.andarabski.repository.UserRepository;
 import nl.andarabski.repository.VacancyRepository;
 import nl.andarabski.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -16,6 +18,7 @@ import java.util.List;
 @Component
 public class DBDatainitializer implements CommandLineRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(DBDatainitializer.class);
 
     private final UserRepository userRepository;
     private final VacancyRepository vacancyRepository;
@@ -33,6 +36,12 @@ public class DBDatainitializer implements CommandLineRunner {
     }
     @Override
     public void run(String... args) throws Exception {
+        // idempotent: met een database op schijf (profiel prod) staat de data er na een herstart nog;
+        // dan niets opnieuw seeden (count(*) zonder where is in H2 een metadata-lookup, geen scan)
+        if (userRepository.count() > 0 || vacancyRepository.count() > 0) {
+            log.info("Database already contains data, skipping seed");
+            return;
+        }
 
         User user1 = new User();
         user1.setFirstName("Andre");
@@ -71,9 +80,8 @@ public class DBDatainitializer implements CommandLineRunner {
         user3.setEnabled(true);
         user3.setApplications(listApplications);
 
-        user1 = userRepository.save(user1);
-        user2 = userRepository.save(user2);
-        user3 = userRepository.save(user3);
+        // saveAll: één flush met gebatchte inserts i.p.v. een save per rij
+        userRepository.saveAll(List.of(user1, user2, user3));
 
         Vacancy vacancy1 = new Vacancy();
         vacancy1.setTitle("Java Developer");
@@ -99,9 +107,7 @@ public class DBDatainitializer implements CommandLineRunner {
         vacancy3.setPostedAt(new java.util.Date());
         vacancy3.setApplications(listApplications);
 
-        vacancy1 = vacancyRepository.save(vacancy1);
-        vacancy2 = vacancyRepository.save(vacancy2);
-        vacancy3 = vacancyRepository.save(vacancy3);
+        vacancyRepository.saveAll(List.of(vacancy1, vacancy2, vacancy3));
 
         Application application1 = new Application();
         application1.setUser(user1);
@@ -128,9 +134,7 @@ public class DBDatainitializer implements CommandLineRunner {
         listApplications.add(application2);
         listApplications.add(application3);
 
-        repository.save(application1);
-        repository.save(application2);
-        repository.save(application3);
+        repository.saveAll(List.of(application1, application2, application3));
 
     }
 }
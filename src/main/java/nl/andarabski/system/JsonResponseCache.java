@@ -0,0 +1,75 @@
+package nl.andarabski.system;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * Opt-in cache van complete, al geserialiseerde responses (de Result-envelope als UTF-8 JSON) met een sterke
+ * ETag. Een hit kost geen mapping en geen serialisatie; een ongewijzigde If-None-Match geeft 304 zonder body.
+ */
+@Component
+public class JsonResponseCache {
+
+    public record Entry(byte[] body, String etag) {}
+
+    private final ObjectMapper objectMapper;
+    // optioneel: zonder @EnableCaching wordt er elke keer geserialiseerd (zelfde response, zelfde ETag)
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public JsonResponseCache(ObjectMapper objectMapper, ObjectProvider<CacheManager> cacheManager) {
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+    }
+
+    public ResponseEntity<byte[]> serve(String cacheName, Object key, WebRequest request, Supplier<Result> producer) {
+        Entry entry = lookup(cacheName, key, producer);
+        // bytes veranderen alleen na een write (en dan wordt de cache geleegd): altijd revalideren, verder niets
+        CacheControl cacheControl = CacheControl.noCache();
+        if (request.checkNotModified(entry.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entry.etag()).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(entry.etag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entry.body());
+    }
+
+    private Entry lookup(String cacheName, Object key, Supplier<Result> producer) {
+        CacheManager manager = cacheManager.getIfAvailable();
+        Cache cache = manager == null ? null : manager.getCache(cacheName);
+        if (cache == null) {
+            return serialize(producer.get());
+        }
+        try {
+            return cache.get(key, () -> serialize(producer.get()));
+        } catch (Cache.ValueRetrievalException e) {
+            // fouten van de producer (404, 400, ...) ongewijzigd doorgeven aan de ExceptionHandlerAdvice
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    private Entry serialize(Result result) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(result);
+            return new Entry(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response kon niet geserialiseerd worden", e);
+        }
+    }
+}
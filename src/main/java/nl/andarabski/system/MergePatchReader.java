@@ -0,0 +1,72 @@
+package nl.andarabski.system;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import nl.andarabski.system.exception.InvalidRequestException;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * JSON Merge Patch (RFC 7396) als dto voor de IGNORE-null update-methodes van de mappers: een ontbrekend veld
+ * blijft ongewijzigd. Een veld verwijderen (null) kan daarmee niet en de velden zijn verplicht, dus null is een
+ * ongeldige patch (400). Alleen de meegestuurde velden worden tegen de constraints van de dto gevalideerd.
+ */
+@Component
+public class MergePatchReader {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public MergePatchReader(ObjectMapper objectMapper, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    // readOnlyFields: velden die niet via een patch mogen veranderen (bijv. bestanden, die gaan via een upload)
+    public <T> T read(JsonNode patch, Class<T> type, String... readOnlyFields) {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidRequestException("A merge patch must be a JSON object");
+        }
+        for (String field : readOnlyFields) {
+            if (patch.has(field)) {
+                throw new InvalidRequestException("Field '" + field + "' cannot be changed with a merge patch");
+            }
+        }
+        for (Map.Entry<String, JsonNode> field : patch.properties()) {
+            if (field.getValue().isNull()) {
+                throw new InvalidRequestException("Field '" + field.getKey() + "' cannot be removed");
+            }
+        }
+        T dto;
+        try {
+            dto = objectMapper.treeToValue(patch, type);
+        } catch (JsonProcessingException e) {
+            throw new InvalidRequestException("Invalid merge patch: " + e.getOriginalMessage());
+        }
+        for (Iterator<String> it = patch.fieldNames(); it.hasNext(); ) {
+            String field = it.next();
+            // onbekende velden negeert Jackson al; die hebben ook geen constraints
+            if (hasProperty(type, field)) {
+                String errors = validator.validateProperty(dto, field).stream()
+                        .map(ConstraintViolation::getMessage)
+                        .collect(Collectors.joining(", "));
+                if (!errors.isEmpty()) {
+                    throw new InvalidRequestException("Field '" + field + "': " + errors);
+                }
+            }
+        }
+        return dto;
+    }
+
+    private boolean hasProperty(Class<?> type, String field) {
+        return validator.getConstraintsForClass(type).getConstraintsForProperty(field) != null;
+    }
+}
@@ -24,6 +24,8 @@ public class StatusCode {
 
     public static final int CONFLICT = 409;
 
+    public static final int PRECONDITION_FAILED = 412; // If-Match komt niet overeen met de huidige ETag
+
     public static final int INTERNAL_SERVER_ERROR = 500; // Server internal error
     public static final Integer ERROR = 404;
 
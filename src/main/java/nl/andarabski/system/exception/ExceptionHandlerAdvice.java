@@ -5,6 +5,7 @@ import nl.andarabski.system.Result;
 import nl.andarabski.system.StatusCode;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
@@ -73,6 +74,13 @@ public class ExceptionHandlerAdvice {
         return new Result(false, StatusCode.INVALID_ARGUMENT, "Invalid request payload", ex.getMessage());
     }
 
+    // 400 — Ongeldige query-parameters, zoals een onleesbare paginatie-cursor
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Result handleInvalidRequest(InvalidRequestException ex) {
+        return new Result(false, StatusCode.INVALID_ARGUMENT, ex.getMessage(), null);
+    }
+
     // 400 — Upload gerelateerde fouten (te groot/beschadigd)
     @ExceptionHandler({ MaxUploadSizeExceededException.class, MultipartException.class, HttpMediaTypeNotSupportedException.class })
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -94,6 +102,20 @@ public class ExceptionHandlerAdvice {
         return new Result(false, StatusCode.CONFLICT, ex.getMessage(), null);
     }
 
+    // 409 — gelijktijdige write: de @Version-check bij de flush faalde
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Result handleOptimisticLock(OptimisticLockingFailureException ex) {
+        return new Result(false, StatusCode.CONFLICT, "The object was modified concurrently, reload it and try again", null);
+    }
+
+    // 412 — If-Match hoort bij een verouderde versie
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public Result handlePreconditionFailed(PreconditionFailedException ex) {
+        return new Result(false, StatusCode.PRECONDITION_FAILED, ex.getMessage(), null);
+    }
+
     @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
     @ResponseStatus(HttpStatus.METHOD_NOT_ALLOWED)
     public Result handleMethodNotSupported(HttpRequestMethodNotSupportedException ex) {
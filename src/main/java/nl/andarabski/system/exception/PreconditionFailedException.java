@@ -0,0 +1,12 @@
+package nl.andarabski.system.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String objectName, Long id) {
+        super(objectName + " with Id: " + id + " has been modified, reload it and try again");
+    }
+}
@@ -0,0 +1,72 @@
+package nl.andarabski.util;
+
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.system.exception.InvalidRequestException;
+import nl.andarabski.system.exception.ObjectNotFoundException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Invoer en constraints van applications, gedeeld door alle paden die ze schrijven (apply, PUT/PATCH van een
+ * application en de applications-lijst van een user of vacancy), zodat dezelfde fout overal dezelfde status geeft.
+ */
+public final class ApplicationUtil {
+
+    private ApplicationUtil() {}
+
+    /** Hoofdletterongevoelig; een onbekende status is een fout van de client (400), geen conflict. */
+    public static ApplicationStatus parseStatus(String status) {
+        try {
+            return ApplicationStatus.valueOf(status.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unknown application status: " + status);
+        }
+    }
+
+    /**
+     * Vertaalt een constraint violation bij het wegschrijven van applications: dubbele apply wordt een 409, een
+     * onbekende user/vacancy een 404 met de ids waarnaar verwezen werd. Andere violations blijven ongewijzigd.
+     */
+    public static RuntimeException translate(DataIntegrityViolationException e,
+                                             Collection<Long> userIds, Collection<Long> vacancyIds) {
+        if (violates(e, Application.UK_USER_VACANCY)) {
+            return new IllegalArgumentException("User already applied to this vacancy");
+        }
+        if (violates(e, Application.FK_USER)) {
+            return notFound("User", userIds);
+        }
+        if (violates(e, Application.FK_VACANCY)) {
+            return notFound("Vacancy", vacancyIds);
+        }
+        return e;
+    }
+
+    // H2 en andere databases melden de naam met schema/suffix en in hoofdletters; bij een batch-insert kapt
+    // Hibernate de naam soms af, daarom ook de melding van de database zelf
+    public static boolean violates(DataIntegrityViolationException e, String constraint) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException cve) {
+                return mentions(cve.getConstraintName(), constraint)
+                        || (cve.getSQLException() != null && mentions(cve.getSQLException().getMessage(), constraint));
+            }
+        }
+        return false;
+    }
+
+    private static boolean mentions(String text, String constraint) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(constraint);
+    }
+
+    // zonder ids (bijv. een batch die zijn pogingen opmaakt) alleen het type
+    private static ObjectNotFoundException notFound(String objectName, Collection<Long> ids) {
+        String joined = ids.stream().filter(Objects::nonNull).distinct().sorted()
+                .map(String::valueOf).collect(Collectors.joining(", "));
+        return joined.isEmpty() ? new ObjectNotFoundException(objectName) : new ObjectNotFoundException(objectName, joined);
+    }
+}
@@ -0,0 +1,97 @@
+package nl.andarabski.util;
+
+import nl.andarabski.dto.CursorPageDto;
+import nl.andarabski.system.exception.InvalidRequestException;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helpers voor keyset-paginatie op id: de cursor is het (base64url-gecodeerde) laatste id van de vorige pagina,
+ * zodat elke pagina een begrensde range-scan op de primary key is ({@code where id > :afterId order by id limit n}).
+ */
+public final class CursorUtil {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    // zoveel applications bedt een lijst-item in bij ?expand=applications; de rest via de sub-resource
+    public static final int EMBEDDED_PAGE_SIZE = 10;
+
+    private static final String PREFIX = "id:";
+
+    private CursorUtil() {}
+
+    public static String encode(Long lastId) {
+        byte[] raw = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /** Geeft het id terug waarna de volgende pagina begint; 0 voor de eerste pagina. */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new InvalidRequestException("Invalid cursor: " + cursor);
+            }
+            long afterId = Long.parseLong(raw.substring(PREFIX.length()));
+            if (afterId < 0) {
+                throw new InvalidRequestException("Invalid cursor: " + cursor);
+            }
+            return afterId;
+        } catch (IllegalArgumentException e) { // ook NumberFormatException
+            throw new InvalidRequestException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public static int clampSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (size < 1) {
+            throw new InvalidRequestException("Page size must be at least 1");
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    /** Eén rij extra ophalen om te weten of er nog een volgende pagina is, zonder count-query. */
+    public static Limit probeLimit(int size) {
+        return Limit.of(size + 1);
+    }
+
+    /**
+     * Knipt de probe-rij eraf, mapt de rest en zet de cursor op het laatste id van deze pagina.
+     */
+    public static <E, D> CursorPageDto<D> toPage(List<E> rows, int size, Function<E, Long> idOf, Function<E, D> mapper) {
+        return toPageBatch(rows, size, idOf, page -> page.stream().map(mapper).toList());
+    }
+
+    /**
+     * Zoals {@link #toPage}, maar mapt de hele pagina in één keer, zodat kind-rijen voor alle ids
+     * van de pagina met één IN-query opgehaald kunnen worden.
+     */
+    public static <E, D> CursorPageDto<D> toPageBatch(List<E> rows, int size, Function<E, Long> idOf,
+                                                       Function<List<E>, List<D>> pageMapper) {
+        boolean hasMore = rows.size() > size;
+        List<E> page = hasMore ? rows.subList(0, size) : rows;
+        List<D> items = page.isEmpty() ? List.of() : pageMapper.apply(page);
+        String next = hasMore ? encode(idOf.apply(page.get(page.size() - 1))) : null;
+        return new CursorPageDto<>(items, next, size);
+    }
+
+    /**
+     * Cursor naar de rest van een ingebedde eerste pagina uit in totaal {@code total} rijen, of {@code null} als
+     * alles er al in zit. Het is een gewone cursor: de client pagineert ermee verder op de sub-resource.
+     */
+    public static <E> String remainderCursor(List<E> embedded, long total, Function<E, Long> idOf) {
+        if (embedded.isEmpty() || embedded.size() >= total) {
+            return null;
+        }
+        return encode(idOf.apply(embedded.get(embedded.size() - 1)));
+    }
+}
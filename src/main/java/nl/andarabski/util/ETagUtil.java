@@ -0,0 +1,48 @@
+package nl.andarabski.util;
+
+import nl.andarabski.repository.projection.VersionStamp;
+import nl.andarabski.system.exception.PreconditionFailedException;
+import org.springframework.lang.Nullable;
+
+/**
+ * Sterke ETags op basis van de @Version-kolommen. Een user of vacancy toont ook zijn applications, dus hun
+ * ETag bevat naast de eigen versie aantal, som van de ids en som van de versies van die applications: een nieuwe,
+ * gewijzigde of verwijderde application levert een andere ETag op zonder de (gecachte) parent te schrijven.
+ */
+public final class ETagUtil {
+
+    private ETagUtil() {}
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    public static String of(VersionStamp stamp) {
+        if (stamp.applications() == 0) {
+            return of(stamp.version());
+        }
+        return "\"" + stamp.version() + "-" + stamp.applications() + "-" + stamp.applicationIdSum()
+                + "-" + stamp.applicationVersionSum() + "\"";
+    }
+
+    /** If-Match (RFC 9110): ontbreekt de header dan is er geen voorwaarde; {@code *} of een lijst van ETags. */
+    public static boolean matches(@Nullable String ifMatch, String current) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return true;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            // weak ETags tellen niet mee bij If-Match (strong comparison)
+            if (tag.equals("*") || tag.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void requireMatch(@Nullable String ifMatch, String current, String objectName, Long id) {
+        if (!matches(ifMatch, current)) {
+            throw new PreconditionFailedException(objectName, id);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package nl.andarabski.util;
+
+import nl.andarabski.system.exception.InvalidRequestException;
+import org.springframework.lang.Nullable;
+
+/**
+ * {@code ?expand=...} op de lijst-endpoints: geneste collecties alleen op verzoek. Op dit moment is
+ * {@code applications} de enige waarde; een onbekende waarde is een fout van de client (400).
+ */
+public final class ExpandUtil {
+
+    public static final String APPLICATIONS = "applications";
+
+    private ExpandUtil() {}
+
+    public static boolean applications(@Nullable String expand) {
+        if (expand == null || expand.isBlank()) {
+            return false;
+        }
+        for (String part : expand.split(",")) {
+            String value = part.trim();
+            if (!value.equals(APPLICATIONS)) {
+                throw new InvalidRequestException("Unknown expand value '" + value + "', supported: " + APPLICATIONS);
+            }
+        }
+        return true;
+    }
+}
@@ -3,6 +3,7 @@ package nl.andarabski.util;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import nl.andarabski.dto.ApplicationDto;
 import nl.andarabski.system.Result;
 import org.springframework.web.multipart.MultipartFile;
@@ -15,6 +16,9 @@ public class UserValidationUtil {
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
     private static final Pattern EMAIL_PATTERN =
             Pattern.compile("^[\\w-\\.]+@([\\w-]+\\.)+[\\w-]{2,4}$");
+    // gedeeld i.p.v. per aanroep een nieuwe ObjectMapper (die zijn (de)serializer-caches telkens opnieuw opbouwt)
+    private static final ObjectReader APPLICATIONS_READER =
+            new ObjectMapper().readerFor(new TypeReference<List<ApplicationDto>>() {});
 
     public static Result validateFile(MultipartFile file, String fieldName) {
         if (file == null || file.isEmpty()) {
@@ -55,7 +59,6 @@ public class UserValidationUtil {
     }
 
     public static List<ApplicationDto> parseApplicationsJson(String applicationsJson) throws JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(applicationsJson, new TypeReference<>() {});
+        return APPLICATIONS_READER.readValue(applicationsJson);
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+-- Basisschema. Sequences met increment 50 = allocationSize van de entities (pooled-lo optimizer).
+
+create sequence app_user_seq start with 1 increment by 50;
+create sequence vacancy_seq start with 1 increment by 50;
+create sequence application_seq start with 1 increment by 50;
+
+create table app_user (
+    id                 bigint       not null,
+    version            bigint       not null,
+    first_name         varchar(255) not null,
+    last_name          varchar(255) not null,
+    email              varchar(255) not null,
+    password           varchar(255) not null,
+    age                integer      not null,
+    photo              varchar(255),
+    cv                 varchar(255),
+    photo_thumbnail64  varchar(255),
+    photo_thumbnail256 varchar(255),
+    role               varchar(255) not null,
+    enabled            boolean      not null,
+    constraint pk_app_user primary key (id)
+);
+
+-- opzoeken op e-mailadres (UserRepository.existsByEmail); niet uniek, dubbele adressen worden nog niet geweigerd
+create index idx_app_user_email on app_user (email);
+
+create table vacancy (
+    id           bigint       not null,
+    version      bigint       not null,
+    title        varchar(255),
+    company_name varchar(255),
+    description  varchar(255),
+    location     varchar(255),
+    posted_at    timestamp(6),
+    constraint pk_vacancy primary key (id)
+);
+
+create table application (
+    id         bigint       not null,
+    version    bigint       not null,
+    user_id    bigint       not null,
+    vacancy_id bigint,
+    motivation varchar(255),
+    status     enum ('APPLIED', 'COMPLETE', 'FAILED', 'PENDING', 'REJECTED') not null,
+    applied_at timestamp(6),
+    constraint pk_application primary key (id),
+    -- één application per user per vacancy; user_id als eerste kolom dekt ook de lookups per user
+    constraint uk_application_user_vacancy unique (user_id, vacancy_id)
+);
+
+-- applications van een (pagina) vacancies: where vacancy_id in (...)
+create index idx_application_vacancy_id on application (vacancy_id);
+-- nieuwste applications per status: where status = ? order by applied_at desc
+create index idx_application_status_applied_at on application (status, applied_at);
+
+-- foreign keys pas na de indexen: dan gebruikt de database die i.p.v. er zelf nog een per FK aan te maken
+alter table application add constraint fk_application_user foreign key (user_id) references app_user (id);
+alter table application add constraint fk_application_vacancy foreign key (vacancy_id) references vacancy (id);
+
+create table stored_file (
+    digest            varchar(64)  not null,
+    size              bigint       not null,
+    content_type      varchar(255),
+    original_filename varchar(255),
+    ref_count         integer      not null,
+    created_at        timestamp(6),
+    constraint pk_stored_file primary key (digest)
+);
@@ -0,0 +1,4 @@
+-- ETag van een vacancy of user: count/sum over (id, version) van zijn applications, alleen uit de index.
+-- Naast de FK-indexen: H2 laat een foreign key alleen op een index met precies zijn eigen kolommen leunen.
+create index idx_application_vacancy_version on application (vacancy_id, id, version);
+create index idx_application_user_version on application (user_id, id, version);
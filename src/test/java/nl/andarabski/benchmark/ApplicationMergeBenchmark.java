@@ -0,0 +1,158 @@
+package nl.andarabski.benchmark;
+
+import jakarta.persistence.EntityManagerFactory;
+import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.UserDto;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.mapper.UserMapperImpl;
+import nl.andarabski.mapper.VacancyMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.service.FileStorageService;
+import nl.andarabski.service.UserService;
+import nl.andarabski.service.VacancyDtoCache;
+import nl.andarabski.service.VacancyService;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PUT met 1.000 applications waarvan er één gewijzigd is: de collectie vervangen door nieuwe instanties (oud)
+ * tegenover diffen op id (nieuw). Elke update in een eigen transactie, zoals via de controller. Het oude pad
+ * wordt op de vacancy gemeten: op de user faalde het al (onveranderlijke lijst in merge(), en vervangen van een
+ * orphanRemoval-collectie), daar is alleen het nieuwe pad te meten.
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({UserService.class, VacancyService.class, VacancyDtoCache.class, FileStorageService.class,
+        UserMapperImpl.class, VacancyMapperImpl.class, ApplicationMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ApplicationMergeBenchmark {
+
+    private static final int APPLICATIONS = 1_000;
+    private static final int UPDATES = 50;
+    private static final long BULK_ID = 1_000_000L;
+
+    @Autowired EntityManagerFactory emf;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired UserService userService;
+    @Autowired VacancyService vacancyService;
+    @Autowired UserRepository userRepository;
+    @Autowired VacancyRepository vacancyRepository;
+    @Autowired ApplicationRepository applicationRepository;
+
+    @AfterEach
+    void cleanUp() {
+        applicationRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        vacancyRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void replaceVersusDiff() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        Long userId = userRepository.save(TD.user(null)).getId();
+        Long vacancyId = vacancyRepository.save(TD.vacancy(null)).getId();
+        tx.executeWithoutResult(s -> {
+            // user met 1.000 applications op 1.000 vacancies, vacancy met 1.000 applications van 1.000 users
+            jdbc.update("insert into vacancy (id, version, title, company_name, description, location, posted_at) "
+                    + "select ? + x, 0, 'Vacancy ' || x, 'Company', 'Description', 'Amsterdam', current_timestamp "
+                    + "from system_range(0, ? - 1)", BULK_ID, APPLICATIONS);
+            jdbc.update("insert into app_user (id, version, first_name, last_name, email, password, age, role, enabled) "
+                    + "select ? + x, 0, 'First', 'Last', 'bulk' || (? + x) || '@example.com', 'secret', 30, 'user', true "
+                    + "from system_range(0, ? - 1)", BULK_ID, BULK_ID, APPLICATIONS);
+            jdbc.update("insert into application (id, version, user_id, vacancy_id, motivation, status, applied_at) "
+                    + "select ? + x, 0, ?, ? + x, 'Motivation', 'APPLIED', current_timestamp "
+                    + "from system_range(0, ? - 1)", BULK_ID, userId, BULK_ID, APPLICATIONS);
+            jdbc.update("insert into application (id, version, user_id, vacancy_id, motivation, status, applied_at) "
+                    + "select ? + x, 0, ? + x, ?, 'Motivation', 'APPLIED', current_timestamp "
+                    + "from system_range(0, ? - 1)", BULK_ID + APPLICATIONS, BULK_ID, vacancyId, APPLICATIONS);
+        });
+        VacancyDto vacancyPatch = vacancyService.findById(vacancyId);
+        UserDto userPatch = userService.findById(userId);
+
+        // oud pad, zoals VacancyService.update vóór deze wijziging (alleen het applications-deel)
+        BiConsumer<Long, List<ApplicationDto>> replace = (id, incoming) -> tx.executeWithoutResult(s -> {
+            Vacancy existing = vacancyRepository.findWithApplicationsById(id).orElseThrow();
+            Map<Long, Long> versions = existing.getApplications().stream()
+                    .collect(Collectors.toMap(Application::getId, Application::getVersion));
+            List<Application> apps = incoming.stream()
+                    .map(d -> {
+                        Application a = new Application();
+                        a.setId(d.getId());
+                        a.setVersion(versions.getOrDefault(d.getId(), 0L));
+                        a.setMotivation(d.getMotivation());
+                        a.setStatus(ApplicationStatus.valueOf(d.getStatus()));
+                        User u = new User();
+                        u.setId(d.getUserId());
+                        a.setUser(u);
+                        a.setVacancy(existing);
+                        return a;
+                    })
+                    .collect(Collectors.toList());
+            existing.setApplications(apps);
+            vacancyRepository.save(existing);
+        });
+        BiConsumer<Long, List<ApplicationDto>> diffVacancy = (id, incoming) -> vacancyService.update(id, vacancyPatch);
+        BiConsumer<Long, List<ApplicationDto>> diffUser = (id, incoming) -> userService.update(id, userPatch, null, null);
+
+        // eerste ronde is warm-up
+        run(null, replace, vacancyId, vacancyPatch.getApplications());
+        run(null, diffVacancy, vacancyId, vacancyPatch.getApplications());
+        run(null, diffUser, userId, userPatch.getApplications());
+        Result old = run("vacancy, replace", replace, vacancyId, vacancyPatch.getApplications());
+        Result diff = run("vacancy, diff by id", diffVacancy, vacancyId, vacancyPatch.getApplications());
+        Result user = run("user, diff by id", diffUser, userId, userPatch.getApplications());
+
+        // één gewijzigde application: één UPDATE, ongeacht de grootte van de collectie; vervangen verhoogt
+        // daarnaast de versie van de vacancy zelf (collectie gewijzigd)
+        assertThat(diff.updatedRows()).isEqualTo(1.0);
+        assertThat(user.updatedRows()).isEqualTo(1.0);
+        assertThat(old.updatedRows()).isGreaterThan(diff.updatedRows());
+    }
+
+    record Result(double millis, double statements, double updatedRows) {}
+
+    private Result run(String name, BiConsumer<Long, List<ApplicationDto>> update, Long id, List<ApplicationDto> applications) {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            // telkens één andere application gewijzigd
+            applications.get(i).setMotivation("Aangepast " + System.nanoTime());
+            update.accept(id, applications);
+        }
+        Result result = new Result((System.nanoTime() - t0) / 1_000_000d / UPDATES,
+                stats.getPrepareStatementCount() / (double) UPDATES,
+                stats.getEntityUpdateCount() / (double) UPDATES);
+        if (name != null) {
+            System.out.printf("[benchmark] %-20s %8.2f ms/update, %7.1f statements/update, %6.1f updated rows/update%n",
+                    name, result.millis(), result.statements(), result.updatedRows());
+        }
+        assertThat(applicationRepository.count()).isEqualTo(2L * APPLICATIONS);
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package nl.andarabski.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import nl.andarabski.dto.ApplicationDto;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: kosten per aanroep van het parsen van het multipart-veld {@code applications}, met een nieuwe
+ * ObjectMapper per aanroep (oud) tegenover de gedeelde ObjectReader (JacksonConfig).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApplicationsJsonBenchmark {
+
+    private static final TypeReference<List<ApplicationDto>> TYPE = new TypeReference<>() {};
+
+    private final ObjectReader sharedReader = new ObjectMapper().readerFor(TYPE);
+
+    // een typische create/update: een paar applications in het formulier
+    private final String json = """
+            [{"vacancyId":1,"motivation":"Graag!","status":"APPLIED"},
+             {"vacancyId":2,"motivation":"Ervaring met Java","status":"APPLIED"},
+             {"vacancyId":3,"motivation":"Past goed","status":"PENDING"}]
+            """;
+
+    @Benchmark
+    public List<ApplicationDto> newObjectMapperPerCall() throws Exception {
+        return new ObjectMapper().readValue(json, TYPE);
+    }
+
+    @Benchmark
+    public List<ApplicationDto> sharedObjectReader() throws Exception {
+        return sharedReader.readValue(json);
+    }
+
+    @Test
+    void run() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ApplicationsJsonBenchmark.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        for (RunResult r : results) {
+            String name = r.getParams().getBenchmark().substring(r.getParams().getBenchmark().lastIndexOf('.') + 1);
+            var alloc = r.getSecondaryResults().get("gc.alloc.rate.norm");
+            System.out.printf("[benchmark] %-40s avg=%10.2f us/op  alloc=%,12.0f B/op%n",
+                    name, r.getPrimaryResult().getScore(), alloc == null ? Double.NaN : alloc.getScore());
+        }
+    }
+}
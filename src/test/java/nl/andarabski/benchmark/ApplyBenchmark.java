@@ -0,0 +1,126 @@
+package nl.andarabski.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.service.VacancyDtoCache;
+import nl.andarabski.service.ApplicationService;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Apply-doorvoer: check-then-insert (exists-query + save, oud) tegenover direct inserten en de
+ * unique constraint laten beslissen (nieuw). Elke apply in een eigen transactie, zoals via de controller.
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ApplicationService.class, VacancyDtoCache.class, ApplicationMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ApplyBenchmark {
+
+    private static final int USERS = 500;
+    private static final int VACANCIES = 20;
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired ApplicationService applicationService;
+    @Autowired ApplicationRepository applicationRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired VacancyRepository vacancyRepository;
+
+    @Test
+    void checkThenInsertVersusConstraint() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        List<Long> userIds = new ArrayList<>();
+        List<Long> vacancyIds = new ArrayList<>();
+        tx.executeWithoutResult(s -> {
+            for (int i = 0; i < USERS; i++) {
+                User u = TD.user(null);
+                em.persist(u);
+                userIds.add(u.getId());
+            }
+            for (int i = 0; i < VACANCIES; i++) {
+                Vacancy v = TD.vacancy(null);
+                em.persist(v);
+                vacancyIds.add(v.getId());
+            }
+        });
+
+        // oud pad, zoals applyToVacancy vóór deze wijziging
+        BiConsumer<Long, Long> checkThenInsert = (userId, vacancyId) -> tx.executeWithoutResult(s -> {
+            User user = userRepository.findById(userId).orElseThrow();
+            Vacancy vacancy = vacancyRepository.findById(vacancyId).orElseThrow();
+            if (applicationRepository.existsByUserIdAndVacancyId(userId, vacancyId)) {
+                throw new IllegalArgumentException("User already applied to this vacancy");
+            }
+            applicationRepository.save(new Application(null, user, vacancy, "motivation", ApplicationStatus.PENDING, new Date()));
+        });
+        BiConsumer<Long, Long> insert = (userId, vacancyId) -> applicationService.applyToVacancy(userId, vacancyId, "motivation");
+
+        // warm-up: beide paden door de JIT, resultaten weggooien
+        List<Long> warmupUsers = userIds.subList(0, USERS / 5);
+        for (int i = 0; i < 3; i++) {
+            run(null, warmupUsers, vacancyIds, checkThenInsert);
+            run(null, warmupUsers, vacancyIds, insert);
+        }
+
+        run("check-then-insert", userIds, vacancyIds, checkThenInsert);
+        run("insert + unique constraint", userIds, vacancyIds, insert);
+    }
+
+    private void run(String name, List<Long> userIds, List<Long> vacancyIds, BiConsumer<Long, Long> apply) {
+        applicationRepository.deleteAllInBatch();
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        int applies = 0;
+        int conflicts = 0;
+        long t0 = System.nanoTime();
+        for (Long userId : userIds) {
+            for (Long vacancyId : vacancyIds) {
+                apply.accept(userId, vacancyId);
+                applies++;
+            }
+            // elke user probeert de eerste vacancy nog een keer: het duplicaat-pad telt ook mee
+            try {
+                apply.accept(userId, vacancyIds.get(0));
+            } catch (IllegalArgumentException e) {
+                conflicts++;
+            }
+        }
+        long nanos = System.nanoTime() - t0;
+
+        if (name == null) {
+            return;
+        }
+        System.out.printf("[benchmark] %-28s %,d applies + %,d duplicates: %,.0f ms, %,.0f ops/sec, %.1f statements/op%n",
+                name, applies, conflicts, nanos / 1_000_000d,
+                (applies + conflicts) / (nanos / 1_000_000_000d),
+                stats.getPrepareStatementCount() / (double) (applies + conflicts));
+        assertThat(conflicts).isEqualTo(userIds.size());
+        assertThat(applicationRepository.count()).isEqualTo((long) applies);
+    }
+}
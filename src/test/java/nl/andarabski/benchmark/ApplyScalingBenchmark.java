@@ -0,0 +1,119 @@
+package nl.andarabski.benchmark;
+
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.service.ApplicationService;
+import nl.andarabski.service.VacancyDtoCache;
+import nl.andarabski.testsupport.TD;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Apply-latency op een vacancy met 10 en met 100.000 applicants: het oude pad (user en vacancy laden en de
+ * application aan beide collecties toevoegen) tegenover alleen references. Elke apply in een eigen transactie,
+ * zoals via de controller. NB: op een niet-geïnitialiseerde inverse bag zet Hibernate add() in een wachtrij
+ * zonder de collectie te laden; het oude pad betaalt dus vooral de twee entity-loads.
+ */
+@DataJpaTest(showSql = false)
+@Import({ApplicationService.class, VacancyDtoCache.class, ApplicationMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ApplyScalingBenchmark {
+
+    private static final int MANY = 100_000;
+    private static final int APPLIES = 200;
+    private static final long BULK_ID = 1_000_000L;
+
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired ApplicationService applicationService;
+    @Autowired ApplicationRepository applicationRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired VacancyRepository vacancyRepository;
+
+    @AfterEach
+    void cleanUp() {
+        applicationRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        vacancyRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void applyLatencyVersusApplicantCount() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        Long few = vacancyRepository.save(TD.vacancy(null)).getId();
+        Long many = vacancyRepository.save(TD.vacancy(null)).getId();
+        tx.executeWithoutResult(s -> {
+            insertUsers(BULK_ID, MANY + 2 * APPLIES);
+            insertApplications(BULK_ID, few, 10);
+            insertApplications(BULK_ID, many, MANY);
+        });
+
+        // oud pad, zoals applyToVacancy vóór deze wijziging
+        BiConsumer<Long, Long> loadCollections = (userId, vacancyId) -> tx.executeWithoutResult(s -> {
+            User user = userRepository.findById(userId).orElseThrow();
+            Vacancy vacancy = vacancyRepository.findById(vacancyId).orElseThrow();
+            Application application = new Application(null, user, vacancy, "motivation", ApplicationStatus.PENDING, new Date());
+            user.getApplications().add(application);
+            vacancy.getApplications().add(application);
+            applicationRepository.saveAndFlush(application);
+        });
+        BiConsumer<Long, Long> references = (userId, vacancyId) -> applicationService.applyToVacancy(userId, vacancyId, "motivation");
+
+        // per pad eigen users: (user_id, vacancy_id) is uniek
+        long oldUsers = BULK_ID + MANY;
+        long newUsers = oldUsers + APPLIES;
+        run("load collections, 10 applicants", loadCollections, oldUsers, few);
+        double oldMany = run("load collections, 100k applicants", loadCollections, oldUsers, many);
+        double newFew = run("references, 10 applicants", references, newUsers, few);
+        double newMany = run("references, 100k applicants", references, newUsers, many);
+
+        // ruime marge tegen ruis: het aantal applicants mag de apply niet merkbaar duurder maken
+        assertThat(newMany).isLessThan(Math.max(newFew, 0.5) * 5);
+        assertThat(newMany).isLessThan(oldMany);
+    }
+
+    private double run(String name, BiConsumer<Long, Long> apply, long firstUser, Long vacancyId) {
+        // de eerste helft is warm-up en telt niet mee
+        long t0 = 0;
+        for (int i = 0; i < APPLIES; i++) {
+            if (i == APPLIES / 2) {
+                t0 = System.nanoTime();
+            }
+            apply.accept(firstUser + i, vacancyId);
+        }
+        double millisPerApply = (System.nanoTime() - t0) / 1_000_000d / (APPLIES - APPLIES / 2);
+        System.out.printf("[benchmark] %-36s %8.3f ms/apply%n", name, millisPerApply);
+        return millisPerApply;
+    }
+
+    private void insertUsers(long firstId, int count) {
+        jdbc.update("insert into app_user (id, version, first_name, last_name, email, password, age, role, enabled) "
+                + "select ? + x, 0, 'First', 'Last', 'bulk' || (? + x) || '@example.com', 'secret', 30, 'user', true "
+                + "from system_range(0, ? - 1)", firstId, firstId, count);
+    }
+
+    private void insertApplications(long firstUserId, Long vacancyId, int count) {
+        jdbc.update("insert into application (id, version, user_id, vacancy_id, motivation, status, applied_at) "
+                + "select ? + x, 0, ? + x, ?, 'Motivation', 'APPLIED', current_timestamp "
+                + "from system_range(0, ? - 1)", BULK_ID + vacancyId * MANY, firstUserId, vacancyId, count);
+    }
+}
@@ -0,0 +1,92 @@
+package nl.andarabski.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Doorvoer van bulk-inserts: 100.000 applications via saveAll, in transacties van 10.000 rijen met
+ * flush/clear per 1.000. Rapporteert rijen/sec en het aantal JDBC-statements (id-fetches + inserts).
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InsertBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int VACANCIES = 100;
+    private static final int ROWS = USERS * VACANCIES;
+    private static final int TX_SIZE = 10_000;
+    private static final int CHUNK = 1_000;
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired ApplicationRepository applicationRepository;
+
+    @Test
+    void insert100kApplications() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        List<Long> userIds = new ArrayList<>();
+        List<Long> vacancyIds = new ArrayList<>();
+        tx.executeWithoutResult(s -> {
+            for (int i = 0; i < USERS; i++) {
+                User u = TD.user(null);
+                u.setEmail("insert" + i + "@example.com");
+                em.persist(u);
+                userIds.add(u.getId());
+            }
+            for (int i = 0; i < VACANCIES; i++) {
+                Vacancy v = TD.vacancy(null);
+                em.persist(v);
+                vacancyIds.add(v.getId());
+            }
+        });
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        long t0 = System.nanoTime();
+        for (int start = 0; start < ROWS; start += TX_SIZE) {
+            int from = start;
+            tx.executeWithoutResult(s -> {
+                List<Application> chunk = new ArrayList<>(CHUNK);
+                for (int i = from; i < from + TX_SIZE; i++) {
+                    User u = em.getReference(User.class, userIds.get(i / VACANCIES));
+                    Vacancy v = em.getReference(Vacancy.class, vacancyIds.get(i % VACANCIES));
+                    chunk.add(new Application(null, u, v, "motivation", ApplicationStatus.APPLIED, TD.FIXED_DATE));
+                    if (chunk.size() == CHUNK) {
+                        applicationRepository.saveAll(chunk);
+                        em.flush();
+                        em.clear();
+                        chunk.clear();
+                    }
+                }
+            });
+        }
+        long nanos = System.nanoTime() - t0;
+
+        double rowsPerSec = ROWS / (nanos / 1_000_000_000d);
+        System.out.printf("[benchmark] insert %,d applications: %,.0f ms, %,.0f rows/sec, %,d JDBC statements%n",
+                ROWS, nanos / 1_000_000d, rowsPerSec, stats.getPrepareStatementCount());
+        assertThat(applicationRepository.count()).isEqualTo(ROWS);
+    }
+}
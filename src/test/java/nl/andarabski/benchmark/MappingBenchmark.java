@@ -0,0 +1,175 @@
+package nl.andarabski.benchmark;
+
+import nl.andarabski.converter.ApplicationToApplicationDtoConverter;
+import nl.andarabski.converter.UserToUserDtoConverter;
+import nl.andarabski.converter.VacancyToVacancyDtoConverter;
+import nl.andarabski.dto.UserDto;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.mapper.UserMapper;
+import nl.andarabski.mapper.UserMapperImpl;
+import nl.andarabski.mapper.VacancyMapper;
+import nl.andarabski.mapper.VacancyMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.testsupport.TD;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: entity -> dto met de MapStruct mappers en de converters (die daar nu aan delegeren) tegenover de
+ * vroegere ModelMapper-variant van de converters, voor een user en een vacancy met 0, 10 en 1.000
+ * applications. Throughput plus gc.alloc.rate.norm; de cold-methodes meten een eerste aanroep op een
+ * nieuwe mapper-instantie (opbouw van de type-map bij ModelMapper).
+ * <p>
+ * De dto -> entity converters zitten er bewust niet in: die halen user/vacancy via de repositories op
+ * en meten dan vooral de database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    @Param({"0", "10", "1000"})
+    public int applications;
+
+    private UserMapper userMapper;
+    private VacancyMapper vacancyMapper;
+    private UserToUserDtoConverter userConverter;
+    private VacancyToVacancyDtoConverter vacancyConverter;
+    private ModelMapper modelMapper;
+    private ApplicationToApplicationDtoConverter applicationConverter;
+
+    private User user;
+    private Vacancy vacancy;
+
+    @Setup
+    public void setUp() {
+        // zoals Spring ze bedraadt, maar zonder context
+        ApplicationMapperImpl applicationMapper = new ApplicationMapperImpl();
+        userMapper = new UserMapperImpl();
+        ReflectionTestUtils.setField(userMapper, "applicationMapper", applicationMapper);
+        vacancyMapper = new VacancyMapperImpl();
+        ReflectionTestUtils.setField(vacancyMapper, "applicationMapper", applicationMapper);
+
+        applicationConverter = new ApplicationToApplicationDtoConverter(applicationMapper);
+        userConverter = new UserToUserDtoConverter(userMapper);
+        vacancyConverter = new VacancyToVacancyDtoConverter(vacancyMapper);
+        modelMapper = new ModelMapper();
+
+        user = TD.user(1L);
+        vacancy = TD.vacancy(1L);
+        for (long i = 0; i < applications; i++) {
+            // directe add i.p.v. TD.link: die doet een contains() per item
+            Application app = new Application();
+            app.setId(i + 1);
+            app.setMotivation("motivation " + i);
+            app.setStatus(ApplicationStatus.APPLIED);
+            app.setAppliedAt(TD.FIXED_DATE);
+            app.setUser(user);
+            app.setVacancy(vacancy);
+            user.getApplications().add(app);
+            vacancy.getApplications().add(app);
+        }
+    }
+
+    @Benchmark
+    public UserDto userMapStruct() {
+        return userMapper.toDto(user);
+    }
+
+    @Benchmark
+    public UserDto userConverter() {
+        return userConverter.convert(user);
+    }
+
+    @Benchmark
+    public UserDto userModelMapper() {
+        return legacyUserConvert(modelMapper, user);
+    }
+
+    @Benchmark
+    public VacancyDto vacancyMapStruct() {
+        return vacancyMapper.toDto(vacancy);
+    }
+
+    @Benchmark
+    public VacancyDto vacancyConverter() {
+        return vacancyConverter.convert(vacancy);
+    }
+
+    @Benchmark
+    public VacancyDto vacancyModelMapper() {
+        return legacyVacancyConvert(modelMapper, vacancy);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 20)
+    public UserDto userColdMapStruct() {
+        UserMapperImpl fresh = new UserMapperImpl();
+        ReflectionTestUtils.setField(fresh, "applicationMapper", new ApplicationMapperImpl());
+        return fresh.toDto(user);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 20)
+    public UserDto userColdModelMapper() {
+        return legacyUserConvert(new ModelMapper(), user);
+    }
+
+    // de converters zoals ze waren vóór de overstap naar MapStruct (basisvelden via ModelMapper)
+    private UserDto legacyUserConvert(ModelMapper mm, User source) {
+        UserDto dto = mm.map(source, UserDto.class);
+        dto.setApplications(source.getApplications().stream()
+                .sorted(Comparator
+                        .comparing(Application::getAppliedAt, Comparator.nullsLast(java.util.Date::compareTo))
+                        .thenComparing(Application::getId, Comparator.nullsLast(Long::compareTo)))
+                .map(applicationConverter::convert)
+                .toList());
+        return dto;
+    }
+
+    private VacancyDto legacyVacancyConvert(ModelMapper mm, Vacancy source) {
+        VacancyDto dto = mm.map(source, VacancyDto.class);
+        dto.setApplications(source.getApplications().stream()
+                .map(applicationConverter::convert)
+                .toList());
+        return dto;
+    }
+
+    @Test
+    void run() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(MappingBenchmark.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        for (RunResult r : results) {
+            String name = r.getParams().getBenchmark().substring(r.getParams().getBenchmark().lastIndexOf('.') + 1);
+            var alloc = r.getSecondaryResults().get("gc.alloc.rate.norm");
+            System.out.printf("[benchmark] %-20s apps=%-5s %,14.1f %-6s alloc=%,12.0f B/op%n",
+                    name, r.getParams().getParam("applications"), r.getPrimaryResult().getScore(),
+                    r.getPrimaryResult().getScoreUnit(), alloc == null ? Double.NaN : alloc.getScore());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package nl.andarabski.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Minimale meet-helper voor de benchmarks: latency (avg/p50/p99) en gealloceerde bytes per operatie
+ * van de huidige thread. Geen JMH; bedoeld voor een grove voor/na vergelijking binnen een Spring context.
+ */
+final class Measure {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // voorkomt dat de JIT het resultaat van een operatie wegoptimaliseert
+    private static volatile Object sink;
+
+    private Measure() {}
+
+    record Result(String name, int ops, double avgMicros, double p50Micros, double p99Micros, long bytesPerOp) {
+        @Override
+        public String toString() {
+            return String.format("%-40s ops=%-6d avg=%10.1f us  p50=%10.1f us  p99=%10.1f us  alloc=%,12d B/op",
+                    name, ops, avgMicros, p50Micros, p99Micros, bytesPerOp);
+        }
+    }
+
+    static Result run(String name, int warmup, int iterations, Supplier<?> op) {
+        for (int i = 0; i < warmup; i++) {
+            sink = op.get();
+        }
+
+        long tid = Thread.currentThread().threadId();
+        long[] nanos = new long[iterations];
+        long bytesBefore = THREADS.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < iterations; i++) {
+            long t0 = System.nanoTime();
+            sink = op.get();
+            nanos[i] = System.nanoTime() - t0;
+        }
+        long bytes = THREADS.getThreadAllocatedBytes(tid) - bytesBefore;
+
+        Arrays.sort(nanos);
+        double avg = Arrays.stream(nanos).average().orElse(0) / 1_000d;
+        Result r = new Result(name, iterations, avg,
+                nanos[iterations / 2] / 1_000d,
+                nanos[Math.min(iterations - 1, (int) Math.ceil(iterations * 0.99) - 1)] / 1_000d,
+                bytes / iterations);
+        System.out.println("[benchmark] " + r);
+        return r;
+    }
+}
@@ -0,0 +1,147 @@
+package nl.andarabski.benchmark;
+
+import jakarta.persistence.EntityManager;
+import nl.andarabski.dto.CursorPageDto;
+import nl.andarabski.dto.UserDto;
+import nl.andarabski.dto.UserSummaryDto;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.mapper.UserMapper;
+import nl.andarabski.mapper.UserMapperImpl;
+import nl.andarabski.mapper.VacancyMapper;
+import nl.andarabski.mapper.VacancyMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.service.VacancyDtoCache;
+import nl.andarabski.service.FileStorageService;
+import nl.andarabski.service.UserService;
+import nl.andarabski.service.VacancyService;
+import nl.andarabski.testsupport.TD;
+import nl.andarabski.util.CursorUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Voor/na vergelijking van de read-paden: managed entities + MapStruct (oud) tegenover
+ * record-projecties (nieuw). Draait alleen met {@code mvn -Pbenchmark test}.
+ */
+@DataJpaTest
+@Import({UserService.class, VacancyService.class, VacancyDtoCache.class, FileStorageService.class,
+        UserMapperImpl.class, VacancyMapperImpl.class, ApplicationMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadPathBenchmark {
+
+    private static final int USERS = 2_000;
+    private static final int VACANCIES = 10;
+    private static final int APPS_PER_USER = 5;
+    private static final int PAGE_SIZE = 100;
+
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired UserRepository userRepository;
+    @Autowired VacancyRepository vacancyRepository;
+    @Autowired UserMapper userMapper;
+    @Autowired VacancyMapper vacancyMapper;
+    @Autowired UserService userService;
+    @Autowired VacancyService vacancyService;
+
+    @Test
+    void entityVersusProjection() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        List<Long> vacancyIds = tx.execute(s -> seed());
+        Long vacancyId = vacancyIds.get(0);
+
+        TransactionTemplate readOnly = new TransactionTemplate(txManager);
+        readOnly.setReadOnly(true);
+
+        // alle users pagina voor pagina doorlopen (incl. applications)
+        Measure.Result pageEntity = Measure.run("user pages: entity + mapstruct", 20, 50,
+                () -> readOnly.execute(s -> pageThroughUsersWithEntities()));
+        Measure.Result pageView = Measure.run("user pages: projection, expand", 20, 50,
+                () -> pageThroughUsersWithProjections(true));
+        // zonder expand: alleen de samenvatting met applicationCount
+        Measure.Result pageSummary = Measure.run("user pages: summary", 20, 50,
+                () -> pageThroughUsersWithProjections(false));
+
+        // detail met 1.000 applications
+        Measure.Result detailEntity = Measure.run("vacancy detail: entity + mapstruct", 200, 1_000,
+                () -> readOnly.execute(s -> vacancyMapper.toDto(vacancyRepository.findWithApplicationsById(vacancyId).orElseThrow())));
+        Measure.Result detailView = Measure.run("vacancy detail: projection", 200, 1_000,
+                () -> vacancyService.findById(vacancyId));
+
+        assertThat(pageThroughUsersWithProjections(true)).isEqualTo(USERS);
+        assertThat(vacancyService.findById(vacancyId).getApplications()).hasSize(USERS * APPS_PER_USER / VACANCIES);
+        assertThat(pageView.bytesPerOp()).isPositive();
+        assertThat(pageSummary.bytesPerOp()).isLessThan(pageView.bytesPerOp());
+        assertThat(pageEntity.bytesPerOp()).isPositive();
+        assertThat(detailView.bytesPerOp()).isPositive();
+        assertThat(detailEntity.bytesPerOp()).isPositive();
+    }
+
+    // het oude pad: entities in de persistence context, daarna MapStruct
+    private int pageThroughUsersWithEntities() {
+        int count = 0;
+        long afterId = 0;
+        while (true) {
+            List<User> rows = userRepository.findByIdGreaterThanOrderByIdAsc(afterId, CursorUtil.probeLimit(PAGE_SIZE));
+            CursorPageDto<UserDto> page = CursorUtil.toPage(rows, PAGE_SIZE, User::getId, userMapper::toDto);
+            count += page.getItems().size();
+            if (page.getNextCursor() == null) return count;
+            afterId = CursorUtil.decode(page.getNextCursor());
+        }
+    }
+
+    // met expand: alle applications (5 per user, onder de embedded limiet), vergelijkbaar met het entity-pad
+    private int pageThroughUsersWithProjections(boolean expandApplications) {
+        int count = 0;
+        String cursor = null;
+        do {
+            CursorPageDto<UserSummaryDto> page = userService.findPage(cursor, PAGE_SIZE, expandApplications);
+            count += page.getItems().size();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return count;
+    }
+
+    private List<Long> seed() {
+        List<Vacancy> vacancies = new ArrayList<>();
+        for (int i = 0; i < VACANCIES; i++) {
+            Vacancy v = TD.vacancy(null);
+            v.setTitle("Vacancy " + i);
+            em.persist(v);
+            vacancies.add(v);
+        }
+        for (int i = 0; i < USERS; i++) {
+            User u = TD.user(null);
+            u.setEmail("bench" + i + "@example.com");
+            em.persist(u);
+            for (int j = 0; j < APPS_PER_USER; j++) {
+                Vacancy v = vacancies.get((i + j) % VACANCIES);
+                em.persist(new Application(null, u, v, "motivation " + j, ApplicationStatus.APPLIED, TD.FIXED_DATE));
+            }
+            if (i % 500 == 0) {
+                em.flush();
+                em.clear();
+                vacancies = vacancies.stream().map(v -> em.getReference(Vacancy.class, v.getId())).toList();
+            }
+        }
+        em.flush();
+        em.clear();
+        return vacancies.stream().map(Vacancy::getId).toList();
+    }
+}
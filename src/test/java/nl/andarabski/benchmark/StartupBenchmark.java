@@ -0,0 +1,91 @@
+package nl.andarabski.benchmark;
+
+import nl.andarabski.JobApplicationManagerApplication;
+import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Opstarttijd van het prod-profiel (H2 op schijf) met een database van 1M applications, tegenover een lege
+ * database en het standaardprofiel (in-memory, elke keer migreren en seeden). Elke meting is een volledige
+ * context-start inclusief Tomcat; een eerste opstart vooraf warmt de JVM op, zodat alleen het verschil in
+ * database-werk overblijft. Draait alleen met {@code mvn -Pbenchmark test}.
+ */
+class StartupBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int VACANCIES = 100;   // USERS x VACANCIES = 1M applications
+
+    @TempDir Path dataDir;
+
+    @Test
+    void restartWithMillionApplications() {
+        // JVM opwarmen (class loading, JIT): telt niet mee
+        boot("warm-up", null, ctx -> {});
+
+        long inMemory = boot("default profile (mem, migrate + seed)", null, ctx -> {});
+        long firstBoot = boot("prod, empty file db (migrate + seed)", "prod", ctx -> {});
+
+        long seeded = System.nanoTime();
+        boot("prod, bulk insert 1M applications", "prod", ctx -> ctx.getBean(TransactionTemplate.class)
+                .executeWithoutResult(tx -> insertApplications(ctx.getBean(JdbcTemplate.class))));
+        System.out.printf("[benchmark] %-40s %,10d ms%n", "  (incl. bulk insert)", (System.nanoTime() - seeded) / 1_000_000);
+
+        long restart = boot("prod, restart with 1M applications", "prod", ctx -> {
+            // seeder heeft niets opnieuw ingevoegd
+            assertThat(ctx.getBean(UserRepository.class).count()).isEqualTo(USERS + 3L);
+            assertThat(ctx.getBean(ApplicationRepository.class).count()).isEqualTo((long) USERS * VACANCIES + 3);
+        });
+
+        // de restart doet geen werk dat met de datagrootte meeschaalt (geen schema, geen seed, geen scans)
+        assertThat(restart).isLessThan(Math.max(inMemory, firstBoot) * 3);
+    }
+
+    private long boot(String name, String profile, Consumer<ConfigurableApplicationContext> check) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(JobApplicationManagerApplication.class)
+                .properties("server.port=0",
+                        "app.data-dir=" + dataDir.toAbsolutePath(),
+                        "file.upload-dir=" + dataDir.resolve("uploads").toAbsolutePath(),
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=warn");
+        if (profile != null) {
+            builder.profiles(profile);
+        }
+        long t0 = System.nanoTime();
+        try (ConfigurableApplicationContext ctx = builder.run()) {
+            long millis = (System.nanoTime() - t0) / 1_000_000;
+            System.out.printf("[benchmark] %-40s %,10d ms%n", name, millis);
+            check.accept(ctx);
+            return millis;
+        }
+    }
+
+    // set-based in H2 zelf: geen 1M round trips vanuit Java; sequences daarna voorbij de hoogste ids zetten.
+    // Moet in een transactie draaien: de pool levert connecties zonder auto-commit
+    private static void insertApplications(JdbcTemplate jdbc) {
+        jdbc.update("insert into app_user (id, version, first_name, last_name, email, password, age, role, enabled) "
+                + "select 1000 + x, 0, 'First' || x, 'Last' || x, 'user' || x || '@example.com', 'secret', 30, 'user', true "
+                + "from system_range(1, ?)", USERS);
+        jdbc.update("insert into vacancy (id, version, title, company_name, description, location, posted_at) "
+                + "select 1000 + x, 0, 'Vacancy ' || x, 'Company', 'Description', 'Amsterdam', current_timestamp "
+                + "from system_range(1, ?)", VACANCIES);
+        jdbc.update("insert into application (id, version, user_id, vacancy_id, motivation, status, applied_at) "
+                + "select 1000 + x, 0, 1001 + mod(x, ?), 1001 + x / ?, 'Motivation', "
+                + "case mod(x, 3) when 0 then 'APPLIED' when 1 then 'PENDING' else 'REJECTED' end, "
+                + "dateadd(second, -x, current_timestamp) "
+                + "from system_range(0, ? - 1)", USERS, USERS, (long) USERS * VACANCIES);
+        jdbc.execute("alter sequence app_user_seq restart with " + (1000 + USERS + 1));
+        jdbc.execute("alter sequence vacancy_seq restart with " + (1000 + VACANCIES + 1));
+        jdbc.execute("alter sequence application_seq restart with " + (1000L + (long) USERS * VACANCIES));
+    }
+}
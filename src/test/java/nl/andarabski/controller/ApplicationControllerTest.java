@@ -3,6 +3,9 @@ package nl.andarabski.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.ApplyRequestDto;
+import nl.andarabski.dto.ApplyResultDto;
+import nl.andarabski.dto.CursorPageDto;
 import nl.andarabski.mapper.ApplicationMapper;
 import nl.andarabski.model.Application;
 import nl.andarabski.model.ApplicationStatus;
@@ -12,7 +15,9 @@ import nl.andarabski.service.ApplicationService;
 
 import nl.andarabski.system.StatusCode;
 import nl.andarabski.system.exception.ExceptionHandlerAdvice;
+import nl.andarabski.system.exception.InvalidRequestException;
 import nl.andarabski.system.exception.ObjectNotFoundException;
+import nl.andarabski.system.exception.PreconditionFailedException;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +25,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -33,6 +39,7 @@ import static nl.andarabski.testsupport.TD.FIXED_DATE;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -76,16 +83,56 @@ class ApplicationControllerTest {
     void getAll_returnsOkWithList() throws Exception {
         var d1 = dto(10L, 1L, 3L, "APPLIED", "ok");
         var d2 = dto(11L, 1L, 3L, "PENDING", "ok2");
-        given(applicationService.findAll()).willReturn(List.of(d1, d2));
+        given(applicationService.findPage(null, null)).willReturn(new CursorPageDto<>(List.of(d1, d2), null, 20));
 
         mockMvc.perform(get(baseUrl + "/applications").accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.flag").value(true))
                 .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
-                .andExpect(jsonPath("$.data", hasSize(2)))
-                .andExpect(jsonPath("$.data[0].id").value(10));
+                .andExpect(jsonPath("$.data.items", hasSize(2)))
+                .andExpect(jsonPath("$.data.items[0].id").value(10))
+                .andExpect(jsonPath("$.data.hasMore").value(false));
 
-        verify(applicationService).findAll();
+        verify(applicationService).findPage(null, null);
+    }
+
+    @Test
+    void getAll_withCursor_passesCursorAndReturnsNextCursor() throws Exception {
+        var d1 = dto(12L, 1L, 3L, "APPLIED", "ok");
+        given(applicationService.findPage("aWQ6MTE", 1)).willReturn(new CursorPageDto<>(List.of(d1), "aWQ6MTI", 1));
+
+        mockMvc.perform(get(baseUrl + "/applications").param("cursor", "aWQ6MTE").param("size", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items[0].id").value(12))
+                .andExpect(jsonPath("$.data.nextCursor").value("aWQ6MTI"))
+                .andExpect(jsonPath("$.data.hasMore").value(true));
+
+        verify(applicationService).findPage("aWQ6MTE", 1);
+    }
+
+    @Test
+    void getAll_invalidCursor_returns400() throws Exception {
+        given(applicationService.findPage("garbage", null))
+                .willThrow(new InvalidRequestException("Invalid cursor: garbage"));
+
+        mockMvc.perform(get(baseUrl + "/applications").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.message").value("Invalid cursor: garbage"));
+    }
+
+    @Test
+    void getLatestByStatus_returnsOkWithList() throws Exception {
+        given(applicationService.findLatestByStatus("PENDING", 5))
+                .willReturn(List.of(dto(12L, 1L, 3L, "PENDING", "ok"), dto(11L, 2L, 3L, "PENDING", "ok2")));
+
+        mockMvc.perform(get(baseUrl + "/applications/latest").param("status", "PENDING").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.data", hasSize(2)))
+                .andExpect(jsonPath("$.data[0].id").value(12));
     }
 
     @Test
@@ -103,6 +150,22 @@ class ApplicationControllerTest {
         verify(applicationService).findById(10L);
     }
 
+    @Test
+    void getById_sendsETag_andAnswers304WhenUnchanged() throws Exception {
+        given(applicationService.findETag(10L)).willReturn("\"3\"");
+        given(applicationService.findById(10L)).willReturn(dto(10L, 1L, 3L, "APPLIED", "ok"));
+
+        mockMvc.perform(get(baseUrl + "/applications/10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+        mockMvc.perform(get(baseUrl + "/applications/10").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // de 304 kost alleen de versie-lookup
+        verify(applicationService, Mockito.times(1)).findById(10L);
+    }
+
     @Test
     void getById_returnsNotFound() throws Exception {
         var d1 = dto(404L, 1L, 3L, "APPLIED", "ok");
@@ -148,7 +211,7 @@ class ApplicationControllerTest {
 
         var out = dto(1L, 1L, 3L, "APPLIED", "new");
 
-        given(applicationService.update(eq(1L), org.mockito.ArgumentMatchers.any(ApplicationDto.class)))
+        given(applicationService.update(eq(1L), org.mockito.ArgumentMatchers.any(ApplicationDto.class), isNull()))
                 .willReturn(out);
 
         mockMvc.perform(put(baseUrl + "/applications/1")       // <-- volledig pad
@@ -164,14 +227,14 @@ class ApplicationControllerTest {
                 .andExpect(jsonPath("$.data.motivation").value("new"))
                 .andExpect(jsonPath("$.data.appliedAt", matchesPattern("\\d{4}-\\d{2}-\\d{2}T.*[Z+\\-].*")));
 
-        verify(applicationService).update(eq(1L), any(ApplicationDto.class));
+        verify(applicationService).update(eq(1L), any(ApplicationDto.class), isNull());
     }
 
     @Test
     void updateFailed_returns400() throws Exception {
         var patch = new ApplicationDto();
         patch.setMotivation("new");
-        given(applicationService.update(eq(1L), org.mockito.ArgumentMatchers.any(ApplicationDto.class)))
+        given(applicationService.update(eq(1L), org.mockito.ArgumentMatchers.any(ApplicationDto.class), isNull()))
         .willThrow(new ObjectNotFoundException(APPLICATION, 404L));
 
         mockMvc.perform(put(baseUrl + "/applications/1")
@@ -183,10 +246,51 @@ class ApplicationControllerTest {
                 .andExpect(jsonPath("$.message").value("Could not find Application with Id: 404 :("))
                 .andExpect(jsonPath("$.data").isEmpty());
 
-        verify(applicationService).update(eq(1L), any(ApplicationDto.class));
+        verify(applicationService).update(eq(1L), any(ApplicationDto.class), isNull());
 
     }
 
+    @Test
+    void update_staleIfMatch_returns412() throws Exception {
+        var patch = new ApplicationDto();
+        patch.setMotivation("new");
+        given(applicationService.update(eq(1L), any(ApplicationDto.class), eq("\"2\"")))
+                .willThrow(new PreconditionFailedException(APPLICATION, 1L));
+
+        mockMvc.perform(put(baseUrl + "/applications/1")
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(patch)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.PRECONDITION_FAILED));
+    }
+
+    @Test
+    void patch_status_returns200() throws Exception {
+        given(applicationService.patch(eq(1L), any(ApplicationDto.class), isNull()))
+                .willReturn(dto(1L, 2L, 3L, "REJECTED", "ok"));
+
+        mockMvc.perform(patch(baseUrl + "/applications/1")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"status\": \"REJECTED\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.data.status").value("REJECTED"));
+        verify(applicationService).patch(eq(1L), Mockito.argThat(p -> "REJECTED".equals(p.getStatus())
+                && p.getMotivation() == null && p.getUserId() == null), isNull());
+    }
+
+    @Test
+    void patch_otherVacancy_returns400() throws Exception {
+        mockMvc.perform(patch(baseUrl + "/applications/1")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"vacancyId\": 9}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Field 'vacancyId' cannot be changed with a merge patch"));
+        Mockito.verifyNoInteractions(applicationService);
+    }
+
     @Test
     void delete_returns204() throws Exception {
         mockMvc.perform(delete(baseUrl + "/applications/1"))
@@ -282,6 +386,43 @@ class ApplicationControllerTest {
 
     }
 
+    @Test
+    void applyBatch_returns200_withResultPerItem() throws Exception {
+        var created = new ApplyResultDto(0, 1L, 3L, StatusCode.CREATED, "Application submitted successfully");
+        created.setApplicationId(99L);
+        var conflict = new ApplyResultDto(1, 1L, 3L, StatusCode.CONFLICT, "User already applied to this vacancy");
+        given(applicationService.applyToVacancies(any())).willReturn(List.of(created, conflict));
+
+        var body = objectMapper.writeValueAsString(List.of(
+                new ApplyRequestDto("Hire me", 1L, 3L),
+                new ApplyRequestDto("Hire me again", 1L, 3L)));
+
+        mockMvc.perform(post(baseUrl + "/applications/apply/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.data", hasSize(2)))
+                .andExpect(jsonPath("$.data[0].code").value(StatusCode.CREATED))
+                .andExpect(jsonPath("$.data[0].applicationId").value(99))
+                .andExpect(jsonPath("$.data[1].index").value(1))
+                .andExpect(jsonPath("$.data[1].code").value(StatusCode.CONFLICT));
+    }
+
+    @Test
+    void applyBatch_empty_returns400() throws Exception {
+        given(applicationService.applyToVacancies(any()))
+                .willThrow(new InvalidRequestException("At least one application is required"));
+
+        mockMvc.perform(post(baseUrl + "/applications/apply/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+    }
+
     // helper body voor apply endpoint
     static class ApplyBody {
         public ApplyBody() {}
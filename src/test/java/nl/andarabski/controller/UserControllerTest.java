@@ -2,20 +2,26 @@ package nl.andarabski.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.CursorPageDto;
 import nl.andarabski.dto.UserDto;
+import nl.andarabski.dto.UserSummaryDto;
 import nl.andarabski.mapper.UserMapper;
 import nl.andarabski.model.Application;
 import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.service.FileStorageService;
 import nl.andarabski.service.UserService;
 import nl.andarabski.system.StatusCode;
 import nl.andarabski.system.exception.ExceptionHandlerAdvice;
+import nl.andarabski.system.exception.InvalidRequestException;
 import nl.andarabski.system.exception.ObjectNotFoundException;
 import nl.andarabski.testsupport.TD;
 import nl.andarabski.testsupport.web.RestMatchers;
 import nl.andarabski.utils.StubDataDtos;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.mockito.ArgumentCaptor;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -29,10 +35,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import static nl.andarabski.testsupport.TD.FIXED_DATE;
 import static nl.andarabski.testsupport.TD.applicationDto;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.ArgumentMatchers.any;
 
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
@@ -40,6 +49,9 @@ import java.util.List;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -107,32 +119,50 @@ class UserControllerTest {
     @Test
     void findAllUsers() throws Exception {
         // GIVEN
-        var a = new UserDto(); a.setId(1L); a.setFirstName("Andarabi"); a.setPhoto("leeuw.jpeg"); a.setCv("Cv_One.pdf"); a.setApplications(List.of(
-                applicationDto(10L, 1L, 3L, "APPLIED", "ok"),
-                applicationDto(11L, 1L, 3L, "PENDING", "ok2")
-        ));
-        var b = new UserDto(); b.setId(2L); b.setFirstName("Sanny"); b.setPhoto("vlinder.jpeg"); b.setCv("Cv_Two.pdf"); b.setApplications(List.of(
-                applicationDto(10L, 1L, 3L, "APPLIED", "ok"),
-                applicationDto(11L, 1L, 3L, "PENDING", "ok2")
+        var a = new UserSummaryDto(); a.setId(1L); a.setFirstName("Andarabi"); a.setApplicationCount(2);
+        var b = new UserSummaryDto(); b.setId(2L); b.setFirstName("Sanny"); b.setApplicationCount(2);
+        b.setApplications(List.of(
+                applicationDto(10L, 2L, 3L, "APPLIED", "ok"),
+                applicationDto(11L, 2L, 4L, "PENDING", "ok2")
         ));
-        when(this.userService.findAll()).thenReturn(List.of(a, b));
+        when(this.userService.findPage(null, null, true)).thenReturn(new CursorPageDto<>(List.of(a, b), null, 20));
 
         // WHEN AND THEN
-        this.mockMvc.perform(get(baseUrl + "/users").accept(MediaType.APPLICATION_JSON))
+        this.mockMvc.perform(get(baseUrl + "/users").param("expand", "applications").accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.flag").value(true))
                 .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
                 .andExpect(jsonPath("$.message").value("Find All Success"))
-                .andExpect(jsonPath("$.data[0].firstName").value("Andarabi"))
-                .andExpect(jsonPath("$.data[0].photo").value("leeuw.jpeg"))
-                .andExpect(jsonPath("$.data[0].cv").value("Cv_One.pdf"))
-                .andExpect(jsonPath("$.data[0].applications[0].status").value("APPLIED"))
-
-                .andExpect(jsonPath("$.data[1].firstName").value("Sanny"))
-                .andExpect(jsonPath("$.data[1].photo").value("vlinder.jpeg"))
-                .andExpect(jsonPath("$.data[1].cv").value("Cv_Two.pdf"))
-                .andExpect(jsonPath("$.data[1].applications[1].status").value("PENDING"));
-        verify(this.userService).findAll();
+                .andExpect(jsonPath("$.data.items[0].firstName").value("Andarabi"))
+                .andExpect(jsonPath("$.data.items[0].applicationCount").value(2))
+                // samenvatting: geen wachtwoord en geen bestanden
+                .andExpect(jsonPath("$.data.items[0].password").doesNotExist())
+                .andExpect(jsonPath("$.data.items[0].photo").doesNotExist())
+
+                .andExpect(jsonPath("$.data.items[1].firstName").value("Sanny"))
+                .andExpect(jsonPath("$.data.items[1].applications[1].status").value("PENDING"))
+                .andExpect(jsonPath("$.data.hasMore").value(false));
+        verify(this.userService).findPage(null, null, true);
+    }
+
+    @Test
+    void findAllUsers_unknownExpand_returns400() throws Exception {
+        this.mockMvc.perform(get(baseUrl + "/users").param("expand", "applications,vacancies"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+        verify(this.userService, never()).findPage(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void findApplications_returnsPageOfTheUser() throws Exception {
+        when(this.userService.findApplications(1L, null, 2)).thenReturn(new CursorPageDto<>(List.of(
+                applicationDto(10L, 1L, 3L, "APPLIED", "ok"),
+                applicationDto(11L, 1L, 4L, "PENDING", "ok2")), "next", 2));
+
+        this.mockMvc.perform(get(baseUrl + "/users/1/applications").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items[1].vacancyId").value(4))
+                .andExpect(jsonPath("$.data.nextCursor").value("next"));
     }
 
 
@@ -211,6 +241,58 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.data").isEmpty());
     }
 
+    @Test
+    void createUser_malformedApplicationsJson_400() throws Exception {
+        var photo = new MockMultipartFile("photo","avatar.jpg","image/jpeg","img".getBytes());
+
+        mockMvc.perform(multipart(baseUrl + "/users/add")
+                        .file(photo)
+                        .param("firstName","Andre")
+                        .param("lastName","Dabski")
+                        .param("email","a@b.com")
+                        .param("password","secret")
+                        .param("age","30")
+                        .param("role","admin")
+                        .param("enabled","true")
+                        .param("applications","[{\"vacancyId\": 1,")
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.message").value(containsString("applications")));
+
+        // niet stilletjes met een lege lijst doorgegaan
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void createUser_applicationsJson_isParsedIntoDto() throws Exception {
+        var photo = new MockMultipartFile("photo","avatar.jpg","image/jpeg","img".getBytes());
+        when(userService.create(any(UserDto.class), any(MultipartFile.class), any())).thenReturn(new UserDto());
+
+        mockMvc.perform(multipart(baseUrl + "/users/add")
+                        .file(photo)
+                        .param("firstName","Andre")
+                        .param("lastName","Dabski")
+                        .param("email","a@b.com")
+                        .param("password","secret")
+                        .param("age","30")
+                        .param("role","admin")
+                        .param("enabled","true")
+                        .param("applications","[{\"vacancyId\":7,\"motivation\":\"Graag\",\"status\":\"APPLIED\"}]")
+                )
+                .andExpect(status().isCreated());
+
+        var captor = ArgumentCaptor.forClass(UserDto.class);
+        verify(userService).create(captor.capture(), any(MultipartFile.class), any());
+        assertThat(captor.getValue().getApplications())
+                .singleElement()
+                .satisfies(a -> {
+                    assertThat(a.getVacancyId()).isEqualTo(7L);
+                    assertThat(a.getStatus()).isEqualTo("APPLIED");
+                });
+    }
+
 
    @Test
     void updateUserSuccess() throws Exception {
@@ -238,7 +320,7 @@ class UserControllerTest {
         saved.setCv("resume.pdf");
         saved.setApplications(List.of(in, out));
 
-       when(userService.update(eq(userId), any(UserDto.class), any(MultipartFile.class), any(MultipartFile.class))).thenReturn(saved);
+       when(userService.update(eq(userId), any(UserDto.class), any(MultipartFile.class), any(MultipartFile.class), isNull())).thenReturn(saved);
 
             mockMvc.perform(
                             multipart(baseUrl + "/users/update/{id}", userId)
@@ -268,7 +350,7 @@ class UserControllerTest {
                     .andExpect(jsonPath("$.data.role").value("admin"))
                     .andExpect(jsonPath("$.data.enabled").value(true))
                     .andExpect(jsonPath("$.data.applications.length()").value(2));
-            verify(userService).update(eq(userId), any(UserDto.class), any(MultipartFile.class), any(MultipartFile.class));
+            verify(userService).update(eq(userId), any(UserDto.class), any(MultipartFile.class), any(MultipartFile.class), isNull());
         }
 
 
@@ -281,7 +363,7 @@ class UserControllerTest {
         String appsJson = "[]";
 
         // wél de not-found simuleren:
-        when(userService.update(eq(userId), any(UserDto.class), any(MultipartFile.class), any(MultipartFile.class)))
+        when(userService.update(eq(userId), any(UserDto.class), any(MultipartFile.class), any(MultipartFile.class), isNull()))
                 .thenThrow(new ObjectNotFoundException("User", userId));
 
         mockMvc.perform(
@@ -336,4 +418,120 @@ class UserControllerTest {
         verify(userService).delete(userId);
     }
 
-}
\ No newline at end of file
+
+    // ======= downloads =======
+
+    @TempDir
+    Path tmp;
+
+    private FileStorageService.Blob blob(String content, String contentType, String filename) throws Exception {
+        Path file = Files.writeString(tmp.resolve("blob"), content);
+        return new FileStorageService.Blob("a".repeat(64), file, content.length(), contentType, filename);
+    }
+
+    @Test
+    void downloadCv_streamsFileWithEtagAndCacheHeaders() throws Exception {
+        given(userService.findCv(1L)).willReturn(blob("%PDF-1.7 cv", "application/pdf", "Cv_Two.pdf"));
+
+        mockMvc.perform(get(baseUrl + "/users/1/cv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/pdf"))
+                .andExpect(content().string("%PDF-1.7 cv"))
+                .andExpect(header().string("ETag", "\"" + "a".repeat(64) + "\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().string("Content-Disposition", containsString("attachment")));
+    }
+
+    @Test
+    void downloadPhoto_matchingIfNoneMatch_returns304WithoutBody() throws Exception {
+        given(userService.findPhoto(1L)).willReturn(blob("jpegbytes", "image/jpeg", "leeuw.jpeg"));
+
+        mockMvc.perform(get(baseUrl + "/users/1/photo")
+                        .header("If-None-Match", "\"" + "a".repeat(64) + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void downloadCv_rangeRequest_returnsPartialContent() throws Exception {
+        given(userService.findCv(1L)).willReturn(blob("0123456789", "application/pdf", "cv.pdf"));
+
+        mockMvc.perform(get(baseUrl + "/users/1/cv").header("Range", "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+    }
+
+    @Test
+    void downloadPhoto_userWithoutPhoto_returns404() throws Exception {
+        given(userService.findPhoto(1L)).willThrow(new ObjectNotFoundException("Photo of user", 1L));
+
+        mockMvc.perform(get(baseUrl + "/users/1/photo"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value(StatusCode.NOT_FOUND));
+    }
+
+    @Test
+    void downloadPhotoThumbnail_streamsRequestedSize() throws Exception {
+        given(userService.findPhotoThumbnail(1L, 64)).willReturn(blob("thumb", "image/jpeg", "thumbnail-64x48.jpg"));
+
+        mockMvc.perform(get(baseUrl + "/users/1/photo/thumbnail/64"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().string("thumb"))
+                .andExpect(header().string("Content-Disposition", containsString("inline")));
+    }
+
+    @Test
+    void downloadPhotoThumbnail_unsupportedSize_returns400() throws Exception {
+        given(userService.findPhotoThumbnail(1L, 100)).willThrow(new InvalidRequestException("Thumbnail size 100 is not supported"));
+
+        mockMvc.perform(get(baseUrl + "/users/1/photo/thumbnail/100"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+    }
+
+    @Test
+    void patchUser_mergePatch_passesOnlyTheSentFields() throws Exception {
+        var updated = TD.userDto(1L);
+        updated.setLastName("Nieuw");
+        given(userService.patch(eq(1L), any(UserDto.class), isNull())).willReturn(updated);
+
+        mockMvc.perform(patch(baseUrl + "/users/1")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"lastName\": \"Nieuw\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.data.lastName").value("Nieuw"));
+
+        var captor = ArgumentCaptor.forClass(UserDto.class);
+        verify(userService).patch(eq(1L), captor.capture(), isNull());
+        assertThat(captor.getValue().getLastName()).isEqualTo("Nieuw");
+        assertThat(captor.getValue().getFirstName()).isNull();
+        // niet meegestuurd: de mapper laat leeftijd en enabled van de entity staan
+        assertThat(captor.getValue().hasAge()).isFalse();
+        assertThat(captor.getValue().hasEnabled()).isFalse();
+    }
+
+    @Test
+    void patchUser_removedFileOrEmptyField_returns400() throws Exception {
+        mockMvc.perform(patch(baseUrl + "/users/1")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"email\": null}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.message").value("Field 'email' cannot be removed"));
+        mockMvc.perform(patch(baseUrl + "/users/1")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"photo\": \"abc\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Field 'photo' cannot be changed with a merge patch"));
+        mockMvc.perform(patch(baseUrl + "/users/1")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"firstName\": \"\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Field 'firstName': firstname is required."));
+        verifyNoInteractions(userService);
+    }
+}
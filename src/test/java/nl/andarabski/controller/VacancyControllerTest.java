@@ -2,16 +2,22 @@ package nl.andarabski.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import nl.andarabski.config.CacheConfig;
+import nl.andarabski.dto.CursorPageDto;
+import nl.andarabski.dto.DeleteResultDto;
 import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.dto.VacancySummaryDto;
 import nl.andarabski.mapper.VacancyMapper;
 import nl.andarabski.model.ApplicationStatus;
 import nl.andarabski.model.Vacancy;
 import nl.andarabski.service.VacancyService;
 import nl.andarabski.system.StatusCode;
 import nl.andarabski.system.exception.ExceptionHandlerAdvice;
+import nl.andarabski.system.exception.InvalidRequestException;
 import nl.andarabski.system.exception.ObjectNotFoundException;
 import nl.andarabski.testsupport.TD;
 import nl.andarabski.testsupport.web.RestMatchers;
+import nl.andarabski.util.CursorUtil;
 import nl.andarabski.utils.StubDataDtos;
 import nl.andarabski.utils.StubDataEntities;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,9 +28,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -42,6 +50,8 @@ import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -63,6 +73,7 @@ class VacancyControllerTest {
     @Autowired private VacancyMapper vacancyMapper;
     @MockitoBean private VacancyService vacancyService;
     @Autowired private ObjectMapper objectMapper;
+    @Autowired private CacheManager cacheManager;
 
     @Value("/api/v1")
     String baseUrl;
@@ -101,6 +112,12 @@ class VacancyControllerTest {
     }
 
     // given
+    // VacancyService is een mock: gecachte responses mogen niet van de ene test naar de andere lekken
+    @BeforeEach
+    void clearResponseCache() {
+        cacheManager.getCache(CacheConfig.VACANCY_LIST_RESPONSES).clear();
+    }
+
     @Test
     void findVacancyByIdSuccess() throws Exception {
         var v1 = new VacancyDto();
@@ -134,6 +151,30 @@ class VacancyControllerTest {
         verify(vacancyService).findById(1L);
     }
 
+    @Test
+    void findVacancyById_matchingIfNoneMatch_returns304WithoutLoadingTheVacancy() throws Exception {
+        given(vacancyService.findETag(1L)).willReturn("\"4-abc\"");
+
+        mockMvc.perform(get(baseUrl + "/vacancies/1").header(HttpHeaders.IF_NONE_MATCH, "\"4-abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-abc\""));
+
+        verify(vacancyService, never()).findById(1L);
+    }
+
+    @Test
+    void update_passesIfMatchToService() throws Exception {
+        VacancyDto in = TD.vacancyDto(null);
+        given(vacancyService.update(eq(3L), any(VacancyDto.class), eq("\"4\""))).willReturn(TD.vacancyDto(3L));
+
+        mockMvc.perform(put(baseUrl + "/vacancies/3")
+                        .header(HttpHeaders.IF_MATCH, "\"4\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(in)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id").value(3));
+    }
+
     @Test
     void findVacancyByIdNotFound() throws Exception {
         // given
@@ -152,31 +193,22 @@ class VacancyControllerTest {
 
     @Test
     void findAllVacanciesSuccess() throws Exception {
-        var v1 = new VacancyDto();
+        var v1 = new VacancySummaryDto();
         v1.setId(1L);
         v1.setTitle("Title");
         v1.setCompanyName("Oracle Company");
-        v1.setDescription("Oracle Developer");
         v1.setLocation("Voorschoten Location");
         v1.setPostedAt(FIXED_DATE);
-        v1.setApplications(List.of(
-                applicationDto(10L, 1L, 3L, "APPLIED", "ok"),
-                applicationDto(11L, 1L, 3L, "PENDING", "ok2")
-        ));
+        v1.setApplicationCount(2);
 
-        var v2 = new VacancyDto();
+        var v2 = new VacancySummaryDto();
         v2.setId(2L);
         v2.setTitle("Title2");
         v2.setCompanyName("IBM Company");
-        v2.setDescription("J2EE Developer");
         v2.setLocation("Spijkenisse Location");
         v2.setPostedAt(FIXED_DATE);
-        v2.setApplications(List.of(
-                applicationDto(10L, 1L, 3L, "APPLIED", "ok"),
-                applicationDto(11L, 1L, 3L, "PENDING", "ok2")
-        ));
 
-        when(vacancyService.findAll()).thenReturn(List.of(v1, v2));
+        when(vacancyService.findPage(null, null, false)).thenReturn(new CursorPageDto<>(List.of(v1, v2), null, 20));
 
         mockMvc.perform(get( baseUrl + "/vacancies").accept(MediaType.APPLICATION_JSON))
                 .andDo(print())
@@ -184,26 +216,124 @@ class VacancyControllerTest {
                 .andExpect(jsonPath("$.flag").value(true))
                 .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
                 .andExpect(jsonPath("$.message").value("Find All Success"))
-               // .andExpect(jsonPath("$.data.id").value(1))
-                .andExpect(jsonPath("$.data[0].title").value("Title"))
-                .andExpect(jsonPath("$.data[0].companyName").value("Oracle Company"))
-                .andExpect(jsonPath("$.data[0].description").value("Oracle Developer"))
-                .andExpect(jsonPath("$.data[0].location").value("Voorschoten Location"))
-                .andExpect(jsonPath("$.data[0].postedAt",
+                .andExpect(jsonPath("$.data.items[0].title").value("Title"))
+                .andExpect(jsonPath("$.data.items[0].companyName").value("Oracle Company"))
+                .andExpect(jsonPath("$.data.items[0].location").value("Voorschoten Location"))
+                .andExpect(jsonPath("$.data.items[0].postedAt",
                         org.hamcrest.Matchers.matchesPattern("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}.*")))
-                .andExpect(jsonPath("$.data[0].applications[0].status").value("APPLIED"))
+                .andExpect(jsonPath("$.data.items[0].applicationCount").value(2))
+                // samenvatting: geen description en zonder expand geen applications
+                .andExpect(jsonPath("$.data.items[0].description").doesNotExist())
+                .andExpect(jsonPath("$.data.items[0].applications").doesNotExist())
 
-                .andExpect(jsonPath("$.data[1].title").value("Title2"))
-                .andExpect(jsonPath("$.data[1].companyName").value("IBM Company"))
-                .andExpect(jsonPath("$.data[1].description").value("J2EE Developer"))
-                .andExpect(jsonPath("$.data[1].location").value("Spijkenisse Location"))
-                .andExpect(jsonPath("$.data[1].postedAt",
-                        org.hamcrest.Matchers.matchesPattern("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}.*")))
-                .andExpect(jsonPath("$.data[1].applications[0].status").value("APPLIED"));
-        verify(vacancyService).findAll();
+                .andExpect(jsonPath("$.data.items[1].title").value("Title2"))
+                .andExpect(jsonPath("$.data.items[1].applicationCount").value(0))
+                .andExpect(jsonPath("$.data.hasMore").value(false))
+                .andExpect(jsonPath("$.data.nextCursor").value(org.hamcrest.Matchers.nullValue()));
+        verify(vacancyService).findPage(null, null, false);
 
     }
 
+    @Test
+    void findAllVacancies_expandApplications() throws Exception {
+        var v1 = vacancySummaryDto(1L, 12);
+        v1.setApplications(List.of(
+                applicationDto(10L, 1L, 1L, "APPLIED", "ok"),
+                applicationDto(11L, 2L, 1L, "PENDING", "ok2")));
+        v1.setApplicationsNextCursor(CursorUtil.encode(11L));
+        when(vacancyService.findPage(null, null, true)).thenReturn(new CursorPageDto<>(List.of(v1), null, 20));
+
+        mockMvc.perform(get(baseUrl + "/vacancies").param("expand", "applications"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items[0].applicationCount").value(12))
+                .andExpect(jsonPath("$.data.items[0].applications[1].status").value("PENDING"))
+                .andExpect(jsonPath("$.data.items[0].applicationsNextCursor").value(CursorUtil.encode(11L)));
+
+        // expand hoort bij de cache-key: de samenvatting zonder applications is een andere response
+        when(vacancyService.findPage(null, null, false)).thenReturn(new CursorPageDto<>(List.of(vacancySummaryDto(1L, 12)), null, 20));
+        mockMvc.perform(get(baseUrl + "/vacancies"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items[0].applications").doesNotExist());
+    }
+
+    @Test
+    void findAllVacancies_unknownExpand_returns400() throws Exception {
+        mockMvc.perform(get(baseUrl + "/vacancies").param("expand", "users"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+        verifyNoInteractions(vacancyService);
+    }
+
+    @Test
+    void findApplications_pagesTheSubResource() throws Exception {
+        when(vacancyService.findApplications(1L, "abc", 5)).thenReturn(new CursorPageDto<>(List.of(
+                applicationDto(12L, 3L, 1L, "APPLIED", "ok")), CursorUtil.encode(12L), 5));
+
+        mockMvc.perform(get(baseUrl + "/vacancies/1/applications").param("cursor", "abc").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Find Applications Success"))
+                .andExpect(jsonPath("$.data.items[0].id").value(12))
+                .andExpect(jsonPath("$.data.hasMore").value(true));
+    }
+
+    @Test
+    void findApplications_unknownVacancy_returns404() throws Exception {
+        when(vacancyService.findApplications(9L, null, null)).thenThrow(new ObjectNotFoundException("Vacancy", 9L));
+
+        mockMvc.perform(get(baseUrl + "/vacancies/9/applications"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void findAllVacancies_isServedFromResponseCacheWithETag() throws Exception {
+        when(vacancyService.findPage("abc", 5, false)).thenReturn(new CursorPageDto<>(List.of(vacancySummaryDto(1L, 0)), null, 5));
+
+        String etag = mockMvc.perform(get(baseUrl + "/vacancies").param("cursor", "abc").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(jsonPath("$.data.items[0].id").value(1))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(baseUrl + "/vacancies").param("cursor", "abc").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.data.items[0].id").value(1));
+
+        // tweede request komt uit de cache: geen service-call, geen mapping, geen serialisatie
+        verify(vacancyService, times(1)).findPage("abc", 5, false);
+    }
+
+    @Test
+    void findAllVacancies_matchingIfNoneMatch_returns304() throws Exception {
+        when(vacancyService.findPage(null, null, false)).thenReturn(new CursorPageDto<>(List.of(vacancySummaryDto(1L, 0)), null, 20));
+
+        String etag = mockMvc.perform(get(baseUrl + "/vacancies"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(baseUrl + "/vacancies").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get(baseUrl + "/vacancies").header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void findAllVacancies_invalidCursor_isNotCached() throws Exception {
+        when(vacancyService.findPage("kapot", null, false)).thenThrow(new InvalidRequestException("Invalid cursor"));
+
+        mockMvc.perform(get(baseUrl + "/vacancies").param("cursor", "kapot"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+        mockMvc.perform(get(baseUrl + "/vacancies").param("cursor", "kapot"))
+                .andExpect(status().isBadRequest());
+
+        verify(vacancyService, times(2)).findPage("kapot", null, false);
+    }
+
 
     @Test
     void createVacancySuccess() throws Exception {
@@ -265,7 +395,7 @@ class VacancyControllerTest {
         responseDto.setPostedAt(FIXED_DATE); // let op: zie opmerking hieronder
         responseDto.setApplications(List.of(in, out)); // status PENDING in dto[0]?
 
-       when(vacancyService.update(eq(vacancyId), any(VacancyDto.class))).thenReturn(responseDto);
+       when(vacancyService.update(eq(vacancyId), any(VacancyDto.class), isNull())).thenReturn(responseDto);
 
         mockMvc.perform(put(baseUrl + "/vacancies/{id}", 3L)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -283,7 +413,7 @@ class VacancyControllerTest {
                 .andExpect(jsonPath("$.data.location").value("Spijkenisse City updated"))
                 .andExpect(jsonPath("$.data.postedAt").exists())
                 .andExpect(jsonPath("$.data.applications[0].status").value("APPLIED"));
-        verify(vacancyService).update(eq(3L), any(VacancyDto.class));
+        verify(vacancyService).update(eq(3L), any(VacancyDto.class), isNull());
     }
 
     @Test
@@ -305,17 +435,51 @@ class VacancyControllerTest {
     }
 
 
+    @Test
+    void patchVacancy_mergePatch_returnsUpdatedVacancy() throws Exception {
+        var updated = TD.vacancyDto(3L);
+        updated.setTitle("Senior J2EE Developer");
+        given(vacancyService.patch(eq(3L), any(VacancyDto.class), eq("\"4\""))).willReturn(updated);
+
+        mockMvc.perform(patch(baseUrl + "/vacancies/{id}", 3L)
+                        .header(HttpHeaders.IF_MATCH, "\"4\"")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"title\": \"Senior J2EE Developer\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Update Success"))
+                .andExpect(jsonPath("$.data.title").value("Senior J2EE Developer"));
+        verify(vacancyService).patch(eq(3L), argThat(p -> "Senior J2EE Developer".equals(p.getTitle())
+                && p.getDescription() == null && p.getApplications() == null), eq("\"4\""));
+    }
+
+    @Test
+    void patchVacancy_notAnObjectOrPlainJson_returns400() throws Exception {
+        mockMvc.perform(patch(baseUrl + "/vacancies/{id}", 3L)
+                        .contentType("application/merge-patch+json")
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("A merge patch must be a JSON object"));
+        // alleen application/merge-patch+json
+        mockMvc.perform(patch(baseUrl + "/vacancies/{id}", 3L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"x\"}"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(vacancyService);
+    }
+
     // ---------- DELETE ----------
     @Test
     void delete_success() throws Exception {
         Long id = 1L;
-        //willDoNothing().given(vacancyService).delete(1L);
+        given(vacancyService.delete(id)).willReturn(new DeleteResultDto(id, 3));
 
         mockMvc.perform(delete(baseUrl + "/vacancies/{id}", id).accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.flag").value(true))
                 .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
-                .andExpect(jsonPath("$.message").value("Delete Success"));
+                .andExpect(jsonPath("$.message").value("Delete Success"))
+                .andExpect(jsonPath("$.data.id").value(1))
+                .andExpect(jsonPath("$.data.deletedApplications").value(3));
     }
 
     // ---------- NOT FOUND via Advice ----------
@@ -332,4 +496,30 @@ class VacancyControllerTest {
                 .andExpect(jsonPath("$.data").value(org.hamcrest.Matchers.nullValue()));
         verify(vacancyService).findById(vacancyId);
     }
-}
\ No newline at end of file
+
+    // ---------- Cache-statistieken via actuator ----------
+    @Test
+    void secondLevelCacheMetrics_areExposed() throws Exception {
+        mockMvc.perform(get("/actuator/metrics/hibernate.second.level.cache.requests"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.availableTags[?(@.tag == 'result')].values[*]",
+                        org.hamcrest.Matchers.hasItems("hit", "miss")));
+        mockMvc.perform(get("/actuator/metrics/hibernate.cache.query.requests"))
+                .andExpect(status().isOk());
+    }
+
+    // ---------- Connection pool via actuator ----------
+    @Test
+    void connectionPoolMetrics_areExposed() throws Exception {
+        for (String metric : List.of("active", "idle", "pending", "max", "acquire")) {
+            mockMvc.perform(get("/actuator/metrics/hikaricp.connections." + metric))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.availableTags[?(@.tag == 'pool')].values[*]",
+                            org.hamcrest.Matchers.hasItem("jobapp-pool")));
+        }
+        mockMvc.perform(get("/actuator/metrics/hikaricp.connections.acquire.percentile"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.availableTags[?(@.tag == 'phi')].values[*]",
+                        org.hamcrest.Matchers.hasItems("0.5", "0.95", "0.99")));
+    }
+}
@@ -0,0 +1,98 @@
+package nl.andarabski.repository;
+
+import nl.andarabski.model.ApplicationStatus;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Draait EXPLAIN (H2) op de SQL die Hibernate voor de repository-queries genereert, tegen het schema uit de
+ * Flyway-migraties. Faalt zodra een query een index uit V1__create_schema.sql niet meer gebruikt.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "nl.andarabski.repository.QueryPlanTest$Recorder")
+class QueryPlanTest {
+
+    /** Onthoudt de SQL van elk statement dat Hibernate voorbereidt. */
+    public static class Recorder implements StatementInspector {
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired ApplicationRepository applicationRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired VacancyRepository vacancyRepository;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeEach
+    void reset() {
+        Recorder.SQL.clear();
+    }
+
+    @Test
+    void applicationsOfVacancies_useVacancyIdIndex() {
+        applicationRepository.findViewsByVacancyIdIn(List.of(1L, 2L));
+
+        assertThat(plan()).contains("IDX_APPLICATION_VACANCY_ID");
+    }
+
+    @Test
+    void latestByStatus_usesStatusAppliedAtIndex() {
+        applicationRepository.findViewsByStatus(ApplicationStatus.PENDING, Limit.of(20));
+
+        assertThat(plan()).contains("IDX_APPLICATION_STATUS_APPLIED_AT");
+    }
+
+    @Test
+    void applicationsOfUsers_useAnIndexOnUserId() {
+        applicationRepository.findViewsByUserIdIn(List.of(1L, 2L));
+
+        // H2 legt voor fk_application_user een eigen index aan; elders dekt uk (user_id, vacancy_id) dit pad
+        assertThat(plan()).contains("USER_ID IN(?1, ?2) */").doesNotContain("TABLESCAN");
+    }
+
+    @Test
+    void existsByEmail_usesEmailIndex() {
+        userRepository.existsByEmail("someone@example.com");
+
+        assertThat(plan()).contains("IDX_APP_USER_EMAIL");
+    }
+
+    @Test
+    void vacancyETag_aggregatesOverCoveringIndex() {
+        vacancyRepository.findVersionStampById(1L);
+
+        assertThat(plan()).contains("IDX_APPLICATION_VACANCY_VERSION: VACANCY_ID = V1_0.ID").doesNotContain("TABLESCAN");
+    }
+
+    @Test
+    void userETag_aggregatesOverCoveringIndex() {
+        userRepository.findVersionStampById(1L);
+
+        assertThat(plan()).contains("IDX_APPLICATION_USER_VERSION: USER_ID = U1_0.ID").doesNotContain("TABLESCAN");
+    }
+
+    // EXPLAIN van het laatst opgenomen statement; parameters zijn voor het plan niet nodig (null volstaat)
+    private String plan() {
+        assertThat(Recorder.SQL).isNotEmpty();
+        String sql = Recorder.SQL.get(Recorder.SQL.size() - 1);
+        int parameters = (int) sql.chars().filter(c -> c == '?').count();
+        String plan = jdbc.queryForObject("explain " + sql, String.class, new Object[parameters]);
+        return plan.toUpperCase(Locale.ROOT);
+    }
+}
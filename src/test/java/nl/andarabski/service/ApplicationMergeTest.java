@@ -0,0 +1,163 @@
+package nl.andarabski.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.UserDto;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.mapper.UserMapperImpl;
+import nl.andarabski.mapper.VacancyMapperImpl;
+import nl.andarabski.model.User;
+import nl.andarabski.system.exception.InvalidRequestException;
+import nl.andarabski.system.exception.ObjectNotFoundException;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * PUT van een user/vacancy met 1.000 applications: de applications worden op id gediffd, dus alleen de rijen
+ * die echt veranderen kosten een statement en de overige houden hun versie. Fouten in de lijst geven dezelfde
+ * status als bij een losse apply: onbekende status 400, onbekende user/vacancy 404, dubbele application 409.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({UserService.class, VacancyService.class, VacancyDtoCache.class, FileStorageService.class,
+        UserMapperImpl.class, VacancyMapperImpl.class, ApplicationMapperImpl.class})
+class ApplicationMergeTest {
+
+    private static final int APPLICATIONS = 1_000;
+    // buiten het bereik van de sequences, zodat Hibernate-inserts niet botsen met de bulk-rijen
+    private static final long BULK_ID = 1_000_000L;
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired UserService userService;
+    @Autowired VacancyService vacancyService;
+
+    User user;
+
+    @BeforeEach
+    void seed() {
+        user = TD.user(null);
+        em.persist(user);
+        em.flush();
+        // één application per vacancy: (user_id, vacancy_id) is uniek
+        jdbc.update("insert into vacancy (id, version, title, company_name, description, location, posted_at) "
+                + "select ? + x, 0, 'Vacancy ' || x, 'Company', 'Description', 'Amsterdam', current_timestamp "
+                + "from system_range(0, ? - 1)", BULK_ID, APPLICATIONS);
+        jdbc.update("insert into application (id, version, user_id, vacancy_id, motivation, status, applied_at) "
+                + "select ? + x, 0, ?, ? + x, 'Motivation', 'APPLIED', current_timestamp "
+                + "from system_range(0, ? - 1)", BULK_ID, user.getId(), BULK_ID, APPLICATIONS);
+        em.clear();
+    }
+
+    @Test
+    void userWithThousandApplications_oneChanged_updatesOneRow() {
+        UserDto patch = userService.findById(user.getId());
+        patch.getApplications().get(500).setMotivation("Aangepast");
+        Statistics stats = stats();
+
+        userService.update(user.getId(), patch, null, null);
+        em.flush();
+
+        // 1x user + applications (entity graph) + 1x UPDATE van de gewijzigde application
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2L);
+        assertThat(stats.getEntityUpdateCount()).isEqualTo(1L);
+        assertThat(stats.getEntityInsertCount()).isZero();
+        assertThat(stats.getEntityDeleteCount()).isZero();
+        assertThat(versions()).containsOnly(0L, 1L).filteredOn(v -> v == 1L).hasSize(1);
+    }
+
+    @Test
+    void userUpdate_addAndRemove_insertsAndDeletesOnlyThoseRows() {
+        UserDto patch = userService.findById(user.getId());
+        List<ApplicationDto> applications = new ArrayList<>(patch.getApplications());
+        applications.remove(0);
+        Long vacancyId = applications.get(0).getVacancyId() + APPLICATIONS;
+        jdbc.update("insert into vacancy (id, version, title, company_name, description, location, posted_at) "
+                + "values (?, 0, 'Nieuw', 'Company', 'Description', 'Amsterdam', current_timestamp)", vacancyId);
+        applications.add(TD.applicationDto(null, user.getId(), vacancyId, "PENDING", "Nieuw"));
+        patch.setApplications(applications);
+        Statistics stats = stats();
+
+        userService.update(user.getId(), patch, null, null);
+        em.flush();
+
+        assertThat(stats.getEntityInsertCount()).isEqualTo(1L);
+        assertThat(stats.getEntityDeleteCount()).isEqualTo(1L);
+        assertThat(stats.getEntityUpdateCount()).isZero();
+        assertThat(versions()).hasSize(APPLICATIONS).containsOnly(0L);
+    }
+
+    @Test
+    void vacancyUpdate_unchangedApplications_updatesNothing() {
+        Long vacancyId = BULK_ID + 7;
+        VacancyDto patch = vacancyService.findById(vacancyId);
+        Statistics stats = stats();
+
+        vacancyService.update(vacancyId, patch);
+        em.flush();
+
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1L);
+        assertThat(stats.getEntityUpdateCount()).isZero();
+    }
+
+    @Test
+    void userUpdate_newApplicationForUnknownVacancy_isNotFound() {
+        UserDto patch = userService.findById(user.getId());
+        List<ApplicationDto> applications = new ArrayList<>(patch.getApplications());
+        applications.add(TD.applicationDto(null, user.getId(), 999_999_999L, "PENDING", "Nieuw"));
+        patch.setApplications(applications);
+
+        // de foreign key faalt bij de flush in de service, niet pas bij de commit (dan was het een 409)
+        assertThatThrownBy(() -> userService.update(user.getId(), patch, null, null))
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessage("Could not find Vacancy with Id: 999999999 :(");
+    }
+
+    @Test
+    void vacancyUpdate_unknownStatus_isInvalidRequest_andSecondApplicationOfAUser_isAConflict() {
+        // eigen vacancy: de query cache van findById overleeft de rollback van de andere tests
+        Long vacancyId = BULK_ID + 8;
+        VacancyDto patch = vacancyService.findById(vacancyId);
+        patch.getApplications().get(0).setStatus("hired");
+
+        assertThatThrownBy(() -> vacancyService.update(vacancyId, patch))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessage("Unknown application status: hired");
+
+        em.clear();
+        VacancyDto duplicate = vacancyService.findById(vacancyId);
+        List<ApplicationDto> applications = new ArrayList<>(duplicate.getApplications());
+        applications.add(TD.applicationDto(null, user.getId(), vacancyId, "PENDING", "Nog een keer"));
+        duplicate.setApplications(applications);
+
+        assertThatThrownBy(() -> vacancyService.update(vacancyId, duplicate))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("User already applied to this vacancy");
+    }
+
+    private Statistics stats() {
+        em.clear();
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        return stats;
+    }
+
+    private List<Long> versions() {
+        return jdbc.queryForList("select version from application where user_id = ?", Long.class, user.getId());
+    }
+}
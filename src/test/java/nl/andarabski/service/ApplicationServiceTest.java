@@ -2,18 +2,27 @@ package nl.andarabski.service;
 
 import nl.andarabski.converter.ApplicationToApplicationDtoConverter;
 import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.ApplyRequestDto;
+import nl.andarabski.dto.ApplyResultDto;
 import nl.andarabski.mapper.ApplicationMapper;
 import nl.andarabski.model.*;
 import nl.andarabski.repository.*;
+import nl.andarabski.repository.projection.ApplicationKey;
+import nl.andarabski.system.StatusCode;
+import nl.andarabski.system.exception.InvalidRequestException;
 import nl.andarabski.system.exception.ObjectNotFoundException;
 import nl.andarabski.testsupport.TD;
+import nl.andarabski.util.CursorUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mapstruct.factory.Mappers;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.*;
 
@@ -29,13 +38,16 @@ class ApplicationServiceTest {
     @Mock UserRepository userRepository;
     @Mock VacancyRepository vacancyRepository;
     @Mock ApplicationMapper applicationMapper;
+    @Mock VacancyDtoCache vacancyDtoCache;
+    @Mock PlatformTransactionManager transactionManager;
+    @Captor ArgumentCaptor<List<Application>> saved;
 
     ApplicationService applicationService;
 
     @BeforeEach
     void setUp() {
         var realMapper = Mappers.getMapper(ApplicationMapper.class);
-        applicationService = new ApplicationService(applicationRepository ,  vacancyRepository, userRepository, applicationMapper);
+        applicationService = new ApplicationService(applicationRepository ,  vacancyRepository, userRepository, applicationMapper, vacancyDtoCache, transactionManager);
     }
     @Test
     void findAll_mapsAndKeepsOrder() {
@@ -61,25 +73,82 @@ class ApplicationServiceTest {
         verifyNoMoreInteractions(applicationRepository, applicationMapper);
     }
 
+    @Test
+    void findLatestByStatus_parsesStatusCaseInsensitive_andClampsSize() {
+        var a1 = applicationView(10L, 1L, 3L, ApplicationStatus.PENDING, "ok");
+        given(applicationRepository.findViewsByStatus(ApplicationStatus.PENDING, Limit.of(CursorUtil.MAX_PAGE_SIZE)))
+                .willReturn(List.of(a1));
+        given(applicationMapper.toDto(a1)).willReturn(TD.applicationDto(10L, 1L, 3L, "PENDING", "ok"));
+
+        var out = applicationService.findLatestByStatus("pending", 10_000);
+
+        assertThat(out).extracting(ApplicationDto::getId).containsExactly(10L);
+    }
+
+    @Test
+    void findLatestByStatus_unknownStatus_throwsInvalidRequest() {
+        assertThatThrownBy(() -> applicationService.findLatestByStatus("HIRED", null))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("HIRED");
+        verifyNoInteractions(applicationRepository);
+    }
+
+    @Test
+    void findPage_fetchesOneExtraRow_andReturnsCursorOfLastItem() {
+        var a1 = applicationView(10L, 1L, 3L, ApplicationStatus.APPLIED, "ok");
+        var a2 = applicationView(11L, 1L, 3L, ApplicationStatus.PENDING, "ok2");
+        var probe = applicationView(12L, 1L, 3L, ApplicationStatus.PENDING, "ok3");
+        given(applicationRepository.findViewsAfter(0L, Limit.of(3)))
+                .willReturn(List.of(a1, a2, probe));
+        given(applicationMapper.toDto(a1)).willReturn(TD.applicationDto(10L, 1L, 3L, "APPLIED", "ok"));
+        given(applicationMapper.toDto(a2)).willReturn(TD.applicationDto(11L, 1L, 3L, "PENDING", "ok2"));
+
+        var page = applicationService.findPage(null, 2);
+
+        assertThat(page.getItems()).extracting(ApplicationDto::getId).containsExactly(10L, 11L);
+        assertThat(page.isHasMore()).isTrue();
+        assertThat(CursorUtil.decode(page.getNextCursor())).isEqualTo(11L);
+
+        verify(applicationRepository).findViewsAfter(0L, Limit.of(3));
+        verify(applicationMapper, never()).toDto(probe);
+    }
+
+    @Test
+    void findPage_continuesAfterCursor_lastPageHasNoCursor() {
+        var a3 = applicationView(12L, 1L, 3L, ApplicationStatus.PENDING, "ok3");
+        given(applicationRepository.findViewsAfter(11L, Limit.of(3))).willReturn(List.of(a3));
+        given(applicationMapper.toDto(a3)).willReturn(TD.applicationDto(12L, 1L, 3L, "PENDING", "ok3"));
+
+        var page = applicationService.findPage(CursorUtil.encode(11L), 2);
+
+        assertThat(page.getItems()).extracting(ApplicationDto::getId).containsExactly(12L);
+        assertThat(page.isHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void findPage_invalidCursor_throwsInvalidRequest() {
+        assertThatThrownBy(() -> applicationService.findPage("not-a-cursor", 10))
+                .isInstanceOf(InvalidRequestException.class);
+        verifyNoInteractions(applicationRepository, applicationMapper);
+    }
+
     @Test
     void findById_notFound() {
-        given(applicationRepository.findById(10L)).willReturn(Optional.empty());
+        given(applicationRepository.findViewById(10L)).willReturn(Optional.empty());
 
         assertThatThrownBy(() -> applicationService.findById(10L))
                 .isInstanceOf(ObjectNotFoundException.class)
                 .hasMessage("Could not find Application with Id: " + 10L + " :(");
 
-        verify(applicationRepository).findById(10L);
+        verify(applicationRepository).findViewById(10L);
         verifyNoMoreInteractions(applicationRepository, applicationMapper);
     }
 
     @Test
     void findApplicationById_mapsAndKeepsOrder() {
-        var u = user(1L); var v = vacancy(3L);
-        var a1 = application(10L, u, v, ApplicationStatus.APPLIED, "ok");
-        //var a2 = application(11L, u, v, ApplicationStatus.PENDING, "ok2");
-       // v.setApplications(List.of(a1, a2));
-        given(applicationRepository.findById(10L)).willReturn(Optional.of(a1));
+        var a1 = applicationView(10L, 1L, 3L, ApplicationStatus.APPLIED, "ok");
+        given(applicationRepository.findViewById(10L)).willReturn(Optional.of(a1));
 
         var dto = TD.applicationDto(10L, 1L, 3L, "APPLIED", "ok");
         given(applicationMapper.toDto(a1)).willReturn(dto);
@@ -89,7 +158,7 @@ class ApplicationServiceTest {
         assertThat(out).isEqualTo(dto);
         assertThat(out.getId()).isEqualTo(10L);
         assertThat(out.getStatus()).isEqualTo("APPLIED");
-        verify(applicationRepository).findById(10L);
+        verify(applicationRepository).findViewById(10L);
         verify(applicationMapper).toDto(a1);
         verifyNoMoreInteractions(applicationRepository, applicationMapper);
 
@@ -164,9 +233,14 @@ class ApplicationServiceTest {
 
     @Test
     void delete_success() {
+        given(applicationRepository.findVacancyIdById(1L)).willReturn(Optional.of(5L));
+
         assertDoesNotThrow(() -> applicationService.delete(1L));
 
         verify(applicationRepository).deleteById(1L);
+        // de gecachte dto van de vacancy toont deze application niet meer
+        verify(vacancyDtoCache).evict(5L);
+        verify(applicationRepository).findVacancyIdById(1L);
         verifyNoMoreInteractions(applicationRepository);
     }
 
@@ -181,7 +255,9 @@ class ApplicationServiceTest {
                 .hasMessageContaining("999");
 
         verify(applicationRepository).deleteById(999L);
+        verify(applicationRepository).findVacancyIdById(999L);
         verifyNoMoreInteractions(applicationRepository);
+        verifyNoInteractions(vacancyDtoCache);
     }
 
     @Test
@@ -192,37 +268,42 @@ class ApplicationServiceTest {
     }
 
 
-    // 3) applyToVacancy – user not found
+    // 3) applyToVacancy – user not found: geen SELECT vooraf, de foreign key beslist
     @Test
     void applyToVacancy_userNotFound_throws() {
-        given(userRepository.findById(1L)).willReturn(Optional.empty());
+        given(userRepository.getReferenceById(1L)).willReturn(user(1L));
+        given(vacancyRepository.getReferenceById(2L)).willReturn(vacancy(2L));
+        given(applicationRepository.saveAndFlush(any(Application.class))).willThrow(duplicateKey(
+                "PUBLIC." + Application.FK_USER.toUpperCase() + ": PUBLIC.APPLICATION FOREIGN KEY(USER_ID)"));
 
         assertThatThrownBy(() -> applicationService.applyToVacancy(1L, 2L, "mot"))
-                .isInstanceOf(ObjectNotFoundException.class);
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessage(new ObjectNotFoundException("User", 1L).getMessage());
 
-        verify(userRepository).findById(1L);
-        verifyNoMoreInteractions(userRepository);
-        verifyNoInteractions(vacancyRepository, applicationRepository);
+        verify(userRepository, never()).findById(any());
+        verify(vacancyRepository, never()).findById(any());
     }
 
     // 4) applyToVacancy – vacancy not found
     @Test
     void applyToVacancy_vacancyNotFound_throws() {
-        given(userRepository.findById(1L)).willReturn(Optional.empty());
-        assertThatThrownBy(() -> applicationService.applyToVacancy(1L, 2L, "mot"))
-                .isInstanceOf(ObjectNotFoundException.class);
+        given(userRepository.getReferenceById(1L)).willReturn(user(1L));
+        given(vacancyRepository.getReferenceById(2L)).willReturn(vacancy(2L));
+        given(applicationRepository.saveAndFlush(any(Application.class))).willThrow(duplicateKey(
+                "PUBLIC." + Application.FK_VACANCY.toUpperCase() + ": PUBLIC.APPLICATION FOREIGN KEY(VACANCY_ID)"));
 
-        verify(userRepository).findById(1L);
-        verifyNoMoreInteractions(vacancyRepository, applicationRepository);
+        assertThatThrownBy(() -> applicationService.applyToVacancy(1L, 2L, "mot"))
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessage(new ObjectNotFoundException("Vacancy", 2L).getMessage());
+        verifyNoInteractions(vacancyDtoCache);
     }
 
     @Test
     void shouldApplyToVacancySuccessfully() {
         var u = user(1L); var v = vacancy(2L);
-        given(userRepository.findById(1L)).willReturn(Optional.of(u));
-        given(vacancyRepository.findById(2L)).willReturn(Optional.of(v));
-        given(applicationRepository.existsByUserIdAndVacancyId(1L, 2L)).willReturn(false);
-        given(applicationRepository.save(any(Application.class))).willAnswer(inv -> {
+        given(userRepository.getReferenceById(1L)).willReturn(u);
+        given(vacancyRepository.getReferenceById(2L)).willReturn(v);
+        given(applicationRepository.saveAndFlush(any(Application.class))).willAnswer(inv -> {
             Application a = inv.getArgument(0); a.setId(99L); return a;
         });
 
@@ -234,22 +315,115 @@ class ApplicationServiceTest {
         // NB: laat de service 'PENDING' zetten zoals eerder besproken
         assertThat(result.getStatus()).isEqualTo(ApplicationStatus.PENDING);
 
-        verify(applicationRepository).existsByUserIdAndVacancyId(1L, 2L);
-        verify(applicationRepository).save(any(Application.class));
+        // geen exists-query vooraf: de unique constraint beslist; user/vacancy alleen als reference
+        verify(applicationRepository, never()).existsByUserIdAndVacancyId(any(), any());
+        verify(userRepository, never()).findById(any());
+        verify(vacancyRepository, never()).findById(any());
+        verify(applicationRepository).saveAndFlush(any(Application.class));
     }
 
     @Test
     void shouldNotApplyTwiceToSameVacancy() {
         var u = user(1L); var v = vacancy(2L);
-        var existing = application(10L, u, v, ApplicationStatus.APPLIED, "dup");
-        given(userRepository.findById(1L)).willReturn(Optional.of(u));
-        given(vacancyRepository.findById(2L)).willReturn(Optional.of(v));
-        given(applicationRepository.existsByUserIdAndVacancyId(1L, 2L)).willReturn(true);
+        given(userRepository.getReferenceById(1L)).willReturn(u);
+        given(vacancyRepository.getReferenceById(2L)).willReturn(v);
+        given(applicationRepository.saveAndFlush(any(Application.class))).willThrow(duplicateKey(
+                "PUBLIC." + Application.UK_USER_VACANCY.toUpperCase() + "_INDEX_A"));
 
         assertThatThrownBy(() -> applicationService.applyToVacancy(1L, 2L, "again"))
-                .isInstanceOf(IllegalArgumentException.class);
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("User already applied to this vacancy");
+
+        verify(applicationRepository, never()).existsByUserIdAndVacancyId(any(), any());
+    }
+
+    @Test
+    void applyToVacancy_otherConstraintViolation_isRethrown() {
+        var u = user(1L); var v = vacancy(2L);
+        given(userRepository.getReferenceById(1L)).willReturn(u);
+        given(vacancyRepository.getReferenceById(2L)).willReturn(v);
+        var fkViolation = duplicateKey("FK_SOMETHING_ELSE");
+        given(applicationRepository.saveAndFlush(any(Application.class))).willThrow(fkViolation);
+
+        assertThatThrownBy(() -> applicationService.applyToVacancy(1L, 2L, "again"))
+                .isSameAs(fkViolation);
+    }
+
+    private static DataIntegrityViolationException duplicateKey(String constraintName) {
+        var cause = new org.hibernate.exception.ConstraintViolationException(
+                "constraint violated", new java.sql.SQLException("23505"), constraintName);
+        return new DataIntegrityViolationException("could not execute statement", cause);
+    }
+
+    @Test
+    void applyToVacancies_reportsPerItem_andInsertsOnlyNewPairs() {
+        given(userRepository.findExistingIds(Set.of(1L, 2L))).willReturn(List.of(1L));
+        given(vacancyRepository.findExistingIds(Set.of(3L, 4L))).willReturn(List.of(3L, 4L));
+        given(applicationRepository.findKeysByUserIdInAndVacancyIdIn(Set.of(1L), Set.of(3L, 4L)))
+                .willReturn(List.of(new ApplicationKey(1L, 4L)));
+        given(applicationRepository.saveAll(anyList())).willAnswer(inv -> {
+            List<Application> apps = inv.getArgument(0);
+            apps.get(0).setId(99L);
+            return apps;
+        });
 
-        verify(applicationRepository).existsByUserIdAndVacancyId(1L, 2L);
-        verify(applicationRepository, never()).save(any());
+        var out = applicationService.applyToVacancies(List.of(
+                new ApplyRequestDto("new", 1L, 3L),       // nieuw
+                new ApplyRequestDto("dup in db", 1L, 4L), // bestaat al
+                new ApplyRequestDto("dup in batch", 1L, 3L),
+                new ApplyRequestDto("no user", 2L, 3L),
+                new ApplyRequestDto(" ", 1L, 3L)));
+
+        assertThat(out).extracting(ApplyResultDto::getCode).containsExactly(
+                StatusCode.CREATED, StatusCode.CONFLICT, StatusCode.CONFLICT,
+                StatusCode.NOT_FOUND, StatusCode.INVALID_ARGUMENT);
+        assertThat(out).extracting(ApplyResultDto::getIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(out.get(0).getApplicationId()).isEqualTo(99L);
+        assertThat(out.get(3).getMessage()).isEqualTo("Could not find User with Id: 2 :(");
+
+        verify(applicationRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).singleElement()
+                .satisfies(a -> assertThat(a.getStatus()).isEqualTo(ApplicationStatus.PENDING));
+        // geen losse lookups per item
+        verify(userRepository, never()).findById(any());
+        verify(vacancyRepository, never()).findById(any());
+        verify(applicationRepository, never()).existsByUserIdAndVacancyId(any(), any());
+    }
+
+    @Test
+    void applyToVacancies_pairTakenConcurrently_retriesAndReportsOnlyThatItemAsConflict() {
+        given(userRepository.findExistingIds(Set.of(1L))).willReturn(List.of(1L));
+        given(vacancyRepository.findExistingIds(Set.of(3L, 4L))).willReturn(List.of(3L, 4L));
+        // de eerste poging ziet (1, 3) nog niet; een gelijktijdige apply commit het paar vóór onze flush
+        given(applicationRepository.findKeysByUserIdInAndVacancyIdIn(Set.of(1L), Set.of(3L, 4L)))
+                .willReturn(List.of())
+                .willReturn(List.of(new ApplicationKey(1L, 3L)));
+        given(vacancyRepository.getReferenceById(anyLong())).willAnswer(inv -> vacancy(inv.getArgument(0)));
+        given(applicationRepository.saveAll(anyList())).willAnswer(inv -> inv.getArgument(0));
+        willThrow(duplicateKey("PUBLIC." + Application.UK_USER_VACANCY.toUpperCase() + "_INDEX_A"))
+                .willDoNothing()
+                .given(applicationRepository).flush();
+
+        var out = applicationService.applyToVacancies(List.of(
+                new ApplyRequestDto("taken meanwhile", 1L, 3L),
+                new ApplyRequestDto("free", 1L, 4L)));
+
+        assertThat(out).extracting(ApplyResultDto::getCode).containsExactly(StatusCode.CONFLICT, StatusCode.CREATED);
+        // elke poging in een eigen transactie: de eerste rolt terug, de tweede commit
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+        verify(applicationRepository, times(2)).saveAll(saved.capture());
+        assertThat(saved.getValue()).singleElement()
+                .satisfies(a -> assertThat(a.getVacancy().getId()).isEqualTo(4L));
+    }
+
+    @Test
+    void applyToVacancies_emptyOrTooLarge_throwsInvalidRequest() {
+        assertThatThrownBy(() -> applicationService.applyToVacancies(List.of()))
+                .isInstanceOf(InvalidRequestException.class);
+        var tooMany = Collections.nCopies(ApplicationService.MAX_BATCH_SIZE + 1, new ApplyRequestDto("m", 1L, 1L));
+        assertThatThrownBy(() -> applicationService.applyToVacancies(tooMany))
+                .isInstanceOf(InvalidRequestException.class);
+        verifyNoInteractions(applicationRepository, userRepository, vacancyRepository);
     }
 }
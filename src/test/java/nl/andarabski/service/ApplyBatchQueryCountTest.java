@@ -0,0 +1,98 @@
+package nl.andarabski.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import nl.andarabski.dto.ApplyRequestDto;
+import nl.andarabski.dto.ApplyResultDto;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.system.StatusCode;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Batch-apply moet een vast aantal SELECTs doen (users, vacancies, bestaande paren) en de inserts
+ * in JDBC-batches versturen, hoe groot de batch ook is.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ApplicationService.class, VacancyDtoCache.class, ApplicationMapperImpl.class})
+class ApplyBatchQueryCountTest {
+
+    private static final int USERS = 400;
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired ApplicationService applicationService;
+
+    Statistics stats;
+    List<Long> userIds = new ArrayList<>();
+    Long java;
+    Long python;
+
+    @BeforeEach
+    void seed() {
+        Vacancy v1 = TD.vacancy(null);
+        Vacancy v2 = TD.vacancy(null);
+        v2.setTitle("Python Developer");
+        em.persist(v1);
+        em.persist(v2);
+        for (int i = 0; i < USERS; i++) {
+            User u = TD.user(null);
+            u.setEmail("batch" + i + "@example.com");
+            em.persist(u);
+            userIds.add(u.getId());
+        }
+        // één bestaande application: moet als conflict terugkomen
+        User first = em.getReference(User.class, userIds.get(0));
+        em.persist(new Application(null, first, v1, "existing", ApplicationStatus.APPLIED, TD.FIXED_DATE));
+        em.flush();
+        em.clear();
+        java = v1.getId();
+        python = v2.getId();
+
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void applyToVacancies_usesConstantSelectsAndBatchedInserts() {
+        List<ApplyRequestDto> requests = new ArrayList<>();
+        for (Long userId : userIds) {
+            requests.add(new ApplyRequestDto("java", userId, java));
+            requests.add(new ApplyRequestDto("python", userId, python));
+        }
+        requests.add(new ApplyRequestDto("ghost", -1L, java));
+
+        List<ApplyResultDto> out = applicationService.applyToVacancies(requests);
+        em.flush();
+
+        assertThat(out).hasSize(2 * USERS + 1);
+        assertThat(out.get(0).getCode()).isEqualTo(StatusCode.CONFLICT);
+        assertThat(out.get(out.size() - 1).getCode()).isEqualTo(StatusCode.NOT_FOUND);
+        long created = out.stream().filter(r -> r.getCode() == StatusCode.CREATED).count();
+        assertThat(created).isEqualTo(2L * USERS - 1);
+        assertThat(out).filteredOn(r -> r.getCode() == StatusCode.CREATED)
+                .allSatisfy(r -> assertThat(r.getApplicationId()).isNotNull());
+
+        // 3 SELECTs (users, vacancies, paren); geen lookup per item
+        assertThat(stats.getQueryExecutionCount()).isEqualTo(3L);
+        assertThat(stats.getEntityLoadCount()).isZero();
+        assertThat(stats.getEntityInsertCount()).isEqualTo(created);
+        // inserts in batches van 50 (hibernate.jdbc.batch_size) i.p.v. één statement per rij
+        assertThat(stats.getPrepareStatementCount()).isLessThan(created / 10);
+    }
+}
@@ -0,0 +1,115 @@
+package nl.andarabski.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.system.exception.ObjectNotFoundException;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Telt de statements van een apply op een vacancy met 10 en met 100.000 applicants: de user en vacancy
+ * worden niet geladen en hun applications-collecties niet geïnitialiseerd, dus het aantal blijft gelijk.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ApplicationService.class, VacancyDtoCache.class, ApplicationMapperImpl.class})
+class ApplyQueryCountTest {
+
+    private static final int MANY = 100_000;
+    // buiten het bereik van de sequences, zodat Hibernate-inserts niet botsen met de bulk-rijen
+    private static final long BULK_ID = 1_000_000L;
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired ApplicationService applicationService;
+
+    Vacancy few;
+    Vacancy many;
+
+    @BeforeEach
+    void seed() {
+        few = persistVacancy("Few applicants");
+        many = persistVacancy("Many applicants");
+        em.flush();
+        insertApplicants(few.getId(), 10);
+        insertApplicants(many.getId(), MANY);
+    }
+
+    @Test
+    void apply_costsTheSameForTenAndHundredThousandApplicants() {
+        // eerste insert haalt een blok uit application_seq: niet meetellen
+        applicationService.applyToVacancy(persistUser().getId(), few.getId(), "warm-up");
+
+        ApplyCost tenApplicants = measure(persistUser().getId(), few.getId());
+        ApplyCost hundredThousandApplicants = measure(persistUser().getId(), many.getId());
+
+        // alleen de insert: geen SELECT op user/vacancy, geen collectie-fetch
+        assertThat(tenApplicants).isEqualTo(new ApplyCost(1, 0, 0));
+        assertThat(hundredThousandApplicants).isEqualTo(tenApplicants);
+    }
+
+    @Test
+    void apply_unknownUserOrVacancy_isNotFound() {
+        Long userId = persistUser().getId();
+
+        assertThatThrownBy(() -> applicationService.applyToVacancy(userId, 999_999L, "motivation"))
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessageContaining("Vacancy");
+        em.clear();
+        assertThatThrownBy(() -> applicationService.applyToVacancy(999_999L, few.getId(), "motivation"))
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessageContaining("User");
+    }
+
+    record ApplyCost(long statements, long entityLoads, long collectionFetches) {}
+
+    private ApplyCost measure(Long userId, Long vacancyId) {
+        em.clear();
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        Application saved = applicationService.applyToVacancy(userId, vacancyId, "motivation");
+        assertThat(saved.getStatus()).isEqualTo(ApplicationStatus.PENDING);
+        return new ApplyCost(stats.getPrepareStatementCount(), stats.getEntityLoadCount(), stats.getCollectionFetchCount());
+    }
+
+    private Vacancy persistVacancy(String title) {
+        Vacancy v = TD.vacancy(null);
+        v.setTitle(title);
+        em.persist(v);
+        return v;
+    }
+
+    private User persistUser() {
+        User u = TD.user(null);
+        u.setEmail("applicant-" + System.nanoTime() + "@example.com");
+        em.persist(u);
+        em.flush();
+        return u;
+    }
+
+    // set-based: één user per applicant, want (user_id, vacancy_id) is uniek
+    private void insertApplicants(Long vacancyId, int count) {
+        long firstId = BULK_ID + vacancyId * MANY;
+        jdbc.update("insert into app_user (id, version, first_name, last_name, email, password, age, role, enabled) "
+                + "select ? + x, 0, 'First', 'Last', 'bulk' || (? + x) || '@example.com', 'secret', 30, 'user', true "
+                + "from system_range(0, ? - 1)", firstId, firstId, count);
+        jdbc.update("insert into application (id, version, user_id, vacancy_id, motivation, status, applied_at) "
+                + "select ? + x, 0, ? + x, ?, 'Motivation', 'APPLIED', current_timestamp "
+                + "from system_range(0, ? - 1)", firstId, firstId, vacancyId, count);
+    }
+}
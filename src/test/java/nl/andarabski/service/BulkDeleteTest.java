@@ -0,0 +1,117 @@
+package nl.andarabski.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import nl.andarabski.dto.DeleteResultDto;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.mapper.UserMapperImpl;
+import nl.andarabski.mapper.VacancyMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.system.exception.ObjectNotFoundException;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Verwijderen van een vacancy met 50.000 applicants en van een user: de applications gaan in één bulk-DELETE,
+ * er worden geen entities geladen en de persistence context bevat daarna niets verwijderds meer.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({UserService.class, VacancyService.class, VacancyDtoCache.class, FileStorageService.class,
+        UserMapperImpl.class, VacancyMapperImpl.class, ApplicationMapperImpl.class})
+class BulkDeleteTest {
+
+    private static final int APPLICANTS = 50_000;
+    // buiten het bereik van de sequences, zodat Hibernate-inserts niet botsen met de bulk-rijen
+    private static final long BULK_ID = 1_000_000L;
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired VacancyService vacancyService;
+    @Autowired UserService userService;
+
+    Vacancy vacancy;
+    User user;
+    Application application;
+
+    @BeforeEach
+    void seed() {
+        vacancy = TD.vacancy(null);
+        em.persist(vacancy);
+        user = TD.user(null);
+        em.persist(user);
+        application = new Application(null, user, vacancy, "motivation", ApplicationStatus.APPLIED, TD.FIXED_DATE);
+        em.persist(application);
+        em.flush();
+
+        jdbc.update("insert into app_user (id, version, first_name, last_name, email, password, age, role, enabled) "
+                + "select ? + x, 0, 'First', 'Last', 'bulk' || x || '@example.com', 'secret', 30, 'user', true "
+                + "from system_range(0, ? - 1)", BULK_ID, APPLICANTS);
+        jdbc.update("insert into application (id, version, user_id, vacancy_id, motivation, status, applied_at) "
+                + "select ? + x, 0, ? + x, ?, 'Motivation', 'APPLIED', current_timestamp "
+                + "from system_range(0, ? - 1)", BULK_ID, BULK_ID, vacancy.getId(), APPLICANTS);
+    }
+
+    @Test
+    void deleteVacancy_removesAllApplicationsWithTwoStatements() {
+        Statistics stats = stats();
+
+        DeleteResultDto result = vacancyService.delete(vacancy.getId());
+
+        assertThat(result.getDeletedApplications()).isEqualTo(APPLICANTS + 1);
+        // 1x applications + 1x vacancy; niets geladen of per rij verwijderd
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2L);
+        assertThat(stats.getEntityLoadCount()).isZero();
+        assertThat(stats.getEntityDeleteCount()).isZero();
+        // de eerder geladen entities zijn niet meer managed, een nieuwe lookup vindt ze niet
+        assertThat(em.contains(application)).isFalse();
+        assertThat(em.find(Vacancy.class, vacancy.getId())).isNull();
+        assertThat(count("application where vacancy_id = " + vacancy.getId())).isZero();
+        // de users van de applications blijven bestaan
+        assertThat(count("app_user")).isEqualTo(APPLICANTS + 1L);
+    }
+
+    @Test
+    void deleteUser_removesOnlyTheirApplications_andReportsCount() {
+        Statistics stats = stats();
+
+        DeleteResultDto result = userService.delete(user.getId());
+
+        assertThat(result.getDeletedApplications()).isEqualTo(1);
+        // user laden (bestanden vrijgeven) + vacancy-ids (cache) + 2x bulk-DELETE; geen collectie geladen
+        assertThat(stats.getCollectionFetchCount()).isZero();
+        assertThat(stats.getEntityDeleteCount()).isZero();
+        assertThat(em.contains(application)).isFalse();
+        assertThat(em.find(User.class, user.getId())).isNull();
+        assertThat(count("application where vacancy_id = " + vacancy.getId())).isEqualTo(APPLICANTS);
+    }
+
+    @Test
+    void deleteUnknownVacancy_isNotFound() {
+        assertThatThrownBy(() -> vacancyService.delete(999_999L))
+                .isInstanceOf(ObjectNotFoundException.class);
+    }
+
+    private Statistics stats() {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        return stats;
+    }
+
+    private long count(String from) {
+        return jdbc.queryForObject("select count(*) from " + from, Long.class);
+    }
+}
@@ -0,0 +1,201 @@
+package nl.andarabski.service;
+
+import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.ApplyRequestDto;
+import nl.andarabski.dto.ApplyResultDto;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.mapper.VacancyMapperImpl;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.system.StatusCode;
+import nl.andarabski.testsupport.TD;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parallelle applies voor hetzelfde (user, vacancy)-paar: precies één mag slagen, de rest moet als
+ * "already applied" terugkomen; bij batches per item. Een PUT van de vacancy met zijn applications mag daarbij niet
+ * vastlopen tegen de applies. Zonder test-transactie, zodat elke apply echt in zijn eigen
+ * transactie commit.
+ */
+@DataJpaTest
+@Import({ApplicationService.class, VacancyService.class, VacancyDtoCache.class,
+        ApplicationMapperImpl.class, VacancyMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConcurrentApplyTest {
+
+    private static final int THREADS = 16;
+    private static final int BATCH_USERS = 10;
+    private static final int APPLICANTS = 5;
+
+    @Autowired ApplicationService applicationService;
+    @Autowired VacancyService vacancyService;
+    @Autowired ApplicationRepository applicationRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired VacancyRepository vacancyRepository;
+
+    @AfterEach
+    void cleanUp() {
+        applicationRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        vacancyRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void parallelAppliesForSamePair_exactlyOneWins() throws Exception {
+        User user = userRepository.save(TD.user(null));
+        Vacancy vacancy = vacancyRepository.save(TD.vacancy(null));
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> outcomes = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                outcomes.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        applicationService.applyToVacancy(user.getId(), vacancy.getId(), "motivation");
+                        return "created";
+                    } catch (IllegalArgumentException e) {
+                        return e.getMessage();
+                    }
+                }));
+            }
+            start.countDown();
+
+            List<String> results = new ArrayList<>();
+            for (Future<String> f : outcomes) {
+                results.add(f.get());
+            }
+
+            assertThat(results).filteredOn("created"::equals).hasSize(1);
+            assertThat(results).filteredOn(r -> !"created".equals(r))
+                    .hasSize(THREADS - 1)
+                    .containsOnly("User already applied to this vacancy");
+            assertThat(applicationRepository.count()).isEqualTo(1L);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void parallelBatchesForSamePairs_eachPairCreatedOnce_andNoBatchFails() throws Exception {
+        Vacancy vacancy = vacancyRepository.save(TD.vacancy(null));
+        List<ApplyRequestDto> requests = new ArrayList<>();
+        for (int i = 0; i < BATCH_USERS; i++) {
+            User u = TD.user(null);
+            u.setEmail("batch-race" + i + "@example.com");
+            requests.add(new ApplyRequestDto("motivation", userRepository.save(u).getId(), vacancy.getId()));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<ApplyResultDto>>> outcomes = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                outcomes.add(pool.submit(() -> {
+                    start.await();
+                    return applicationService.applyToVacancies(requests);
+                }));
+            }
+            start.countDown();
+
+            // een verloren race geeft geen exception (409 voor de hele batch) maar een nieuwe poging
+            int[] created = new int[BATCH_USERS];
+            for (Future<List<ApplyResultDto>> f : outcomes) {
+                for (ApplyResultDto r : f.get()) {
+                    assertThat(r.getCode()).isIn(StatusCode.CREATED, StatusCode.CONFLICT);
+                    if (r.getCode() == StatusCode.CREATED) {
+                        created[r.getIndex()]++;
+                    }
+                }
+            }
+
+            assertThat(created).containsOnly(1);
+            assertThat(applicationRepository.count()).isEqualTo(BATCH_USERS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void putVacancyWithApplications_whileApplying_neitherDeadlocksNorFailsAnApply() throws Exception {
+        Vacancy vacancy = vacancyRepository.save(TD.vacancy(null));
+        for (int i = 0; i < APPLICANTS; i++) {
+            applicationService.applyToVacancy(newUser("applicant" + i).getId(), vacancy.getId(), "motivation");
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            users.add(newUser("put-race" + i));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> outcomes = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                User user = users.get(i);
+                boolean put = i % 2 == 0;
+                outcomes.add(pool.submit(() -> {
+                    start.await();
+                    if (!put) {
+                        applicationService.applyToVacancy(user.getId(), vacancy.getId(), "motivation");
+                        return "applied";
+                    }
+                    // wijzigt de vacancy zelf, de bestaande applications en voegt er één toe
+                    VacancyDto patch = vacancyService.findById(vacancy.getId());
+                    patch.setTitle("Titel van " + user.getEmail());
+                    List<ApplicationDto> applications = new ArrayList<>(patch.getApplications());
+                    applications.forEach(a -> a.setStatus("REJECTED"));
+                    applications.add(TD.applicationDto(null, user.getId(), vacancy.getId(), "PENDING", "Via PUT"));
+                    patch.setApplications(applications);
+                    try {
+                        vacancyService.update(vacancy.getId(), patch);
+                        return "updated";
+                    } catch (OptimisticLockingFailureException e) {
+                        return "conflict"; // een andere PUT was eerder; dat is een 409, geen lock-probleem
+                    }
+                }));
+            }
+            start.countDown();
+
+            // een deadlock of lock-timeout komt hier als exception (of timeout) uit get
+            List<String> results = new ArrayList<>();
+            for (Future<String> f : outcomes) {
+                results.add(f.get(30, TimeUnit.SECONDS));
+            }
+
+            // het aantal rijen ligt niet vast: een onvoorwaardelijke PUT vervangt de lijst uit zijn eigen snapshot
+            assertThat(results).filteredOn("applied"::equals).hasSize(THREADS / 2);
+            assertThat(results).filteredOn("updated"::equals).isNotEmpty();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private User newUser(String name) {
+        User u = TD.user(null);
+        u.setEmail(name + "@example.com");
+        return userRepository.save(u);
+    }
+}
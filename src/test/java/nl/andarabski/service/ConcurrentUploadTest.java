@@ -0,0 +1,89 @@
+package nl.andarabski.service;
+
+import nl.andarabski.repository.StoredFileRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parallelle eerste uploads van dezelfde, nog onbekende inhoud: allemaal moeten ze slagen met dezelfde sleutel,
+ * met één rij en een refCount gelijk aan het aantal uploads. Zonder test-transactie, zodat elke upload commit.
+ */
+@DataJpaTest
+@Import(FileStorageService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConcurrentUploadTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 10;
+
+    @TempDir
+    static Path uploadDir;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("file.upload-dir", uploadDir::toString);
+    }
+
+    @Autowired FileStorageService fileStorageService;
+    @Autowired StoredFileRepository storedFileRepository;
+
+    @AfterEach
+    void cleanUp() {
+        storedFileRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void parallelFirstUploadsOfSameContent_allSucceedOnOneRow() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            // elke ronde nieuwe inhoud, zodat de uploads echt om de eerste insert van de rij racen
+            for (int round = 0; round < ROUNDS; round++) {
+                byte[] content = ("%PDF-cv " + round).getBytes();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<String>> outcomes = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    outcomes.add(pool.submit(() -> {
+                        start.await();
+                        return fileStorageService.storeDocument(
+                                new MockMultipartFile("cv", "cv.pdf", "application/pdf", content));
+                    }));
+                }
+                start.countDown();
+
+                List<String> keys = new ArrayList<>();
+                for (Future<String> f : outcomes) {
+                    keys.add(f.get()); // een mislukte upload gooit hier een ExecutionException
+                }
+
+                String key = keys.get(0);
+                assertThat(keys).containsOnly(key);
+                assertThat(storedFileRepository.findById(key)).get()
+                        .satisfies(f -> assertThat(f.getRefCount()).isEqualTo(THREADS));
+                assertThat(Files.readAllBytes(fileStorageService.resolve(key))).isEqualTo(content);
+            }
+            assertThat(storedFileRepository.count()).isEqualTo(ROUNDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
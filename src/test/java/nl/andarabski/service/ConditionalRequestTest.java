@@ -0,0 +1,215 @@
+package nl.andarabski.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.system.MergePatchReader;
+import nl.andarabski.system.StatusCode;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional GET en PUT op basis van de @Version-kolommen, met de echte database: ETags veranderen bij writes
+ * op de entity en op zijn applications, een 304 kost één statement en een verouderde If-Match geeft 412.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+class ConditionalRequestTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired EntityManagerFactory emf;
+    @Autowired ApplicationService applicationService;
+    @Autowired VacancyRepository vacancyRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired ApplicationRepository applicationRepository;
+
+    Vacancy vacancy;
+    User user;
+
+    @BeforeEach
+    void seed() {
+        vacancy = vacancyRepository.save(TD.vacancy(null));
+        User u = TD.user(null);
+        u.setEmail("etag-" + System.nanoTime() + "@example.com");
+        user = userRepository.save(u);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        applicationRepository.findViewsByVacancyIdIn(List.of(vacancy.getId()))
+                .forEach(a -> applicationRepository.deleteById(a.id()));
+        vacancyRepository.deleteById(vacancy.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void unchangedVacancy_returns304WithASingleStatement() throws Exception {
+        applicationService.applyToVacancy(user.getId(), vacancy.getId(), "Graag!");
+        String etag = etagOf(get("/api/v1/vacancies/" + vacancy.getId()));
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        mockMvc.perform(get("/api/v1/vacancies/" + vacancy.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // alleen de versie-lookup op de primary key, hoeveel applications de vacancy ook heeft; geen dto
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1L);
+        assertThat(stats.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void etagChanges_whenApplicationsChange() throws Exception {
+        String vacancyBefore = etagOf(get("/api/v1/vacancies/" + vacancy.getId()));
+        String userBefore = etagOf(get("/api/v1/users/" + user.getId()));
+
+        Long applicationId = applicationService.applyToVacancy(user.getId(), vacancy.getId(), "Graag!").getId();
+        String vacancyAfterApply = etagOf(get("/api/v1/vacancies/" + vacancy.getId()));
+        assertThat(vacancyAfterApply).isNotEqualTo(vacancyBefore);
+        assertThat(etagOf(get("/api/v1/users/" + user.getId()))).isNotEqualTo(userBefore);
+
+        ApplicationDto patch = new ApplicationDto();
+        patch.setMotivation("Nog steeds graag");
+        patch.setStatus("APPLIED");
+        applicationService.update(applicationId, patch);
+        assertThat(etagOf(get("/api/v1/vacancies/" + vacancy.getId()))).isNotEqualTo(vacancyAfterApply);
+    }
+
+    @Test
+    void putVacancy_withStaleIfMatch_returns412_andCurrentIfMatchSucceeds() throws Exception {
+        String etag = etagOf(get("/api/v1/vacancies/" + vacancy.getId()));
+
+        mockMvc.perform(putVacancy("Kotlin Developer").header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isOk());
+        // dezelfde (nu verouderde) ETag: de tweede client mag de eerste wijziging niet overschrijven
+        mockMvc.perform(putVacancy("Scala Developer").header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.code").value(StatusCode.PRECONDITION_FAILED));
+
+        assertThat(vacancyRepository.findById(vacancy.getId()).orElseThrow().getTitle()).isEqualTo("Kotlin Developer");
+        assertThat(etagOf(get("/api/v1/vacancies/" + vacancy.getId()))).isNotEqualTo(etag);
+    }
+
+    @Test
+    void putVacancy_keepsVersionsOfExistingApplications() throws Exception {
+        Long applicationId = applicationService.applyToVacancy(user.getId(), vacancy.getId(), "Graag!").getId();
+        ApplicationDto patch = new ApplicationDto();
+        patch.setMotivation("Aangepast");
+        patch.setStatus("APPLIED");
+        applicationService.update(applicationId, patch); // application-versie > 0
+
+        VacancyDto body = TD.vacancyDto(vacancy.getId());
+        body.setApplications(List.of(TD.applicationDto(applicationId, user.getId(), vacancy.getId(), "APPLIED", "Via de vacancy")));
+        mockMvc.perform(put("/api/v1/vacancies/" + vacancy.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk());
+
+        assertThat(applicationRepository.findViewById(applicationId).orElseThrow().motivation()).isEqualTo("Via de vacancy");
+    }
+
+    @Test
+    void putVacancy_changesETagOfUsersWhoseApplicationChanged_only() throws Exception {
+        Long applicationId = applicationService.applyToVacancy(user.getId(), vacancy.getId(), "Graag!").getId();
+        String userBefore = etagOf(get("/api/v1/users/" + user.getId()));
+
+        VacancyDto body = TD.vacancyDto(vacancy.getId());
+        body.setApplications(List.of(TD.applicationDto(applicationId, user.getId(), vacancy.getId(), "PENDING", "Graag!")));
+        mockMvc.perform(put("/api/v1/vacancies/" + vacancy.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk());
+        assertThat(etagOf(get("/api/v1/users/" + user.getId()))).isEqualTo(userBefore);
+
+        String vacancyBefore = etagOf(get("/api/v1/vacancies/" + vacancy.getId()));
+        body.setApplications(List.of(TD.applicationDto(applicationId, user.getId(), vacancy.getId(), "APPLIED", "Via de vacancy")));
+        mockMvc.perform(put("/api/v1/vacancies/" + vacancy.getId())
+                        .header(HttpHeaders.IF_MATCH, vacancyBefore)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk());
+        assertThat(etagOf(get("/api/v1/users/" + user.getId()))).isNotEqualTo(userBefore);
+        String vacancyAfter = etagOf(get("/api/v1/vacancies/" + vacancy.getId()));
+        assertThat(vacancyAfter).isNotEqualTo(vacancyBefore);
+
+        // de opgehoogde versie geldt ook voor de entity-cache: een patch met de nieuwe ETag slaagt
+        mockMvc.perform(patch("/api/v1/vacancies/" + vacancy.getId())
+                        .header(HttpHeaders.IF_MATCH, vacancyAfter)
+                        .contentType(MergePatchReader.MEDIA_TYPE)
+                        .content("{\"title\":\"Kotlin Developer\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void deleteVacancy_changesETagOfItsApplicants() throws Exception {
+        Vacancy other = vacancyRepository.save(TD.vacancy(null));
+        applicationService.applyToVacancy(user.getId(), other.getId(), "Graag!");
+        String userBefore = etagOf(get("/api/v1/users/" + user.getId()));
+
+        mockMvc.perform(delete("/api/v1/vacancies/" + other.getId())).andExpect(status().isOk());
+
+        assertThat(etagOf(get("/api/v1/users/" + user.getId()))).isNotEqualTo(userBefore);
+    }
+
+    @Test
+    void putApplication_withStaleIfMatch_returns412() throws Exception {
+        Long applicationId = applicationService.applyToVacancy(user.getId(), vacancy.getId(), "Graag!").getId();
+        String etag = etagOf(get("/api/v1/applications/" + applicationId));
+        ApplicationDto patch = new ApplicationDto();
+        patch.setMotivation("Eerste");
+        patch.setStatus("APPLIED");
+        applicationService.update(applicationId, patch);
+
+        mockMvc.perform(put("/api/v1/applications/" + applicationId)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"motivation\":\"Tweede\",\"status\":\"APPLIED\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(applicationRepository.findViewById(applicationId).orElseThrow().motivation()).isEqualTo("Eerste");
+    }
+
+    private MockHttpServletRequestBuilder putVacancy(String title) throws Exception {
+        VacancyDto body = TD.vacancyDto(vacancy.getId());
+        body.setTitle(title);
+        body.setApplications(null);
+        return put("/api/v1/vacancies/" + vacancy.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body));
+    }
+
+    private String etagOf(MockHttpServletRequestBuilder request) throws Exception {
+        String etag = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank();
+        return etag;
+    }
+}
@@ -0,0 +1,230 @@
+package nl.andarabski.service;
+
+import nl.andarabski.repository.StoredFileRepository;
+import nl.andarabski.system.exception.InvalidRequestException;
+import nl.andarabski.system.exception.ObjectNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Echte bestanden in een tijdelijke map; zonder test-transactie zodat het opruimen na commit ook draait.
+ */
+@DataJpaTest
+@Import(FileStorageService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FileStorageServiceTest {
+
+    @TempDir
+    static Path uploadDir;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("file.upload-dir", uploadDir::toString);
+    }
+
+    @Autowired FileStorageService fileStorageService;
+    @Autowired StoredFileRepository storedFileRepository;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired JdbcTemplate jdbc;
+
+    @AfterEach
+    void cleanUp() {
+        storedFileRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void sameContentTwice_isStoredOnceWithRefCountTwo() throws Exception {
+        var first = new MockMultipartFile("photo", "vlinder.jpeg", "image/jpeg", jpeg("butterfly"));
+        var second = new MockMultipartFile("photo", "kopie van vlinder.jpeg", "image/jpeg", jpeg("butterfly"));
+
+        String k1 = fileStorageService.storePhoto(first);
+        String k2 = fileStorageService.storePhoto(second);
+
+        assertThat(k1).isEqualTo(k2).matches("[0-9a-f]{64}");
+        assertThat(blobCount()).isEqualTo(1);
+        assertThat(Files.readAllBytes(fileStorageService.resolve(k1))).isEqualTo(jpeg("butterfly"));
+        assertThat(storedFileRepository.findById(k1)).get()
+                .satisfies(f -> assertThat(f.getRefCount()).isEqualTo(2));
+        // geen achtergebleven tijdelijke bestanden
+        try (Stream<Path> tmp = Files.list(uploadDir.resolve("tmp"))) {
+            assertThat(tmp).isEmpty();
+        }
+    }
+
+    @Test
+    void release_deletesBlobOnlyWhenLastReferenceIsGone() {
+        var file = new MockMultipartFile("cv", "Cv_Two.pdf", "application/pdf", "%PDF-cv".getBytes());
+        String key = fileStorageService.storeDocument(file);
+        fileStorageService.storeDocument(file);
+
+        fileStorageService.release(key);
+        assertThat(Files.exists(fileStorageService.resolve(key))).isTrue();
+
+        fileStorageService.release(key);
+        assertThat(Files.exists(fileStorageService.resolve(key))).isFalse();
+        assertThat(storedFileRepository.existsById(key)).isFalse();
+    }
+
+    @Test
+    void purge_waitsForAnUploadThatReusesTheBlob_andKeepsIt() throws Exception {
+        var file = new MockMultipartFile("cv", "Cv_Three.pdf", "application/pdf", "%PDF-hergebruik".getBytes());
+        String key = fileStorageService.storeDocument(file);
+        // laatste referentie weg, opruimen nog niet gebeurd
+        new TransactionTemplate(txManager).executeWithoutResult(s -> storedFileRepository.decrementRefCount(key));
+
+        CountDownLatch incremented = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // een upload van dezelfde inhoud heeft de rij opgehoogd maar nog niet gecommit
+            Future<?> upload = pool.submit(() -> new TransactionTemplate(txManager).executeWithoutResult(s -> {
+                storedFileRepository.incrementRefCount(key);
+                incremented.countDown();
+                await(commit);
+            }));
+            incremented.await();
+            Future<Boolean> purge = pool.submit(() -> fileStorageService.purge(key));
+            Thread.sleep(200);
+            assertThat(purge.isDone()).isFalse(); // wacht op de rijlock
+            commit.countDown();
+            upload.get();
+
+            assertThat(purge.get()).isFalse();
+            assertThat(Files.exists(fileStorageService.resolve(key))).isTrue();
+            assertThat(storedFileRepository.findById(key)).get()
+                    .satisfies(f -> assertThat(f.getRefCount()).isEqualTo(1));
+        } finally {
+            pool.shutdownNow();
+        }
+        fileStorageService.release(key);
+        assertThat(Files.exists(fileStorageService.resolve(key))).isFalse();
+    }
+
+    @Test
+    void sweep_removesRowAndBlobOfARolledBackUpload() {
+        var file = new MockMultipartFile("cv", "Cv_Four.pdf", "application/pdf", "%PDF-teruggedraaid".getBytes());
+        String key = new TransactionTemplate(txManager).execute(s -> {
+            s.setRollbackOnly();
+            return fileStorageService.storeDocument(file);
+        });
+        // de rij (eigen transactie) en de blob staan er, de referentie is teruggedraaid
+        assertThat(storedFileRepository.findById(key)).get()
+                .satisfies(f -> assertThat(f.getRefCount()).isZero());
+        assertThat(Files.exists(fileStorageService.resolve(key))).isTrue();
+
+        // nog binnen de marge: een upload kan tussen insert en increment zitten
+        assertThat(fileStorageService.sweepUnreferenced()).isZero();
+
+        jdbc.update("update stored_file set created_at = dateadd('HOUR', -1, created_at) where digest = ?", key);
+        assertThat(fileStorageService.sweepUnreferenced()).isEqualTo(1);
+        assertThat(storedFileRepository.existsById(key)).isFalse();
+        assertThat(Files.exists(fileStorageService.resolve(key))).isFalse();
+    }
+
+    @Test
+    void release_ignoresValuesThatAreNoStorageKey() {
+        fileStorageService.release(null);
+        fileStorageService.release("src/main/resources/mock/leeuw.jpeg");
+        fileStorageService.release("c".repeat(64));
+        assertThat(storedFileRepository.count()).isZero();
+    }
+
+    @Test
+    void open_returnsPathAndMetadata_orNotFoundForLegacyValues() {
+        var file = new MockMultipartFile("photo", "leeuw.jpeg", "image/jpeg", jpeg("lion"));
+        String key = fileStorageService.storePhoto(file);
+
+        var blob = fileStorageService.open(key, "Photo of user", 1L);
+
+        assertThat(blob.path()).isEqualTo(fileStorageService.resolve(key));
+        assertThat(blob.size()).isEqualTo(7);
+        assertThat(blob.contentType()).isEqualTo("image/jpeg");
+        assertThat(blob.filename()).isEqualTo("leeuw.jpeg");
+        assertThatThrownBy(() -> fileStorageService.open("src/main/resources/mock/leeuw.jpeg", "Photo of user", 1L))
+                .isInstanceOf(ObjectNotFoundException.class);
+    }
+
+    @Test
+    void disallowedExtension_isRejected() {
+        var exe = new MockMultipartFile("photo", "virus.exe", "application/octet-stream", "MZ".getBytes());
+        assertThatThrownBy(() -> fileStorageService.storePhoto(exe))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void contentNotMatchingExtension_isRejectedWithoutLeavingFiles() throws Exception {
+        var fake = new MockMultipartFile("photo", "foto.png", "image/png", "MZ\u0090 geen png".getBytes());
+
+        assertThatThrownBy(() -> fileStorageService.storePhoto(fake))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("geen geldig .png");
+        assertThat(storedFileRepository.count()).isZero();
+    }
+
+    @Test
+    void sizeLimit_isEnforcedWhileCopying_evenWhenDeclaredSizeIsSmall() throws Exception {
+        byte[] content = new byte[5 * 1024 * 1024 + 1];
+        content[0] = '%'; content[1] = 'P'; content[2] = 'D'; content[3] = 'F'; content[4] = '-';
+        var lying = new MockMultipartFile("cv", "groot.pdf", "application/pdf", content) {
+            @Override
+            public long getSize() {
+                return 1_000;
+            }
+        };
+
+        assertThatThrownBy(() -> fileStorageService.storeDocument(lying))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("groter dan 5 MB");
+        assertThat(storedFileRepository.count()).isZero();
+        // het afgebroken tijdelijke bestand is opgeruimd
+        try (Stream<Path> tmp = Files.list(uploadDir.resolve("tmp"))) {
+            assertThat(tmp).isEmpty();
+        }
+    }
+
+    private static byte[] jpeg(String body) {
+        byte[] rest = body.getBytes();
+        byte[] out = new byte[3 + rest.length];
+        out[0] = (byte) 0xFF; out[1] = (byte) 0xD8; out[2] = (byte) 0xFF;
+        System.arraycopy(rest, 0, out, 3, rest.length);
+        return out;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long blobCount() throws Exception {
+        try (Stream<Path> files = Files.walk(uploadDir.resolve("blobs"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package nl.andarabski.service;
+
+import jakarta.persistence.EntityManager;
+import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.UserDto;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.mapper.UserMapperImpl;
+import nl.andarabski.mapper.VacancyMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.system.exception.InvalidRequestException;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Merge patch via de IGNORE-null mappers + @DynamicUpdate: de UPDATE bevat alleen de gewijzigde kolommen (en
+ * version), niet meegestuurde velden blijven staan en een patch zonder echte wijziging schrijft niets.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "nl.andarabski.service.PartialUpdateTest$Updates")
+@Import({UserService.class, VacancyService.class, ApplicationService.class, VacancyDtoCache.class,
+        FileStorageService.class, UserMapperImpl.class, VacancyMapperImpl.class, ApplicationMapperImpl.class})
+class PartialUpdateTest {
+
+    /** Verzamelt de UPDATE-statements die Hibernate voorbereidt. */
+    public static class Updates implements StatementInspector {
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.regionMatches(true, 0, "update", 0, 6)) {
+                SQL.add(sql.toLowerCase(Locale.ROOT));
+            }
+            return sql;
+        }
+    }
+
+    @Autowired EntityManager em;
+    @Autowired UserService userService;
+    @Autowired VacancyService vacancyService;
+    @Autowired ApplicationService applicationService;
+
+    User user;
+    Vacancy vacancy;
+    Application application;
+
+    @BeforeEach
+    void seed() {
+        user = TD.user(null);
+        vacancy = TD.vacancy(null);
+        application = TD.application(null, user, vacancy, ApplicationStatus.APPLIED, "Motivation");
+        em.persist(user);
+        em.persist(vacancy);
+        em.persist(application);
+        em.flush();
+        em.clear();
+        Updates.SQL.clear();
+    }
+
+    @Test
+    void userPatch_writesOnlyTheSentColumn() {
+        UserDto patch = new UserDto();
+        patch.setLastName("Nieuw");
+
+        userService.patch(user.getId(), patch, null);
+        em.flush();
+
+        assertThat(Updates.SQL).singleElement().satisfies(sql ->
+                assertThat(columnsOf(sql)).containsExactly("last_name", "version"));
+        em.clear();
+        User reloaded = em.find(User.class, user.getId());
+        // niet meegestuurd: leeftijd/enabled niet op 0/false, bestanden ongemoeid
+        assertThat(reloaded.getLastName()).isEqualTo("Nieuw");
+        assertThat(reloaded.getAge()).isEqualTo(23);
+        assertThat(reloaded.isEnabled()).isTrue();
+        assertThat(reloaded.getPhoto()).isEqualTo("photo");
+    }
+
+    @Test
+    void vacancyPatchAndPut_writeOnlyTheChangedColumns() {
+        VacancyDto patch = new VacancyDto();
+        patch.setTitle("Senior Java Developer");
+
+        vacancyService.patch(vacancy.getId(), patch, null);
+        em.flush();
+        em.clear();
+
+        // ook een PUT met één gewijzigd veld schrijft niet meer de hele rij
+        VacancyDto put = vacancyService.findById(vacancy.getId());
+        put.setLocation("Rotterdam");
+        vacancyService.update(vacancy.getId(), put);
+        em.flush();
+
+        assertThat(Updates.SQL).hasSize(2);
+        assertThat(columnsOf(Updates.SQL.get(0))).containsExactly("title", "version");
+        assertThat(columnsOf(Updates.SQL.get(1))).containsExactly("location", "version");
+    }
+
+    @Test
+    void applicationPatch_status_writesOnlyStatus() {
+        ApplicationDto patch = new ApplicationDto();
+        patch.setStatus("rejected");
+
+        ApplicationDto updated = applicationService.patch(application.getId(), patch, null);
+        em.flush();
+
+        assertThat(updated.getStatus()).isEqualTo("REJECTED");
+        assertThat(updated.getMotivation()).isEqualTo("Motivation");
+        assertThat(Updates.SQL).singleElement().satisfies(sql ->
+                assertThat(columnsOf(sql)).containsExactly("status", "version"));
+    }
+
+    @Test
+    void patch_withUnchangedValues_writesNothing() {
+        UserDto patch = new UserDto();
+        patch.setFirstName(user.getFirstName());
+        patch.setAge(user.getAge());
+
+        userService.patch(user.getId(), patch, null);
+        em.flush();
+
+        assertThat(Updates.SQL).isEmpty();
+    }
+
+    @Test
+    void applicationPatch_unknownStatus_isInvalid() {
+        ApplicationDto patch = new ApplicationDto();
+        patch.setStatus("HIRED");
+
+        assertThatThrownBy(() -> applicationService.patch(application.getId(), patch, null))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("HIRED");
+    }
+
+    // "update app_user set last_name=?,version=? where ..." -> [last_name, version]
+    private static List<String> columnsOf(String sql) {
+        String set = sql.substring(sql.indexOf(" set ") + 5, sql.indexOf(" where "));
+        return Arrays.stream(set.split(","))
+                .map(assignment -> assignment.substring(0, assignment.indexOf('=')).trim())
+                .toList();
+    }
+}
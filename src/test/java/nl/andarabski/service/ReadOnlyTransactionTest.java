@@ -0,0 +1,122 @@
+package nl.andarabski.service;
+
+import jakarta.persistence.EntityManager;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.mapper.ApplicationMapper;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.mapper.UserMapper;
+import nl.andarabski.mapper.UserMapperImpl;
+import nl.andarabski.mapper.VacancyMapper;
+import nl.andarabski.mapper.VacancyMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.repository.projection.ApplicationView;
+import nl.andarabski.repository.projection.UserView;
+import nl.andarabski.repository.projection.VacancyView;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Controleert dat readOnly op de service-methodes echt bij Hibernate aankomt: de mapper wordt binnen de
+ * service-transactie aangeroepen en legt daar de transactie- en session-staat vast. Zonder test-transactie,
+ * anders zou de service aan die (schrijvende) transactie deelnemen.
+ */
+@DataJpaTest
+@Import({UserService.class, VacancyService.class, ApplicationService.class, VacancyDtoCache.class,
+        FileStorageService.class, UserMapperImpl.class, VacancyMapperImpl.class, ApplicationMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadOnlyTransactionTest {
+
+    /** Transactie-staat zoals de service die ziet. */
+    record TxState(boolean readOnly, FlushMode flushMode, boolean defaultReadOnly) {}
+
+    @Autowired EntityManager em;
+    @Autowired UserService userService;
+    @Autowired VacancyService vacancyService;
+    @Autowired ApplicationService applicationService;
+    @Autowired UserRepository userRepository;
+    @Autowired VacancyRepository vacancyRepository;
+    @Autowired ApplicationRepository applicationRepository;
+
+    @MockitoSpyBean VacancyMapper vacancyMapper;
+    @MockitoSpyBean UserMapper userMapper;
+    @MockitoSpyBean ApplicationMapper applicationMapper;
+
+    final List<TxState> seen = new ArrayList<>();
+    User user;
+    Vacancy vacancy;
+    Application application;
+
+    @BeforeEach
+    void seed() {
+        user = userRepository.save(TD.user(null));
+        vacancy = vacancyRepository.save(TD.vacancy(null));
+        application = applicationRepository.save(
+                new Application(null, user, vacancy, "motivation", ApplicationStatus.APPLIED, TD.FIXED_DATE));
+
+        doAnswer(inv -> record(inv.callRealMethod())).when(vacancyMapper).toDto(any(VacancyView.class), anyList());
+        doAnswer(inv -> record(inv.callRealMethod())).when(userMapper).toDto(any(UserView.class), anyList());
+        doAnswer(inv -> record(inv.callRealMethod())).when(applicationMapper).toDto(any(ApplicationView.class));
+        doAnswer(inv -> record(inv.callRealMethod())).when(vacancyMapper).toDto(any(Vacancy.class));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        applicationRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        vacancyRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void readMethods_runReadOnly_withoutFlushOrSnapshots() {
+        vacancyService.findById(vacancy.getId());
+        userService.findById(user.getId());
+        applicationService.findById(application.getId());
+
+        // FlushMode.MANUAL: geen dirty checking bij commit; defaultReadOnly: geladen entities zonder snapshot
+        // vacancy/user-mappers mappen hun applications via de application-mapper: meer dan drie metingen
+        assertThat(seen).hasSizeGreaterThanOrEqualTo(3)
+                .containsOnly(new TxState(true, FlushMode.MANUAL, true));
+    }
+
+    @Test
+    void writeMethods_runReadWrite() {
+        VacancyDto patch = TD.vacancyDto(vacancy.getId());
+        patch.setApplications(null);
+
+        vacancyService.update(vacancy.getId(), patch);
+
+        assertThat(seen).containsExactly(new TxState(false, FlushMode.AUTO, false));
+    }
+
+    private Object record(Object result) {
+        Session session = em.unwrap(Session.class);
+        seen.add(new TxState(TransactionSynchronizationManager.isCurrentTransactionReadOnly(),
+                session.getHibernateFlushMode(), session.isDefaultReadOnly()));
+        return result;
+    }
+}
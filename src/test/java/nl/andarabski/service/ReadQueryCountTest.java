@@ -0,0 +1,152 @@
+package nl.andarabski.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import nl.andarabski.dto.ApplicationDto;
+import nl.andarabski.dto.CursorPageDto;
+import nl.andarabski.dto.UserDto;
+import nl.andarabski.dto.UserSummaryDto;
+import nl.andarabski.dto.VacancySummaryDto;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.mapper.UserMapperImpl;
+import nl.andarabski.mapper.VacancyMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.testsupport.TD;
+import nl.andarabski.util.CursorUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Telt de SQL-statements (Hibernate statistics) van de read-paden, zodat een 1+N regressie bij het mappen
+ * van de applications direct zichtbaar wordt. De read-paden gebruiken projecties: er mogen geen entities
+ * in de persistence context belanden.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({UserService.class, VacancyService.class, VacancyDtoCache.class, FileStorageService.class,
+        UserMapperImpl.class, VacancyMapperImpl.class, ApplicationMapperImpl.class})
+class ReadQueryCountTest {
+
+    private static final int USERS = 1_000;
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired UserService userService;
+    @Autowired VacancyService vacancyService;
+
+    Statistics stats;
+    Vacancy java;
+    Vacancy python;
+
+    @BeforeEach
+    void seed() {
+        java = persistVacancy("Java Developer");
+        python = persistVacancy("Python Developer");
+        for (int i = 0; i < USERS; i++) {
+            User u = TD.user(null);
+            u.setEmail("user" + i + "@example.com");
+            em.persist(u);
+            persistApplication(u, java);
+            persistApplication(u, python);
+        }
+        em.flush();
+        em.clear();
+
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void pagingThroughAllUsers_usesOneStatementPerPage() {
+        int pages = 0;
+        int users = 0;
+        String cursor = null;
+        do {
+            CursorPageDto<UserSummaryDto> page = userService.findPage(cursor, 100);
+            pages++;
+            users += page.getItems().size();
+            assertThat(page.getItems()).allSatisfy(u -> {
+                assertThat(u.getApplicationCount()).isEqualTo(2L);
+                assertThat(u.getApplications()).isNull();
+            });
+            cursor = page.getNextCursor();
+            em.clear();
+        } while (cursor != null);
+
+        assertThat(users).isEqualTo(USERS);
+        // per pagina 1 statement: de telling is een subquery in de users-query
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(pages);
+        assertThat(stats.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findById_loadsUserAndApplicationsWithoutEntities() {
+        Long id = em.createQuery("select min(u.id) from User u", Long.class).getSingleResult();
+        stats.clear();
+
+        UserDto dto = userService.findById(id);
+
+        assertThat(dto.getApplications()).hasSize(2);
+        assertThat(dto.getApplications()).allSatisfy(a -> assertThat(a.getUserId()).isEqualTo(id));
+        // 1x user-projectie + 1x applications-projectie, niets gehydrateerd
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2L);
+        assertThat(stats.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void vacancyPage_summariesDoNotGrowWithApplications() {
+        CursorPageDto<VacancySummaryDto> page = vacancyService.findPage(null, 10);
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getItems()).allSatisfy(v -> {
+            assertThat(v.getApplicationCount()).isEqualTo(USERS);
+            assertThat(v.getApplications()).isNull();
+        });
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1L);
+        assertThat(stats.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void vacancyPage_expandApplications_embedsAFixedNumberPerVacancy() {
+        CursorPageDto<VacancySummaryDto> page = vacancyService.findPage(null, 10, true);
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getItems()).allSatisfy(v -> {
+            assertThat(v.getApplicationCount()).isEqualTo(USERS);
+            assertThat(v.getApplications()).hasSize(CursorUtil.EMBEDDED_PAGE_SIZE)
+                    .allSatisfy(a -> assertThat(a.getVacancyId()).isEqualTo(v.getId()));
+            assertThat(v.getApplicationsNextCursor()).isNotNull();
+        });
+        // 1x vacancies + 1x de eerste applications per vacancy (window-functie), niet alle 2.000
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2L);
+        assertThat(stats.getEntityLoadCount()).isZero();
+
+        // de cursor gaat verder waar de embedded lijst ophield, via de sub-resource
+        VacancySummaryDto first = page.getItems().get(0);
+        CursorPageDto<ApplicationDto> rest = vacancyService.findApplications(first.getId(), first.getApplicationsNextCursor(), 100);
+        assertThat(rest.getItems()).hasSize(100);
+        assertThat(rest.getItems().get(0).getId()).isGreaterThan(first.getApplications().get(9).getId());
+        assertThat(rest.isHasMore()).isTrue();
+    }
+
+    private Vacancy persistVacancy(String title) {
+        Vacancy v = TD.vacancy(null);
+        v.setTitle(title);
+        em.persist(v);
+        return v;
+    }
+
+    private void persistApplication(User u, Vacancy v) {
+        Application a = new Application(null, u, v, "motivation", ApplicationStatus.APPLIED, TD.FIXED_DATE);
+        em.persist(a);
+    }
+}
@@ -0,0 +1,167 @@
+package nl.andarabski.service;
+
+import jakarta.persistence.EntityManager;
+import nl.andarabski.model.User;
+import nl.andarabski.repository.StoredFileRepository;
+import nl.andarabski.testsupport.TD;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Thumbnails uit een echte (in de test gegenereerde) afbeelding, opgeslagen in een tijdelijke map.
+ */
+@DataJpaTest
+@Import({FileStorageService.class, ThumbnailService.class})
+class ThumbnailServiceTest {
+
+    @TempDir
+    static Path uploadDir;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("file.upload-dir", uploadDir::toString);
+    }
+
+    @Autowired EntityManager em;
+    @Autowired FileStorageService fileStorageService;
+    @Autowired ThumbnailService thumbnailService;
+    @Autowired StoredFileRepository storedFileRepository;
+
+    @Test
+    void generate_storesBothSizesKeepingAspectRatio() throws IOException {
+        String photo = fileStorageService.storePhoto(png("foto.png", 800, 600));
+        User user = persistUser(photo);
+
+        thumbnailService.generate(user.getId(), photo);
+
+        em.clear();
+        User reloaded = em.find(User.class, user.getId());
+        assertThat(reloaded.getVersion()).isEqualTo(user.getVersion() + 1); // nieuwe ETag voor de thumbnail-links
+        assertThat(dimensions(reloaded.getPhotoThumbnail64())).containsExactly(64, 48);
+        assertThat(dimensions(reloaded.getPhotoThumbnail256())).containsExactly(256, 192);
+        assertThat(fileStorageService.open(reloaded.getPhotoThumbnail64(), "Thumbnail of user", user.getId()).contentType())
+                .isEqualTo("image/jpeg");
+    }
+
+    @Test
+    void generate_photoReplacedInTheMeantime_leavesUserUntouchedAndReleasesThumbnails() throws IOException {
+        String oldPhoto = fileStorageService.storePhoto(png("oud.png", 300, 300));
+        String newPhoto = fileStorageService.storePhoto(png("nieuw.png", 200, 100));
+        User user = persistUser(newPhoto);
+
+        thumbnailService.generate(user.getId(), oldPhoto);
+
+        em.clear();
+        User reloaded = em.find(User.class, user.getId());
+        assertThat(reloaded.getPhotoThumbnail64()).isNull();
+        assertThat(reloaded.getPhotoThumbnail256()).isNull();
+        assertThat(reloaded.getVersion()).isEqualTo(user.getVersion());
+        // de gegenereerde thumbnails zijn direct weer vrijgegeven; rij en blob ruimt purge na de commit op
+        assertThat(storedFileRepository.findAll())
+                .filteredOn(f -> f.getOriginalFilename().matches("thumbnail-(64x64|256x256)\\.jpg"))
+                .hasSize(2)
+                .allSatisfy(f -> assertThat(f.getRefCount()).isZero());
+    }
+
+    @Test
+    void generate_unreadableImage_isSkipped() throws IOException {
+        String photo = fileStorageService.storePhoto(new MockMultipartFile("photo", "kapot.jpg", "image/jpeg",
+                new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, 0, 1, 2, 3}));
+        User user = persistUser(photo);
+
+        thumbnailService.generate(user.getId(), photo);
+
+        em.clear();
+        assertThat(em.find(User.class, user.getId()).getPhotoThumbnail64()).isNull();
+    }
+
+    @Test
+    void generate_oversizedDimensionsInHeader_isSkippedWithoutDecoding() throws IOException {
+        // geldige png-header die 30000x30000 pixels declareert (~3,6 GB als BufferedImage), zonder pixeldata
+        String photo = fileStorageService.storePhoto(new MockMultipartFile("photo", "bom.png", "image/png",
+                pngHeader(30_000, 30_000)));
+        User user = persistUser(photo);
+
+        thumbnailService.generate(user.getId(), photo);
+
+        em.clear();
+        assertThat(em.find(User.class, user.getId()).getPhotoThumbnail64()).isNull();
+    }
+
+    @Test
+    void read_largeImage_isDecodedSubsampled() throws IOException {
+        String photo = fileStorageService.storePhoto(png("groot.png", 3000, 1500));
+
+        BufferedImage decoded = ThumbnailService.read(fileStorageService.resolve(photo));
+
+        // stap 3000 / 512 = 5: 600x300 i.p.v. 3000x1500 in het geheugen; de thumbnails behouden de verhouding
+        assertThat(decoded.getWidth()).isEqualTo(600);
+        assertThat(decoded.getHeight()).isEqualTo(300);
+        assertThat(ThumbnailService.scale(decoded, 256).getHeight()).isEqualTo(128);
+    }
+
+    @Test
+    void scale_smallImage_isNotEnlarged() {
+        BufferedImage scaled = ThumbnailService.scale(new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB), 256);
+
+        assertThat(scaled.getWidth()).isEqualTo(40);
+        assertThat(scaled.getHeight()).isEqualTo(20);
+    }
+
+    private User persistUser(String photo) {
+        User user = TD.user(null);
+        user.setPhoto(photo);
+        em.persist(user);
+        em.flush();
+        return user;
+    }
+
+    private int[] dimensions(String key) throws IOException {
+        BufferedImage image = ImageIO.read(fileStorageService.resolve(key).toFile());
+        return new int[]{image.getWidth(), image.getHeight()};
+    }
+
+    // signatuur + IHDR (met geldige CRC) + IEND: genoeg voor ImageReader.getWidth/getHeight
+    private static byte[] pngHeader(int width, int height) {
+        ByteBuffer ihdr = ByteBuffer.allocate(17).put("IHDR".getBytes(StandardCharsets.US_ASCII))
+                .putInt(width).putInt(height).put((byte) 8).put((byte) 2).put((byte) 0).put((byte) 0).put((byte) 0);
+        ByteBuffer out = ByteBuffer.allocate(8 + 4 + 17 + 4 + 12)
+                .put(new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A})
+                .putInt(13).put(ihdr.array()).putInt(crc(ihdr.array()))
+                .putInt(0).put("IEND".getBytes(StandardCharsets.US_ASCII)).putInt(crc("IEND".getBytes(StandardCharsets.US_ASCII)));
+        return out.array();
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static MockMultipartFile png(String name, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            image.setRGB(x, height / 2, 0xFF0000);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return new MockMultipartFile("photo", name, "image/png", out.toByteArray());
+    }
+}
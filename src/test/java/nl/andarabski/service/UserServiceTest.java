@@ -5,14 +5,22 @@ import nl.andarabski.mapper.UserMapper;
 import nl.andarabski.model.*;
 import nl.andarabski.repository.ApplicationRepository;
 import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
 import nl.andarabski.system.exception.ObjectNotFoundException;
 import nl.andarabski.testsupport.TD;
+import nl.andarabski.util.CursorUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mapstruct.factory.Mappers;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import nl.andarabski.repository.projection.ApplicationView;
+import nl.andarabski.repository.projection.PhotoThumbnails;
+import nl.andarabski.system.exception.InvalidRequestException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.mock.web.MockMultipartFile;
 
 import java.util.*;
 
@@ -27,6 +35,10 @@ class UserServiceTest {
     @Mock UserRepository userRepository;
     @Mock ApplicationRepository applicationRepository;
     @Mock UserMapper userMapper;
+    @Mock FileStorageService fileStorageService;
+    @Mock ApplicationEventPublisher events;
+    @Mock VacancyDtoCache vacancyDtoCache;
+    @Mock VacancyRepository vacancyRepository;
 
 
     UserService userService;
@@ -34,7 +46,7 @@ class UserServiceTest {
     @BeforeEach
     void setUp() {
         var realMapper = Mappers.getMapper(UserMapper.class);
-        userService = new UserService(userRepository, applicationRepository, userMapper);
+        userService = new UserService(userRepository, applicationRepository, userMapper, fileStorageService, events, vacancyDtoCache, vacancyRepository);
     }
 
     @Test
@@ -59,28 +71,103 @@ class UserServiceTest {
     }
 
 
+    @Test
+    void findPage_defaultSize_singlePage() {
+        var u1 = TD.userSummaryView(1L, 1);
+        var u2 = TD.userSummaryView(2L, 0);
+        given(userRepository.findSummariesAfter(0L, Limit.of(CursorUtil.DEFAULT_PAGE_SIZE + 1)))
+                .willReturn(List.of(u1, u2));
+        given(userMapper.toSummary(u1)).willReturn(TD.userSummaryDto(1L, 1));
+        given(userMapper.toSummary(u2)).willReturn(TD.userSummaryDto(2L, 0));
+
+        var page = userService.findPage(null, null);
+
+        assertThat(page.getItems()).extracting(UserSummaryDto::getId).containsExactly(1L, 2L);
+        assertThat(page.getItems()).extracting(UserSummaryDto::getApplicationCount).containsExactly(1L, 0L);
+        assertThat(page.getSize()).isEqualTo(CursorUtil.DEFAULT_PAGE_SIZE);
+        assertThat(page.getNextCursor()).isNull();
+        // zonder expand: alleen de tellingen uit de summary-query, geen applications
+        verifyNoInteractions(applicationRepository);
+    }
+
+    @Test
+    void findPage_expandApplications_embedsFirstPageWithCursorForTheRest() {
+        var u1 = TD.userSummaryView(1L, 12);
+        var u2 = TD.userSummaryView(2L, 1);
+        var first = new ArrayList<ApplicationView>();
+        for (long id = 100; id < 100 + CursorUtil.EMBEDDED_PAGE_SIZE; id++) {
+            first.add(applicationView(id, 1L, id, ApplicationStatus.APPLIED, "ok"));
+        }
+        var other = applicationView(200L, 2L, 3L, ApplicationStatus.APPLIED, "ok");
+        var all = new ArrayList<>(first);
+        all.add(other);
+        given(userRepository.findSummariesAfter(0L, Limit.of(CursorUtil.DEFAULT_PAGE_SIZE + 1)))
+                .willReturn(List.of(u1, u2));
+        given(userMapper.toSummary(u1)).willReturn(TD.userSummaryDto(1L, 12));
+        given(userMapper.toSummary(u2)).willReturn(TD.userSummaryDto(2L, 1));
+        given(applicationRepository.findFirstViewsByUserIdIn(List.of(1L, 2L), CursorUtil.EMBEDDED_PAGE_SIZE))
+                .willReturn(all);
+        given(userMapper.toApplicationDtos(anyList())).willAnswer(inv -> inv.<List<ApplicationView>>getArgument(0)
+                .stream().map(a -> applicationDto(a.id(), a.userId(), a.vacancyId(), "APPLIED", "ok")).toList());
+
+        var page = userService.findPage(null, null, true);
+
+        UserSummaryDto capped = page.getItems().get(0);
+        assertThat(capped.getApplications()).hasSize(CursorUtil.EMBEDDED_PAGE_SIZE);
+        assertThat(CursorUtil.decode(capped.getApplicationsNextCursor())).isEqualTo(109L);
+        UserSummaryDto complete = page.getItems().get(1);
+        assertThat(complete.getApplications()).extracting(ApplicationDto::getId).containsExactly(200L);
+        assertThat(complete.getApplicationsNextCursor()).isNull();
+        verify(applicationRepository).findFirstViewsByUserIdIn(List.of(1L, 2L), CursorUtil.EMBEDDED_PAGE_SIZE);
+        verifyNoMoreInteractions(applicationRepository);
+    }
+
+    @Test
+    void findPage_sizeIsCappedAtMax() {
+        given(userRepository.findSummariesAfter(0L, Limit.of(CursorUtil.MAX_PAGE_SIZE + 1)))
+                .willReturn(List.of());
+
+        var page = userService.findPage(null, 10_000, true);
+
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.getSize()).isEqualTo(CursorUtil.MAX_PAGE_SIZE);
+        verify(userRepository).findSummariesAfter(0L, Limit.of(CursorUtil.MAX_PAGE_SIZE + 1));
+        // lege pagina: geen IN-query met een lege lijst
+        verifyNoInteractions(applicationRepository);
+    }
+
+    @Test
+    void findApplications_unknownUser_throwsOnlyWhenPageIsEmpty() {
+        given(applicationRepository.findViewsByUserIdAfter(9L, 0L, Limit.of(CursorUtil.DEFAULT_PAGE_SIZE + 1)))
+                .willReturn(List.of());
+        given(userRepository.existsById(9L)).willReturn(false);
+
+        assertThatThrownBy(() -> userService.findApplications(9L, null, null))
+                .isInstanceOf(ObjectNotFoundException.class);
+    }
+
     @Test
     void findById_includesApplications() {
-        var u = user(1L);
-        var v = vacancy(3L);
-        var a1 = application(10L, u, v, ApplicationStatus.APPLIED, "ok");
-        var a2 = application(11L, u, v, ApplicationStatus.PENDING, "ok2");
-        v.setApplications(List.of(a1, a2));
-        given(userRepository.findById(1L)).willReturn(Optional.of(u));
+        var u = userView(1L);
+        var apps = List.of(
+                applicationView(10L, 1L, 3L, ApplicationStatus.APPLIED, "ok"),
+                applicationView(11L, 1L, 3L, ApplicationStatus.PENDING, "ok2"));
+        given(userRepository.findViewById(1L)).willReturn(Optional.of(u));
+        given(applicationRepository.findViewsByUserIdIn(List.of(1L))).willReturn(apps);
 
         var dto = userDto(1L);
         dto.setApplications(List.of(
                 applicationDto(10L, 1L, 3L, "APPLIED", "ok"),
                 applicationDto(11L, 1L, 3L, "PENDING", "ok2")
         ));
-        given(userMapper.toDto(u)).willReturn(dto);
+        given(userMapper.toDto(u, apps)).willReturn(dto);
 
         var out = userService.findById(1L);
 
         assertThat(out.getId()).isEqualTo(1L);
         assertThat(out.getApplications()).hasSize(2);
-        verify(userRepository).findById(1L);
-        verify(userMapper).toDto(u);
+        verify(userRepository).findViewById(1L);
+        verify(userMapper).toDto(u, apps);
         verifyNoMoreInteractions(userRepository, userMapper);
     }
 
@@ -88,12 +175,12 @@ class UserServiceTest {
     // 1) findById – not found
     @Test
     void findById_notFound_throws() {
-        given(userRepository.findById(99L)).willReturn(Optional.empty());
+        given(userRepository.findViewById(99L)).willReturn(Optional.empty());
 
         assertThatThrownBy(() -> userService.findById(99L))
                 .isInstanceOf(ObjectNotFoundException.class);
 
-        verify(userRepository).findById(99L);
+        verify(userRepository).findViewById(99L);
         verifyNoMoreInteractions(userRepository, userMapper);
     }
 
@@ -151,6 +238,9 @@ class UserServiceTest {
     @Test
     void update_success_mergesAllFields() {
         var existing = TD.user(1L);
+        var vacancy = TD.vacancy(3L);
+        TD.application(10L, existing, vacancy, ApplicationStatus.PENDING, "old");
+        TD.application(11L, existing, vacancy, ApplicationStatus.PENDING, "ok2");
         var patch = new UserDto();
         patch.setFirstName("LvGod");
         patch.setLastName("Andarabski");
@@ -166,7 +256,7 @@ class UserServiceTest {
                 applicationDto(11L, 1L, 3L, "PENDING", "ok2")
         ));
 
-        given(userRepository.findById(1L)).willReturn(Optional.of(existing));
+        given(userRepository.findWithApplicationsById(1L)).willReturn(Optional.of(existing));
         given(userRepository.save(any(User.class))).willAnswer(inv -> inv.getArgument(0));
 
         // Laat de mock-mapper iets teruggeven
@@ -210,38 +300,84 @@ class UserServiceTest {
         assertThat(updated.getApplications()).hasSize(2);
 
         InOrder io = inOrder(userRepository);
-        io.verify(userRepository).findById(1L);
+        io.verify(userRepository).findWithApplicationsById(1L);
         io.verify(userRepository).save(any(User.class));
         io.verifyNoMoreInteractions();
     }
 
+    // 4b) update – applications op id gediffd: alleen wijzigen wat verschilt
+    @Test
+    void update_mergesApplicationsById_insteadOfReplacingThem() {
+        var existing = TD.user(1L);
+        var vacancy = TD.vacancy(3L);
+        var unchanged = TD.application(10L, existing, vacancy, ApplicationStatus.APPLIED, "same");
+        var changed = TD.application(11L, existing, vacancy, ApplicationStatus.PENDING, "old");
+        TD.application(12L, existing, vacancy, ApplicationStatus.PENDING, "removed");
+        var patch = TD.userDto(1L);
+        patch.setApplications(List.of(
+                applicationDto(10L, 1L, 3L, "APPLIED", "same"),
+                applicationDto(11L, 1L, 3L, "REJECTED", "new"),
+                applicationDto(null, 1L, 4L, null, "added")));
+        var otherVacancy = TD.vacancy(4L);
+        given(userRepository.findWithApplicationsById(1L)).willReturn(Optional.of(existing));
+        given(vacancyRepository.getReferenceById(4L)).willReturn(otherVacancy);
+        given(userRepository.save(existing)).willReturn(existing);
+
+        userService.update(1L, patch, null, null);
+
+        // dezelfde managed instanties (dirty checking), geen kopieën met overgenomen versies
+        assertThat(existing.getApplications()).hasSize(3).contains(unchanged, changed);
+        assertThat(changed.getMotivation()).isEqualTo("new");
+        assertThat(changed.getStatus()).isEqualTo(ApplicationStatus.REJECTED);
+        assertThat(existing.getApplications()).extracting(Application::getId).doesNotContain(12L);
+        var added = existing.getApplications().get(2);
+        assertThat(added.getId()).isNull();
+        assertThat(added.getVacancy()).isSameAs(otherVacancy);
+        assertThat(added.getUser()).isSameAs(existing);
+        assertThat(added.getStatus()).isEqualTo(ApplicationStatus.PENDING);
+        verify(vacancyRepository, never()).getReferenceById(3L);
+    }
+
+    @Test
+    void update_applicationOfAnotherUser_isInvalid() {
+        var existing = TD.user(1L);
+        var patch = TD.userDto(1L);
+        patch.setApplications(List.of(applicationDto(99L, 2L, 3L, "APPLIED", "not mine")));
+        given(userRepository.findWithApplicationsById(1L)).willReturn(Optional.of(existing));
+
+        assertThatThrownBy(() -> userService.update(1L, patch, null, null))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("99");
+        verify(userRepository, never()).save(any(User.class));
+    }
+
     // 5) update – not found
     @Test
     void update_notFound_throws() {
         var patch = new UserDto();
-        given(userRepository.findById(9L)).willReturn(Optional.empty());
+        given(userRepository.findWithApplicationsById(9L)).willReturn(Optional.empty());
 
         assertThatThrownBy(() -> userService.update(9L, patch, null, null))
                 .isInstanceOf(ObjectNotFoundException.class)
                         .hasMessageContaining("User", 9);
 
-        verify(userRepository).findById(9L);
+        verify(userRepository).findWithApplicationsById(9L);
         verify(userRepository, never()).save(any(User.class));
         verifyNoMoreInteractions(userRepository, userMapper);
     }
 
 
-    // 6) findById – null applications → lege lijst
+    // 6) findById – geen applications → lege lijst
     @Test
-    void findById_nullApplications_yieldsEmptyListInDto() {
-        var u = TD.user(1L);
-        u.setApplications(null); // edge case
-        given(userRepository.findById(1L)).willReturn(Optional.of(u));
+    void findById_noApplications_yieldsEmptyListInDto() {
+        var u = TD.userView(1L);
+        given(userRepository.findViewById(1L)).willReturn(Optional.of(u));
+        given(applicationRepository.findViewsByUserIdIn(List.of(1L))).willReturn(List.of()); // edge case
 
         var dto = TD.userDto(1L);
         // BELANGRIJK: gedrag van mapper vastleggen
         dto.setApplications(Collections.emptyList());
-        given(userMapper.toDto(u)).willReturn(dto);
+        given(userMapper.toDto(u, List.of())).willReturn(dto);
 
         // Act
         var out = userService.findById(1L);
@@ -250,8 +386,8 @@ class UserServiceTest {
         assertThat(out.getApplications()).isNotNull().isEmpty();
 
         // verify
-        verify(userRepository).findById(1L);
-        verify(userMapper).toDto(u);
+        verify(userRepository).findViewById(1L);
+        verify(userMapper).toDto(u, List.of());
         verifyNoMoreInteractions(userMapper);
     }
 
@@ -260,13 +396,20 @@ class UserServiceTest {
     void delete_success() {
         var u = user(1L);
         given(userRepository.findById(1L)).willReturn(Optional.of(u));
+        given(applicationRepository.findVacancyIdsByUserId(1L)).willReturn(List.of(7L, 8L));
+        given(applicationRepository.bulkDeleteByUserId(1L)).willReturn(2);
 
-        assertDoesNotThrow(() -> userService.delete(1L));
+        var result = userService.delete(1L);
 
-        InOrder io = inOrder(userRepository);
+        assertThat(result.getDeletedApplications()).isEqualTo(2);
+        // applications in bulk vóór de user (FK); de collectie wordt niet aangeraakt
+        InOrder io = inOrder(userRepository, applicationRepository);
         io.verify(userRepository).findById(1L);
-        io.verify(userRepository).delete(u);
+        io.verify(applicationRepository).findVacancyIdsByUserId(1L);
+        io.verify(applicationRepository).bulkDeleteByUserId(1L);
+        io.verify(userRepository).bulkDeleteById(1L);
         io.verifyNoMoreInteractions();
+        verify(vacancyDtoCache).evictAll(List.of(7L, 8L));
     }
 
     @Test
@@ -283,4 +426,148 @@ class UserServiceTest {
         verify(userRepository, never()).delete(any());
         verifyNoMoreInteractions(userRepository);
     }
+
+    @Test
+    void create_withFiles_storesKeysFromFileStore() {
+        var dtoIn = TD.userDto(null);
+        var entity = TD.user(null);
+        var photo = new MockMultipartFile("photo", "p.jpg", "image/jpeg", "img".getBytes());
+        var cv = new MockMultipartFile("cv", "c.pdf", "application/pdf", "pdf".getBytes());
+        given(userMapper.toEntity(dtoIn)).willReturn(entity);
+        given(fileStorageService.storePhoto(photo)).willReturn(KEY_A);
+        given(fileStorageService.storeDocument(cv)).willReturn(KEY_B);
+        given(userRepository.save(any(User.class))).willAnswer(inv -> inv.getArgument(0));
+
+        userService.create(dtoIn, photo, cv);
+
+        assertThat(entity.getPhoto()).isEqualTo(KEY_A);
+        assertThat(entity.getCv()).isEqualTo(KEY_B);
+        verify(events).publishEvent(new PhotoStoredEvent(entity.getId(), KEY_A));
+    }
+
+    @Test
+    void update_withNewPhoto_releasesOldKeyAndThumbnails() {
+        var existing = TD.user(1L);
+        existing.setPhoto(KEY_A);
+        existing.setPhotoThumbnail64(KEY_T64);
+        existing.setPhotoThumbnail256(KEY_T256);
+        var patch = TD.userDto(1L);
+        patch.setCv(existing.getCv());
+        var photo = new MockMultipartFile("photo", "p.jpg", "image/jpeg", "other".getBytes());
+        given(userRepository.findWithApplicationsById(1L)).willReturn(Optional.of(existing));
+        given(fileStorageService.storePhoto(photo)).willReturn(KEY_B);
+        given(userRepository.save(any(User.class))).willAnswer(inv -> inv.getArgument(0));
+
+        userService.update(1L, patch, photo, null);
+
+        assertThat(existing.getPhoto()).isEqualTo(KEY_B);
+        verify(fileStorageService).release(KEY_A);
+        verify(fileStorageService).release(KEY_T64);
+        verify(fileStorageService).release(KEY_T256);
+        assertThat(existing.getPhotoThumbnail64()).isNull();
+        assertThat(existing.getPhotoThumbnail256()).isNull();
+        // cv ongewijzigd: geen release
+        verify(fileStorageService, never()).release("doc.pdf");
+        verify(events).publishEvent(new PhotoStoredEvent(1L, KEY_B));
+    }
+
+    @Test
+    void update_samePhoto_keepsThumbnailsAndPublishesNothing() {
+        var existing = TD.user(1L);
+        existing.setPhoto(KEY_A);
+        existing.setPhotoThumbnail64(KEY_T64);
+        var patch = TD.userDto(1L);
+        patch.setPhoto(KEY_A);
+        patch.setCv(existing.getCv());
+        given(userRepository.findWithApplicationsById(1L)).willReturn(Optional.of(existing));
+        given(userRepository.save(any(User.class))).willAnswer(inv -> inv.getArgument(0));
+
+        userService.update(1L, patch, null, null);
+
+        assertThat(existing.getPhotoThumbnail64()).isEqualTo(KEY_T64);
+        verify(fileStorageService, never()).release(any());
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    void update_withoutFileParts_keepsFilesAndReleasesNothing() {
+        var existing = TD.user(1L);
+        existing.setPhoto(KEY_A);
+        existing.setCv(KEY_B);
+        existing.setPhotoThumbnail64(KEY_T64);
+        // zoals UserController.updateUser: alleen de formuliervelden, geen photo/cv-sleutels
+        var patch = TD.userDto(1L);
+        patch.setPhoto(null);
+        patch.setCv(null);
+        patch.setLastName("Nieuw");
+        given(userRepository.findWithApplicationsById(1L)).willReturn(Optional.of(existing));
+        given(userRepository.save(any(User.class))).willAnswer(inv -> inv.getArgument(0));
+
+        userService.update(1L, patch, null, null);
+
+        assertThat(existing.getLastName()).isEqualTo("Nieuw");
+        assertThat(existing.getPhoto()).isEqualTo(KEY_A);
+        assertThat(existing.getCv()).isEqualTo(KEY_B);
+        assertThat(existing.getPhotoThumbnail64()).isEqualTo(KEY_T64);
+        verify(fileStorageService, never()).release(any());
+        verifyNoInteractions(events);
+    }
+
+    @Test
+    void delete_releasesFiles() {
+        var u = user(1L);
+        u.setPhoto(KEY_A);
+        u.setCv(KEY_B);
+        u.setPhotoThumbnail64(KEY_T64);
+        given(userRepository.findById(1L)).willReturn(Optional.of(u));
+
+        userService.delete(1L);
+
+        verify(fileStorageService).release(KEY_A);
+        verify(fileStorageService).release(KEY_B);
+        verify(fileStorageService).release(KEY_T64);
+    }
+
+    @Test
+    void findCv_opensStoredBlobByKeyFromProjection() {
+        var view = new nl.andarabski.repository.projection.UserView(1L, "A", "B", "e", "p", 30,
+                KEY_A, KEY_B, "user", true);
+        var blob = new FileStorageService.Blob(KEY_B, java.nio.file.Path.of("x"), 3, "application/pdf", "cv.pdf");
+        given(userRepository.findViewById(1L)).willReturn(Optional.of(view));
+        given(fileStorageService.open(KEY_B, "Cv of user", 1L)).willReturn(blob);
+
+        assertThat(userService.findCv(1L)).isSameAs(blob);
+        // alleen de projectie, geen entity
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void findPhoto_unknownUser_throws() {
+        given(userRepository.findViewById(5L)).willReturn(Optional.empty());
+
+        assertThatThrownBy(() -> userService.findPhoto(5L))
+                .isInstanceOf(ObjectNotFoundException.class);
+        verifyNoInteractions(fileStorageService);
+    }
+
+    @Test
+    void findPhotoThumbnail_opensKeyForRequestedSize() {
+        var blob = new FileStorageService.Blob(KEY_T256, java.nio.file.Path.of("x"), 3, "image/jpeg", "t.jpg");
+        given(userRepository.findThumbnailsById(1L)).willReturn(Optional.of(new PhotoThumbnails(KEY_A, KEY_T64, KEY_T256)));
+        given(fileStorageService.open(KEY_T256, "Thumbnail of user", 1L)).willReturn(blob);
+
+        assertThat(userService.findPhotoThumbnail(1L, 256)).isSameAs(blob);
+    }
+
+    @Test
+    void findPhotoThumbnail_unsupportedSize_throwsWithoutQuery() {
+        assertThatThrownBy(() -> userService.findPhotoThumbnail(1L, 100))
+                .isInstanceOf(InvalidRequestException.class);
+        verifyNoInteractions(userRepository, fileStorageService);
+    }
+
+    private static final String KEY_A = "a".repeat(64);
+    private static final String KEY_B = "b".repeat(64);
+    private static final String KEY_T64 = "c".repeat(64);
+    private static final String KEY_T256 = "d".repeat(64);
 }
@@ -0,0 +1,131 @@
+package nl.andarabski.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.mapper.ApplicationMapperImpl;
+import nl.andarabski.mapper.VacancyMapperImpl;
+import nl.andarabski.model.Application;
+import nl.andarabski.model.ApplicationStatus;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.system.exception.ObjectNotFoundException;
+import nl.andarabski.testsupport.TD;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Second-level cache + query cache voor de vacancy-read-paden. Zonder test-transactie: de cache wordt pas bij
+ * commit bijgewerkt, dus elke service-aanroep moet zijn eigen transactie hebben.
+ */
+@DataJpaTest(showSql = false)
+@Import({VacancyService.class, VacancyDtoCache.class, VacancyMapperImpl.class, ApplicationMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VacancyCacheTest {
+
+    @Autowired VacancyService vacancyService;
+    @Autowired VacancyRepository vacancyRepository;
+    @Autowired ApplicationRepository applicationRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired EntityManagerFactory emf;
+
+    Statistics stats;
+    Long id;
+
+    @BeforeEach
+    void seed() {
+        id = vacancyRepository.save(TD.vacancy(null)).getId();
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        applicationRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        vacancyRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void findById_secondCallIsServedFromQueryCache() {
+        vacancyService.findById(id);
+        long statementsAfterFirst = stats.getPrepareStatementCount();
+
+        VacancyDto again = vacancyService.findById(id);
+
+        assertThat(again.getTitle()).isEqualTo("Java Developer");
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(statementsAfterFirst);
+        assertThat(stats.getQueryCacheHitCount()).isEqualTo(2); // vacancy + applications
+    }
+
+    @Test
+    void findPage_secondCallIsServedFromQueryCache() {
+        vacancyService.findPage(null, 10);
+        long statementsAfterFirst = stats.getPrepareStatementCount();
+
+        assertThat(vacancyService.findPage(null, 10).getItems()).hasSize(1);
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(statementsAfterFirst);
+    }
+
+    @Test
+    void update_invalidatesCachedReads() {
+        vacancyService.findById(id);
+
+        VacancyDto patch = TD.vacancyDto(id);
+        patch.setTitle("Kotlin Developer");
+        patch.setApplications(null);
+        vacancyService.update(id, patch);
+
+        assertThat(vacancyService.findById(id).getTitle()).isEqualTo("Kotlin Developer");
+        assertThat(vacancyService.findPage(null, 10).getItems())
+                .singleElement().satisfies(v -> assertThat(v.getTitle()).isEqualTo("Kotlin Developer"));
+    }
+
+    @Test
+    void newApplication_invalidatesCachedApplicationCount() {
+        assertThat(vacancyService.findPage(null, 10).getItems())
+                .singleElement().satisfies(v -> assertThat(v.getApplicationCount()).isZero());
+
+        // de telling is een subquery op application: die tabel hoort bij de query spaces van de cached query
+        User user = userRepository.save(TD.user(null));
+        applicationRepository.save(new Application(null, user, vacancyRepository.getReferenceById(id),
+                "motivation", ApplicationStatus.APPLIED, TD.FIXED_DATE));
+
+        assertThat(vacancyService.findPage(null, 10).getItems())
+                .singleElement().satisfies(v -> assertThat(v.getApplicationCount()).isEqualTo(1L));
+    }
+
+    @Test
+    void createAndDelete_invalidateCachedPage() {
+        assertThat(vacancyService.findPage(null, 10).getItems()).hasSize(1);
+
+        VacancyDto created = vacancyService.create(TD.vacancyDto(null));
+        assertThat(vacancyService.findPage(null, 10).getItems()).hasSize(2);
+
+        vacancyService.delete(created.getId());
+        assertThat(vacancyService.findPage(null, 10).getItems()).hasSize(1);
+        assertThatThrownBy(() -> vacancyService.findById(created.getId()))
+                .isInstanceOf(ObjectNotFoundException.class);
+    }
+
+    @Test
+    void entityLoadsById_hitTheSecondLevelCache() {
+        vacancyRepository.findById(id);
+        vacancyRepository.findById(id);
+
+        assertThat(stats.getDomainDataRegionStatistics(Vacancy.class.getName()).getHitCount()).isPositive();
+    }
+}
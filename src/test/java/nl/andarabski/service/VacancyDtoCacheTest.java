@@ -0,0 +1,145 @@
+package nl.andarabski.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import nl.andarabski.config.CacheConfig;
+import nl.andarabski.dto.VacancyDto;
+import nl.andarabski.model.User;
+import nl.andarabski.model.Vacancy;
+import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
+import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.testsupport.TD;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItems;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * De VacancyDto-cache in de volledige context: hits, invalidatie bij writes op de vacancy en zijn
+ * applications, en de metrics.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+class VacancyDtoCacheTest {
+
+    @Autowired VacancyService vacancyService;
+    @Autowired ApplicationService applicationService;
+    @Autowired VacancyRepository vacancyRepository;
+    @Autowired UserRepository userRepository;
+    @Autowired ApplicationRepository applicationRepository;
+    @Autowired CacheManager cacheManager;
+    @Autowired MockMvc mockMvc;
+
+    Vacancy vacancy;
+    User user;
+
+    @BeforeEach
+    void seed() {
+        vacancy = vacancyRepository.save(TD.vacancy(null));
+        User u = TD.user(null);
+        u.setEmail("cache-" + System.nanoTime() + "@example.com");
+        user = userRepository.save(u);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        applicationRepository.findViewsByVacancyIdIn(List.of(vacancy.getId()))
+                .forEach(a -> applicationRepository.deleteById(a.id()));
+        vacancyRepository.deleteById(vacancy.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void findById_secondCallIsACacheHit() {
+        long hitsBefore = nativeCache().stats().hitCount();
+
+        VacancyDto first = vacancyService.findById(vacancy.getId());
+        VacancyDto second = vacancyService.findById(vacancy.getId());
+
+        assertThat(second).isSameAs(first);
+        assertThat(nativeCache().stats().hitCount()).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    void applyToVacancy_evictsCachedDto() {
+        assertThat(vacancyService.findById(vacancy.getId()).getApplications()).isEmpty();
+
+        applicationService.applyToVacancy(user.getId(), vacancy.getId(), "Graag!");
+
+        assertThat(vacancyService.findById(vacancy.getId()).getApplications())
+                .singleElement().satisfies(a -> assertThat(a.getUserId()).isEqualTo(user.getId()));
+    }
+
+    @Test
+    void deleteApplication_evictsCachedDto() {
+        Long applicationId = applicationService.applyToVacancy(user.getId(), vacancy.getId(), "Graag!").getId();
+        assertThat(vacancyService.findById(vacancy.getId()).getApplications()).hasSize(1);
+
+        applicationService.delete(applicationId);
+
+        assertThat(vacancyService.findById(vacancy.getId()).getApplications()).isEmpty();
+    }
+
+    @Test
+    void updateVacancy_evictsCachedDto() {
+        vacancyService.findById(vacancy.getId());
+
+        VacancyDto patch = TD.vacancyDto(vacancy.getId());
+        patch.setTitle("Kotlin Developer");
+        patch.setApplications(null);
+        vacancyService.update(vacancy.getId(), patch);
+
+        assertThat(vacancyService.findById(vacancy.getId()).getTitle()).isEqualTo("Kotlin Developer");
+    }
+
+    @Test
+    void writes_clearCachedVacancyList() throws Exception {
+        mockMvc.perform(get("/api/v1/vacancies").param("size", "100")).andExpect(status().isOk());
+        assertThat(listCache().estimatedSize()).isPositive();
+
+        applicationService.applyToVacancy(user.getId(), vacancy.getId(), "Graag!");
+        assertThat(listCache().estimatedSize()).isZero();
+
+        mockMvc.perform(get("/api/v1/vacancies").param("size", "100")).andExpect(status().isOk());
+        VacancyDto created = vacancyService.create(TD.vacancyDto(null));
+        assertThat(listCache().estimatedSize()).isZero();
+        vacancyRepository.deleteById(created.getId());
+    }
+
+    @Test
+    void cacheMetrics_areExposed() throws Exception {
+        vacancyService.findById(vacancy.getId());
+
+        mockMvc.perform(get("/actuator/metrics/cache.gets").param("tag", "cache:" + CacheConfig.VACANCY_DTOS))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.availableTags[?(@.tag == 'result')].values[*]",
+                        hasItems("hit", "miss")));
+        mockMvc.perform(get("/actuator/metrics/cache.evictions").param("tag", "cache:" + CacheConfig.VACANCY_DTOS))
+                .andExpect(status().isOk());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> listCache() {
+        Cache<Object, Object> cache =
+                (Cache<Object, Object>) cacheManager.getCache(CacheConfig.VACANCY_LIST_RESPONSES).getNativeCache();
+        cache.cleanUp();
+        return cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> nativeCache() {
+        return (Cache<Object, Object>) cacheManager.getCache(CacheConfig.VACANCY_DTOS).getNativeCache();
+    }
+}
@@ -4,14 +4,18 @@ import nl.andarabski.dto.*;
 import nl.andarabski.mapper.VacancyMapper;
 import nl.andarabski.model.*;
 import nl.andarabski.repository.ApplicationRepository;
+import nl.andarabski.repository.UserRepository;
 import nl.andarabski.repository.VacancyRepository;
+import nl.andarabski.system.exception.InvalidRequestException;
 import nl.andarabski.system.exception.ObjectNotFoundException;
 import nl.andarabski.testsupport.TD;
+import nl.andarabski.util.CursorUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.util.*;
 
@@ -26,23 +30,25 @@ class VacancyServiceTest {
     @Mock VacancyRepository vacancyRepository;
     @Mock ApplicationRepository applicationRepository;
     @Mock VacancyMapper vacancyMapper;
+    @Mock VacancyDtoCache vacancyDtoCache;
+    @Mock UserRepository userRepository;
 
     VacancyService vacancyService;
 
     @BeforeEach
     void setUp() {
-        vacancyService = new VacancyService(vacancyRepository, applicationRepository, vacancyMapper);
+        vacancyService = new VacancyService(vacancyRepository, applicationRepository, vacancyMapper, vacancyDtoCache, userRepository);
     }
 
     @Test
     void findById_mapsApplications() {
-        var v = vacancy(3L);
-        var u = user(1L);
-        var a1 = application(10L, u, v, ApplicationStatus.APPLIED, "ok");
-        var a2 = application(11L, u, v, ApplicationStatus.PENDING, "ok2");
-        v.setApplications(List.of(a1, a2));
+        var v = vacancyView(3L);
+        var apps = List.of(
+                applicationView(10L, 1L, 3L, ApplicationStatus.APPLIED, "ok"),
+                applicationView(11L, 1L, 3L, ApplicationStatus.PENDING, "ok2"));
 
-        given(vacancyRepository.findById(3L)).willReturn(Optional.of(v));
+        given(vacancyRepository.findViewById(3L)).willReturn(Optional.of(v));
+        given(applicationRepository.findViewsByVacancyIdIn(List.of(3L))).willReturn(apps);
 
         VacancyDto dto = vacancyDto(3L);
         dto.setPostedAt(FIXED_DATE);
@@ -50,7 +56,7 @@ class VacancyServiceTest {
                 applicationDto(10L, 1L, 3L,"APPLIED", "ok"),
                 applicationDto(11L, 1L, 3L,"PENDING", "ok2")
         ));
-        given(vacancyMapper.toDto(v)).willReturn(dto);
+        given(vacancyMapper.toDto(v, apps)).willReturn(dto);
 
 
         var out = vacancyService.findById(3L);
@@ -59,8 +65,8 @@ class VacancyServiceTest {
         assertThat(out.getApplications()).hasSize(2);
         assertThat(out.getPostedAt()).isEqualTo(FIXED_DATE);
 
-        verify(vacancyRepository).findById(3L);
-        verify(vacancyMapper).toDto(v);
+        verify(vacancyRepository).findViewById(3L);
+        verify(vacancyMapper).toDto(v, apps);
 
         verifyNoMoreInteractions(vacancyRepository, vacancyMapper);
     }
@@ -68,12 +74,12 @@ class VacancyServiceTest {
     // 1) findById – not found
     @Test
     void findById_notFound_throws() {
-        given(vacancyRepository.findById(77L)).willReturn(Optional.empty());
+        given(vacancyRepository.findViewById(77L)).willReturn(Optional.empty());
 
         assertThatThrownBy(() -> vacancyService.findById(77L))
                 .isInstanceOf(ObjectNotFoundException.class);
 
-        verify(vacancyRepository).findById(77L);
+        verify(vacancyRepository).findViewById(77L);
         verifyNoMoreInteractions(vacancyRepository, vacancyMapper);
     }
 
@@ -101,6 +107,29 @@ class VacancyServiceTest {
         verifyNoMoreInteractions(applicationRepository);
     }
 
+    @Test
+    void findPage_startsAfterDecodedCursor() {
+        var v4 = TD.vacancySummaryView(4L, 1);
+        given(vacancyRepository.findSummariesAfter(3L, Limit.of(6))).willReturn(List.of(v4));
+        given(vacancyMapper.toSummary(v4)).willReturn(TD.vacancySummaryDto(4L, 1));
+
+        var page = vacancyService.findPage(CursorUtil.encode(3L), 5);
+
+        assertThat(page.getItems()).extracting(VacancySummaryDto::getId).containsExactly(4L);
+        assertThat(page.getItems().get(0).getApplications()).isNull();
+        assertThat(page.isHasMore()).isFalse();
+        verify(vacancyRepository).findSummariesAfter(3L, Limit.of(6));
+        verifyNoMoreInteractions(vacancyRepository);
+        verifyNoInteractions(applicationRepository);
+    }
+
+    @Test
+    void findPage_zeroSize_throwsInvalidRequest() {
+        assertThatThrownBy(() -> vacancyService.findPage(null, 0))
+                .isInstanceOf(InvalidRequestException.class);
+        verifyNoInteractions(vacancyRepository);
+    }
+
     // 3) save – id toekenning
     @Test
     void save_success_assignsId() {
@@ -141,7 +170,7 @@ class VacancyServiceTest {
         expectedDto.setLocation("Utrecht");
         expectedDto.setPostedAt(TD.FIXED_DATE);
 
-        given(vacancyRepository.findById(3L)).willReturn(Optional.of(existing));
+        given(vacancyRepository.findWithApplicationsById(3L)).willReturn(Optional.of(existing));
         given(vacancyRepository.save(existing)).willReturn(existing);
 
         // mapper: simuleer partial update + terug naar DTO
@@ -169,7 +198,7 @@ class VacancyServiceTest {
 
         // assert
         InOrder io = inOrder(vacancyRepository); // let op: alléén repo hier
-        io.verify(vacancyRepository).findById(3L);
+        io.verify(vacancyRepository).findWithApplicationsById(3L);
         io.verify(vacancyRepository).save(any(Vacancy.class));
         io.verifyNoMoreInteractions();            // checkt alleen repo
 
@@ -182,43 +211,45 @@ class VacancyServiceTest {
     @Test
     void update_notFound_returnsNotFound() {
         var patch = new VacancyDto();
-        given(vacancyRepository.findById(11L)).willReturn(Optional.empty());
+        given(vacancyRepository.findWithApplicationsById(11L)).willReturn(Optional.empty());
 
         assertThatThrownBy(() -> vacancyService.update(11L, patch))
         .isInstanceOf(ObjectNotFoundException.class)
                 .hasMessageContaining("Vacancy", 11);
-        verify(vacancyRepository).findById(11L);
+        verify(vacancyRepository).findWithApplicationsById(11L);
         verify(vacancyRepository, never()).save(any(Vacancy.class));
         verifyNoMoreInteractions(vacancyMapper);
     }
 
-    // 5) delete – not found
+    // 5) delete – not found: de bulk-delete raakt geen rij
     @Test
     void delete_notFound_throws() {
-        given(vacancyRepository.findById(99L)).willReturn(Optional.empty());
+        given(vacancyRepository.bulkDeleteById(99L)).willReturn(0);
 
         assertThatThrownBy(() -> vacancyService.delete(99L))
                 .isInstanceOf(ObjectNotFoundException.class)
                         .hasMessageContaining("Vacancy", 99);
 
-        verify(vacancyRepository).findById(99L);
-        verify(vacancyRepository, never()).deleteById(anyLong());
-        // extra safeguard
+        verify(vacancyRepository, never()).findById(anyLong());
         verify(vacancyRepository, never()).delete(any());
-        verifyNoMoreInteractions(vacancyRepository);
+        verifyNoInteractions(vacancyDtoCache);
     }
 
 
     @Test
-    void delete_success() {
-        var v = vacancy(5L);
-        given(vacancyRepository.findById(5L)).willReturn(Optional.of(v));
-
-        assertDoesNotThrow(() -> vacancyService.delete(5L));
-
-        InOrder io = inOrder(vacancyRepository);
-        io.verify(vacancyRepository).findById(5L);
-        io.verify(vacancyRepository).delete(v);
-        io.verifyNoMoreInteractions();
+    void delete_success_removesApplicationsInBulk_andReportsCount() {
+        given(applicationRepository.bulkDeleteByVacancyId(5L)).willReturn(3);
+        given(vacancyRepository.bulkDeleteById(5L)).willReturn(1);
+
+        var result = vacancyService.delete(5L);
+
+        assertThat(result.getId()).isEqualTo(5L);
+        assertThat(result.getDeletedApplications()).isEqualTo(3);
+        // eerst de applications (FK), dan de vacancy; niets geladen
+        InOrder io = inOrder(applicationRepository, vacancyRepository, vacancyDtoCache);
+        io.verify(applicationRepository).bulkDeleteByVacancyId(5L);
+        io.verify(vacancyRepository).bulkDeleteById(5L);
+        io.verify(vacancyDtoCache).evict(5L);
+        verifyNoMoreInteractions(vacancyRepository, applicationRepository);
     }
 }
@@ -2,6 +2,7 @@ package nl.andarabski.testsupport;
 
 import nl.andarabski.model.*;
 import nl.andarabski.dto.*;
+import nl.andarabski.repository.projection.*;
 import java.time.Instant;
 import java.util.*;
 
@@ -63,6 +64,31 @@ public final class TD {
         if (!vacancy.getApplications().contains(app)) vacancy.getApplications().add(app);
     }
 
+    // ---------- PROJECTIONS ----------
+
+    public static UserView userView(Long id) {
+        return new UserView(id, "LvGod", "Andarabski", "test@gmail.com", "secret",
+                23, "photo", "doc.pdf", "admin", true);
+    }
+
+    public static VacancyView vacancyView(Long id) {
+        return new VacancyView(id, "Java Developer", "Acme",
+                "We are looking for an experienced Java Developer", "Amsterdam", FIXED_DATE);
+    }
+
+    public static UserSummaryView userSummaryView(Long id, long applicationCount) {
+        return new UserSummaryView(id, "LvGod", "Andarabski", "test@gmail.com", 23, "admin", true, applicationCount);
+    }
+
+    public static VacancySummaryView vacancySummaryView(Long id, long applicationCount) {
+        return new VacancySummaryView(id, "Java Developer", "Acme", "Amsterdam", FIXED_DATE, applicationCount);
+    }
+
+    public static ApplicationView applicationView(Long id, Long userId, Long vacancyId,
+                                                  ApplicationStatus status, String motivation) {
+        return new ApplicationView(id, userId, vacancyId, motivation, status, FIXED_DATE);
+    }
+
     // ---------- DTOS ----------
 
     public static UserDto userDto(Long id) {
@@ -93,6 +119,30 @@ public final class TD {
         return d;
     }
 
+    public static UserSummaryDto userSummaryDto(Long id, long applicationCount) {
+        UserSummaryDto d = new UserSummaryDto();
+        d.setId(id);
+        d.setFirstName("Andre");
+        d.setLastName("Dabski");
+        d.setEmail("test@gmail.com");
+        d.setAge(23);
+        d.setRole("admin");
+        d.setEnabled(true);
+        d.setApplicationCount(applicationCount);
+        return d;
+    }
+
+    public static VacancySummaryDto vacancySummaryDto(Long id, long applicationCount) {
+        VacancySummaryDto d = new VacancySummaryDto();
+        d.setId(id);
+        d.setTitle("Java Developer");
+        d.setCompanyName("IBM Company");
+        d.setLocation("Amsterdam");
+        d.setPostedAt(FIXED_DATE);
+        d.setApplicationCount(applicationCount);
+        return d;
+    }
+
     public static ApplicationDto applicationDto(Long id, Long userId, Long vacancyId,
                                                 String status, String motivation) {
         ApplicationDto d = new ApplicationDto();